@@ -0,0 +1,162 @@
+package com.netty.capture;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-27 10:20
+ * {@code @description:}
+ * 把抓包环形文件导出为纳秒精度的 pcap（LINKTYPE_RAW / IPv4），可直接用 Wireshark 的 Modbus/TCP 解析器查看。
+ * 抓包时只记录了对端地址，本端统一写成 127.0.0.2:50200；按链路方向累计 TCP 序号，便于 Wireshark 重组分段。
+ * 用法：java -cp app.jar com.netty.capture.PcapExporter modbus-wire.ring out.pcap
+ */
+public final class PcapExporter {
+
+    private static final int MAGIC_NANOS = 0xA1B23C4D;
+    private static final int LINKTYPE_RAW = 101;
+    private static final byte[] LOCAL_IP = {127, 0, 0, 2};
+    private static final int LOCAL_PORT = 50200;
+    private static final int IP_HEADER = 20;
+    private static final int TCP_HEADER = 20;
+
+    private PcapExporter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: PcapExporter <capture.ring> <out.pcap>");
+            System.exit(1);
+        }
+        try (WireCaptureRing ring = WireCaptureRing.openReadOnly(Paths.get(args[0]))) {
+            int n = export(ring, Paths.get(args[1]));
+            System.out.println("exported " + n + " records to " + args[1]);
+        }
+    }
+
+    public static int export(WireCaptureRing ring, Path out) throws IOException {
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(out)))) {
+            writeGlobalHeader(os);
+            // Key: endpoint，Value: 两个方向的下一个 TCP 序号
+            Map<String, int[]> seq = new HashMap<>();
+            int[] written = new int[1];
+            try {
+                ring.forEach((epochNanos, direction, endpoint, payload) -> {
+                    try {
+                        writePacket(os, seq, epochNanos, direction, endpoint, payload);
+                        written[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return written[0];
+        }
+    }
+
+    private static void writeGlobalHeader(DataOutputStream os) throws IOException {
+        os.writeInt(MAGIC_NANOS);
+        os.writeShort(2);
+        os.writeShort(4);
+        os.writeInt(0);
+        os.writeInt(0);
+        os.writeInt(65535);
+        os.writeInt(LINKTYPE_RAW);
+    }
+
+    private static void writePacket(DataOutputStream os, Map<String, int[]> seqs, long epochNanos, byte direction,
+                                    String endpoint, ByteBuffer payload) throws IOException {
+        int idx = endpoint.lastIndexOf(':');
+        byte[] remoteIp = parseIpv4(endpoint.substring(0, idx));
+        int remotePort = Integer.parseInt(endpoint.substring(idx + 1));
+        boolean outbound = direction == WireCaptureRing.OUTBOUND;
+
+        // [0] 本端 -> 对端，[1] 对端 -> 本端
+        int[] seq = seqs.computeIfAbsent(endpoint, k -> new int[2]);
+        int dataLen = payload.remaining();
+        int total = IP_HEADER + TCP_HEADER + dataLen;
+
+        // 记录头：秒、纳秒、抓取长度、原始长度
+        os.writeInt((int) (epochNanos / 1_000_000_000L));
+        os.writeInt((int) (epochNanos % 1_000_000_000L));
+        os.writeInt(total);
+        os.writeInt(total);
+
+        byte[] src = outbound ? LOCAL_IP : remoteIp;
+        byte[] dst = outbound ? remoteIp : LOCAL_IP;
+        writeIpv4Header(os, total, src, dst);
+
+        // TCP 头：PSH|ACK，校验和置 0（Wireshark 默认不校验）
+        os.writeShort(outbound ? LOCAL_PORT : remotePort);
+        os.writeShort(outbound ? remotePort : LOCAL_PORT);
+        int dir = outbound ? 0 : 1;
+        os.writeInt(seq[dir]);
+        os.writeInt(seq[1 - dir]);
+        os.writeByte(5 << 4);
+        os.writeByte(0x18);
+        os.writeShort(65535);
+        os.writeShort(0);
+        os.writeShort(0);
+        seq[dir] += dataLen;
+
+        writeTo(os, payload);
+    }
+
+    private static void writeIpv4Header(DataOutputStream os, int total, byte[] src, byte[] dst) throws IOException {
+        byte[] h = new byte[IP_HEADER];
+        h[0] = 0x45;
+        h[2] = (byte) (total >> 8);
+        h[3] = (byte) total;
+        h[8] = 64;
+        h[9] = 6;
+        System.arraycopy(src, 0, h, 12, 4);
+        System.arraycopy(dst, 0, h, 16, 4);
+        int sum = 0;
+        for (int i = 0; i < IP_HEADER; i += 2) {
+            sum += ((h[i] & 0xFF) << 8) | (h[i + 1] & 0xFF);
+        }
+        while ((sum >> 16) != 0) {
+            sum = (sum & 0xFFFF) + (sum >> 16);
+        }
+        int checksum = ~sum & 0xFFFF;
+        h[10] = (byte) (checksum >> 8);
+        h[11] = (byte) checksum;
+        os.write(h);
+    }
+
+    private static byte[] parseIpv4(String host) {
+        String[] parts = host.split("\\.");
+        byte[] ip = new byte[4];
+        if (parts.length != 4) {
+            // 主机名或 IPv6：无法还原，用 0.0.0.0 占位
+            return ip;
+        }
+        for (int i = 0; i < 4; i++) {
+            ip[i] = (byte) Integer.parseInt(parts[i]);
+        }
+        return ip;
+    }
+
+    private static void writeTo(OutputStream os, ByteBuffer payload) throws IOException {
+        byte[] chunk = new byte[Math.min(payload.remaining(), 4096)];
+        while (payload.hasRemaining()) {
+            int n = Math.min(chunk.length, payload.remaining());
+            payload.get(chunk, 0, n);
+            os.write(chunk, 0, n);
+        }
+    }
+}
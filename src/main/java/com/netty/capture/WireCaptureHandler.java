@@ -0,0 +1,45 @@
+package com.netty.capture;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-27 10:05
+ * {@code @description:}
+ * 抓包 Handler，放在按 MBAP 长度切帧的解码器（ModbusDecoder.framer）之后、协议解码之前：
+ * 入站逐帧记录解码前的原始字节，出站记录编码后的请求帧；每条记录都是完整的帧，按从站过滤才有意义。
+ * 未录制时只有一次 volatile 读，不改变 ByteBuf 的读索引。
+ */
+public class WireCaptureHandler extends ChannelDuplexHandler {
+
+    private final WireCaptureService service;
+    private final String endpoint;
+    private final byte[] endpointBytes;
+
+    public WireCaptureHandler(WireCaptureService service, String endpoint) {
+        this.service = service;
+        this.endpoint = endpoint;
+        this.endpointBytes = endpoint.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (service.isRecording() && msg instanceof ByteBuf) {
+            service.record(endpoint, endpointBytes, WireCaptureRing.INBOUND, (ByteBuf) msg);
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (service.isRecording() && msg instanceof ByteBuf) {
+            service.record(endpoint, endpointBytes, WireCaptureRing.OUTBOUND, (ByteBuf) msg);
+        }
+        ctx.write(msg, promise);
+    }
+}
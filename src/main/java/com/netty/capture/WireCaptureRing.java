@@ -0,0 +1,222 @@
+package com.netty.capture;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-27 09:30
+ * {@code @description:}
+ * 内存映射的环形抓包文件：写满后从头覆盖最旧的记录，进程退出后文件仍可离线读取（导出 pcap / 回放）。
+ * <pre>
+ * 文件头(32B): magic(4) version(4) capacity(8) head(4) tail(4) count(4) reserved(4)
+ * 记录:       length(4) epochNanos(8) direction(1) endpointLen(1) endpoint(n) payload(m)
+ * length = -1 为回绕标记，读到后跳回数据区起点
+ * </pre>
+ */
+public class WireCaptureRing implements Closeable {
+
+    public static final byte INBOUND = 0;
+    public static final byte OUTBOUND = 1;
+
+    private static final int MAGIC = 0x4D574352; // "MWCR"
+    private static final int VERSION = 1;
+    private static final int HEADER = 32;
+    private static final int RECORD_HEADER = 4 + 8 + 1 + 1;
+    private static final int WRAP = -1;
+
+    private static final int OFF_HEAD = 16;
+    private static final int OFF_TAIL = 20;
+    private static final int OFF_COUNT = 24;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    // 下一条记录写入位置 / 最旧记录位置 / 有效记录数
+    private int head;
+    private int tail;
+    private int count;
+
+    private WireCaptureRing(FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * 以写模式打开；文件已存在且格式一致时接着写，否则重新初始化
+     */
+    public static WireCaptureRing open(Path file, int capacity) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        FileChannel ch = new RandomAccessFile(file.toFile(), "rw").getChannel();
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        WireCaptureRing ring = new WireCaptureRing(ch, buf, capacity);
+        if (buf.getInt(0) == MAGIC && buf.getInt(4) == VERSION && buf.getLong(8) == capacity) {
+            ring.head = buf.getInt(OFF_HEAD);
+            ring.tail = buf.getInt(OFF_TAIL);
+            ring.count = buf.getInt(OFF_COUNT);
+        } else {
+            buf.putInt(0, MAGIC);
+            buf.putInt(4, VERSION);
+            buf.putLong(8, capacity);
+            ring.reset();
+        }
+        return ring;
+    }
+
+    /**
+     * 只读打开已有抓包文件（离线导出 / 回放）
+     */
+    public static WireCaptureRing openReadOnly(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file);
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            ch.close();
+            throw new IOException("Not a wire capture file: " + file);
+        }
+        WireCaptureRing ring = new WireCaptureRing(ch, buf, (int) buf.getLong(8));
+        ring.head = buf.getInt(OFF_HEAD);
+        ring.tail = buf.getInt(OFF_TAIL);
+        ring.count = buf.getInt(OFF_COUNT);
+        return ring;
+    }
+
+    /**
+     * 追加一条记录，不改变 data 的读索引；记录超过整个环容量时丢弃
+     */
+    public synchronized void append(long epochNanos, byte direction, byte[] endpoint, ByteBuf data) {
+        int payload = data.readableBytes();
+        int length = RECORD_HEADER + endpoint.length + payload;
+        if (length + 4 > capacity - HEADER) {
+            return;
+        }
+        if (head + length + 4 > capacity) {
+            // 尾部放不下：写回绕标记，从数据区起点继续
+            evict(head, capacity);
+            buffer.putInt(head, WRAP);
+            head = HEADER;
+        }
+        evict(head, head + length + 4);
+
+        int pos = head;
+        buffer.putInt(pos, length);
+        buffer.putLong(pos + 4, epochNanos);
+        buffer.put(pos + 12, direction);
+        buffer.put(pos + 13, (byte) endpoint.length);
+        pos += RECORD_HEADER;
+        for (byte b : endpoint) {
+            buffer.put(pos++, b);
+        }
+        // 直接从 ByteBuf 拷贝到映射区，不经过中间数组；经 ByteBuffer/Buffer 调用，JDK 9+ 编译时不绑定 Java 8 上不存在的协变重载
+        ByteBuffer dst = ((ByteBuffer) buffer).duplicate();
+        ((Buffer) dst).position(pos).limit(pos + payload);
+        data.getBytes(data.readerIndex(), dst);
+
+        head += length;
+        count++;
+        writeIndex();
+    }
+
+    /**
+     * 淘汰与 [from, to) 重叠的最旧记录（末尾多留 4 字节给回绕标记）
+     */
+    private void evict(int from, int to) {
+        while (count > 0 && tail >= from && tail < to) {
+            int length = buffer.getInt(tail);
+            tail += length;
+            count--;
+            if (tail + 4 > capacity || buffer.getInt(tail) == WRAP) {
+                tail = HEADER;
+            }
+        }
+        if (count == 0) {
+            tail = head;
+        }
+    }
+
+    private void writeIndex() {
+        buffer.putInt(OFF_HEAD, head);
+        buffer.putInt(OFF_TAIL, tail);
+        buffer.putInt(OFF_COUNT, count);
+    }
+
+    public synchronized void reset() {
+        head = HEADER;
+        tail = HEADER;
+        count = 0;
+        writeIndex();
+    }
+
+    /**
+     * 从最旧到最新遍历所有记录；visitor 收到的 payload 仅在回调内有效
+     */
+    public synchronized void forEach(RecordVisitor visitor) {
+        int pos = tail;
+        byte[] endpointBytes = new byte[255];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt(pos);
+            if (length == WRAP) {
+                pos = HEADER;
+                length = buffer.getInt(pos);
+            }
+            long epochNanos = buffer.getLong(pos + 4);
+            byte direction = buffer.get(pos + 12);
+            int endpointLen = buffer.get(pos + 13) & 0xFF;
+            for (int j = 0; j < endpointLen; j++) {
+                endpointBytes[j] = buffer.get(pos + RECORD_HEADER + j);
+            }
+            String endpoint = new String(endpointBytes, 0, endpointLen, StandardCharsets.US_ASCII);
+            int payloadStart = pos + RECORD_HEADER + endpointLen;
+            ByteBuffer payload = ((ByteBuffer) buffer).duplicate();
+            ((Buffer) payload).position(payloadStart).limit(pos + length);
+            visitor.visit(epochNanos, direction, endpoint, payload.slice());
+            pos += length;
+        }
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 刷盘（停止抓包或导出前调用）
+     */
+    public void force() {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            buffer.force();
+        } catch (UnsupportedOperationException ignored) {
+            // 只读映射
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(long epochNanos, byte direction, String endpoint, ByteBuffer payload);
+    }
+}
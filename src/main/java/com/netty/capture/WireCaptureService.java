@@ -0,0 +1,204 @@
+package com.netty.capture;
+
+import com.netty.config.ModbusConfig;
+import com.netty.util.ClockUtils;
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-27 09:50
+ * {@code @description:}
+ * 抓包管理：持有环形文件，运行期开关录制、按设备过滤，导出 pcap。
+ * 过滤条件为空时录制全部链路；条目格式 ip:port（整条链路）或 ip:port:slaveId（单个从站）。
+ */
+@Slf4j
+@Component
+public class WireCaptureService {
+
+    // 环形文件大小上限(MB)：1 << 31 字节已超出 int
+    private static final int MAX_SIZE_MB = 2047;
+
+    @Autowired
+    private ModbusConfig modbusConfig;
+
+    private WireCaptureRing ring;
+
+    private volatile boolean recording;
+
+    // Key: ip:port，Value: 允许的从站位图，null 表示整条链路
+    private volatile Map<String, boolean[]> filter = Collections.emptyMap();
+    private volatile Set<String> filterKeys = Collections.emptySet();
+
+    /**
+     * 是否在新建链路上安装抓包 Handler（启动配置决定，安装后的开销只剩一次 volatile 读）
+     */
+    public boolean isInstalled() {
+        return modbusConfig.isCaptureEnabled();
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    public synchronized void start() throws IOException {
+        if (ring == null) {
+            int sizeMb = modbusConfig.getCaptureSizeMb();
+            if (sizeMb < 1 || sizeMb > MAX_SIZE_MB) {
+                throw new IllegalStateException("capture-size-mb must be between 1 and " + MAX_SIZE_MB + ": " + sizeMb);
+            }
+            ring = WireCaptureRing.open(Paths.get(modbusConfig.getCaptureFile()), sizeMb * 1024 * 1024);
+        }
+        recording = true;
+        log.info("抓包开始: {}", modbusConfig.getCaptureFile());
+    }
+
+    public synchronized void stop() {
+        recording = false;
+        if (ring != null) {
+            ring.force();
+        }
+        log.info("抓包停止, 记录数: {}", ring != null ? ring.count() : 0);
+    }
+
+    public synchronized void clear() {
+        if (ring != null) {
+            ring.reset();
+        }
+    }
+
+    /**
+     * 替换设备过滤条件；任一条目格式不合法时抛出 IllegalArgumentException，原过滤条件不变
+     */
+    public synchronized void setFilter(Collection<String> keys) {
+        Map<String, boolean[]> next = new HashMap<>();
+        Set<String> nextKeys = new LinkedHashSet<>();
+        if (keys != null) {
+            for (String key : keys) {
+                String k = key == null ? "" : key.trim();
+                if (k.isEmpty()) {
+                    continue;
+                }
+                String[] parts = k.split(":", -1);
+                if (parts.length < 2 || parts.length > 3 || parts[0].isEmpty()
+                        || !inRange(parts[1], 1, 65535) || (parts.length == 3 && !inRange(parts[2], 0, 255))) {
+                    throw new IllegalArgumentException("Invalid capture filter '" + k + "', expected ip:port or ip:port:slaveId");
+                }
+                nextKeys.add(k);
+                String endpoint = parts[0] + ":" + parts[1];
+                if (parts.length < 3) {
+                    next.put(endpoint, null);
+                } else if (!next.containsKey(endpoint) || next.get(endpoint) != null) {
+                    boolean[] units = next.computeIfAbsent(endpoint, e -> new boolean[256]);
+                    units[Integer.parseInt(parts[2])] = true;
+                }
+            }
+        }
+        this.filter = next;
+        this.filterKeys = nextKeys;
+    }
+
+    private static boolean inRange(String s, int min, int max) {
+        if (s.isEmpty() || s.length() > 5) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+                return false;
+            }
+        }
+        int v = Integer.parseInt(s);
+        return v >= min && v <= max;
+    }
+
+    public Set<String> getFilter() {
+        return filterKeys;
+    }
+
+    /**
+     * 记录一段原始字节（EventLoop 线程调用）
+     */
+    void record(String endpoint, byte[] endpointBytes, byte direction, ByteBuf data) {
+        if (!accepts(endpoint, data)) {
+            return;
+        }
+        WireCaptureRing r = ring;
+        if (r != null) {
+            r.append(ClockUtils.toEpochNanos(System.nanoTime()), direction, endpointBytes, data);
+        }
+    }
+
+    private boolean accepts(String endpoint, ByteBuf data) {
+        Map<String, boolean[]> f = filter;
+        if (f.isEmpty()) {
+            return true;
+        }
+        if (!f.containsKey(endpoint)) {
+            return false;
+        }
+        boolean[] units = f.get(endpoint);
+        if (units == null) {
+            return true;
+        }
+        // 记录的是切好的完整帧，MBAP 头第 7 个字节为 Unit ID；不足一个头的畸形帧保守记录
+        if (data.readableBytes() < 7) {
+            return true;
+        }
+        return units[data.getUnsignedByte(data.readerIndex() + 6)];
+    }
+
+    /**
+     * 导出文件名解析到抓包文件所在目录下：只接受文件名，拒绝绝对路径、目录分隔符与 ..
+     */
+    public Path resolveExport(String name) {
+        String n = name == null ? "" : name.trim();
+        if (n.isEmpty() || n.equals(".") || n.equals("..") || n.indexOf('/') >= 0 || n.indexOf('\\') >= 0
+                || n.indexOf(':') >= 0 || n.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("Invalid export file name: " + name);
+        }
+        Path dir = Paths.get(modbusConfig.getCaptureFile()).toAbsolutePath().normalize().getParent();
+        Path out = dir.resolve(n).normalize();
+        if (!dir.equals(out.getParent())) {
+            throw new IllegalArgumentException("Invalid export file name: " + name);
+        }
+        return out;
+    }
+
+    /**
+     * 导出为 pcap，返回导出的记录数
+     */
+    public synchronized int exportPcap(Path out) throws IOException {
+        if (ring == null) {
+            return 0;
+        }
+        ring.force();
+        return PcapExporter.export(ring, out);
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("installed", isInstalled());
+        status.put("recording", recording);
+        status.put("file", modbusConfig.getCaptureFile());
+        status.put("records", ring != null ? ring.count() : 0);
+        status.put("filter", filterKeys);
+        return status;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        recording = false;
+        if (ring != null) {
+            ring.close();
+            ring = null;
+        }
+    }
+}
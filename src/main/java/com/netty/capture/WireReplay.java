@@ -0,0 +1,219 @@
+package com.netty.capture;
+
+import com.netty.core.ModbusFrame;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusCallback;
+import com.netty.core.common.ModbusTask;
+import com.netty.core.common.QueuedTask;
+import com.netty.core.handler.ModbusDecoder;
+import com.netty.service.DataRouteDispatcher;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import lombok.Data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-27 10:40
+ * {@code @description:}
+ * 回放抓包：请求帧还原成请求上下文（设备 + 任务 + 事务ID），响应字节按原始分段喂给 ModbusDecoder，
+ * 再按事务ID交给回调（通常是 DataRouteDispatcher），用于离线压测和回归解码/分发链路。
+ * 录制只解析一次，多轮回放只重复解码与分发。
+ * 用法：java -cp app.jar com.netty.capture.WireReplay modbus-wire.ring [loops] [outputMode]
+ */
+public class WireReplay {
+
+    private final ModbusCallback callback;
+    private final List<Step> steps = new ArrayList<>();
+    private final Map<String, Link> links = new HashMap<>();
+    private final Stats stats = new Stats();
+
+    public WireReplay(ModbusCallback callback) {
+        this.callback = callback;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: WireReplay <capture.ring> [loops] [outputMode]");
+            System.exit(1);
+        }
+        int loops = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        DataRouteDispatcher dispatcher = new DataRouteDispatcher(null, null);
+        // 默认只解析不输出，单纯衡量解码 + 分发开销
+        dispatcher.setOutputMode(args.length > 2 ? args[2] : "none");
+        WireReplay replay = new WireReplay(dispatcher);
+        try (WireCaptureRing ring = WireCaptureRing.openReadOnly(Paths.get(args[0]))) {
+            replay.load(ring);
+        }
+        Stats stats = replay.run(loops);
+        System.out.println(stats);
+    }
+
+    /**
+     * 解析录制内容
+     */
+    public void load(WireCaptureRing ring) {
+        ring.forEach((epochNanos, direction, endpoint, payload) -> {
+            Link link = links.computeIfAbsent(endpoint, Link::new);
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            Step step = new Step(link, bytes);
+            if (direction == WireCaptureRing.OUTBOUND) {
+                parseRequests(step);
+            }
+            steps.add(step);
+        });
+    }
+
+    /**
+     * 回放 loops 轮，返回累计统计
+     */
+    public Stats run(int loops) {
+        long start = System.nanoTime();
+        for (int i = 0; i < loops; i++) {
+            for (Step step : steps) {
+                if (step.tids != null) {
+                    for (int j = 0; j < step.tids.length; j++) {
+                        QueuedTask qTask = QueuedTask.newInstance(step.devices[j], step.tasks[j], callback);
+                        qTask.setTransactionId(step.tids[j]);
+                        qTask.setSendTime(System.nanoTime());
+                        QueuedTask old = step.link.pending.put(step.tids[j], qTask);
+                        if (old != null) {
+                            old.recycle();
+                        }
+                        stats.requests++;
+                    }
+                } else {
+                    step.link.channel.writeInbound(Unpooled.wrappedBuffer(step.bytes));
+                }
+            }
+            for (Link link : links.values()) {
+                link.clearPending();
+            }
+        }
+        stats.elapsedNanos += System.nanoTime() - start;
+        return stats;
+    }
+
+    /**
+     * 拆出一个出站分段里的所有请求帧：MBAP(7) + 功能码(1) + 起始地址(2) + 数量(2)
+     */
+    private void parseRequests(Step step) {
+        ByteBuffer buf = ByteBuffer.wrap(step.bytes);
+        List<int[]> frames = new ArrayList<>();
+        int pos = 0;
+        while (pos + 8 <= step.bytes.length) {
+            int tid = buf.getShort(pos) & 0xFFFF;
+            int len = buf.getShort(pos + 4) & 0xFFFF;
+            int unit = buf.get(pos + 6) & 0xFF;
+            int fc = buf.get(pos + 7) & 0xFF;
+            int startAddr = len >= 4 && pos + 10 <= step.bytes.length ? buf.getShort(pos + 8) & 0xFFFF : 0;
+            int count = len >= 6 && pos + 12 <= step.bytes.length ? buf.getShort(pos + 10) & 0xFFFF : 0;
+            frames.add(new int[]{tid, unit, fc, startAddr, count});
+            pos += 6 + len;
+        }
+        int n = frames.size();
+        step.tids = new int[n];
+        step.devices = new DeviceConfig[n];
+        step.tasks = new ModbusTask[n];
+        for (int i = 0; i < n; i++) {
+            int[] f = frames.get(i);
+            step.tids[i] = f[0];
+            step.devices[i] = step.link.device(f[1]);
+            step.tasks[i] = ModbusTask.builder().type(f[2]).startAddr(f[3]).count(f[4]).build();
+        }
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    private static final class Step {
+        private final Link link;
+        private final byte[] bytes;
+        // 出站分段解析出的请求，入站分段为 null
+        private int[] tids;
+        private DeviceConfig[] devices;
+        private ModbusTask[] tasks;
+
+        private Step(Link link, byte[] bytes) {
+            this.link = link;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * 单条链路：独立的解码器实例 + 在途请求表
+     */
+    private final class Link {
+        private final String endpoint;
+        private final EmbeddedChannel channel;
+        private final IntObjectMap<QueuedTask> pending = new IntObjectHashMap<>();
+        private final Map<Integer, DeviceConfig> devices = new HashMap<>();
+
+        private Link(String endpoint) {
+            this.endpoint = endpoint;
+            this.channel = new EmbeddedChannel(new ModbusDecoder(), new SimpleChannelInboundHandler<ModbusFrame>() {
+                @Override
+                protected void channelRead0(ChannelHandlerContext ctx, ModbusFrame msg) {
+                    onFrame(msg);
+                }
+            });
+        }
+
+        private void onFrame(ModbusFrame frame) {
+            stats.responses++;
+            QueuedTask qTask = pending.remove(frame.getTransactionId() & 0xFFFF);
+            try {
+                if (qTask == null) {
+                    stats.unmatched++;
+                    return;
+                }
+                callback.onResponse(qTask, frame);
+            } finally {
+                if (qTask != null) {
+                    qTask.recycle();
+                }
+                frame.recycle();
+            }
+        }
+
+        private DeviceConfig device(int unitId) {
+            return devices.computeIfAbsent(unitId, u -> {
+                int idx = endpoint.lastIndexOf(':');
+                DeviceConfig device = new DeviceConfig();
+                device.setId("replay-" + endpoint + ":" + u);
+                device.setIp(endpoint.substring(0, idx));
+                device.setPort(Integer.parseInt(endpoint.substring(idx + 1)));
+                device.setSlaveId((byte) (int) u);
+                return device;
+            });
+        }
+
+        private void clearPending() {
+            for (QueuedTask qTask : pending.values()) {
+                qTask.recycle();
+            }
+            pending.clear();
+        }
+    }
+
+    @Data
+    public static class Stats {
+        private long requests;
+        private long responses;
+        private long unmatched;
+        private long elapsedNanos;
+    }
+}
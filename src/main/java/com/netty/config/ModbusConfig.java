@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * {@code @author:} TaiHuLake
  * {@code @date:} 2026-01-11 20:43
@@ -19,15 +22,194 @@ public class ModbusConfig {
     // 响应超时
     private int readTimeout = 3000;
 
+    // 超时扫描精度(ms)：每个连接按该周期扫描在途请求
+    private int timeoutTick = 20;
+
+    // 同一连接两次请求之间的最小间隔(ms)，保护从站协议栈
+    private int requestGap = 50;
+
     // 重试连接数
     private int retryCount = 3;
 
+    // 每个 ip:port 的并发 TCP 会话数（网关支持多会话并行时调大）
+    private int connectionsPerEndpoint = 1;
+
+    // 多会话时按 slaveId 固定会话（保持单从站请求顺序），否则按负载分发
+    private boolean slaveAffinity = false;
+
+    // 单个会话建连失败后的重连间隔(ms)
+    private int reconnectInterval = 3000;
+
+    // 共享网关的从站调度：round-robin 按请求数轮询，deficit 按寄存器数赤字轮询
+    private String slaveScheduling = "round-robin";
+
+    // 每个从站子队列的积压上限
+    private int maxQueuePerSlave = 100;
+
+    // 熔断：连续失败(超时/异常响应)达到该次数后打开
+    private int breakerFailureThreshold = 3;
+
+    // 熔断打开时长(ms)，到期后半开探测
+    private long breakerOpenTime = 30000;
+
+    // 探测失败时打开时长翻倍的上限(ms)
+    private long breakerMaxOpenTime = 300000;
+
+    // 抓包：启动时在每条链路上安装抓包 Handler（安装后可在运行期开关录制）
+    private boolean captureEnabled = false;
+
+    // 抓包环形文件路径
+    private String captureFile = "capture/modbus-wire.ring";
+
+    // 抓包环形文件大小(MB)，写满后覆盖最旧的记录
+    private int captureSizeMb = 64;
+
+    // 告警事件在 modbus.exchange 上的路由键，为空时只记录日志
+    private String alarmRoutingKey = "modbus.alarm";
+
+    // 聚合结果 / 聚合任务原始数据在 modbus.exchange 上的路由键
+    private String aggregateRoutingKey = "modbus.aggregate";
+    private String rawRoutingKey = "modbus.raw";
+
+    // 按轮次合并输出的路由键
+    private String cycleRoutingKey = "modbus.cycle";
+
+    // 异步 Redis 输出（output-mode: redis-async）的在途命令上限
+    private int redisMaxInFlight = 1000;
+
+    // 背压：按输出延迟 / 在途 / 队列积压拉长低优先级设备的轮询周期
+    private boolean backpressureEnabled = true;
+
+    // 输出平均耗时达到该值(ms)视为压力 1
+    private int backpressureSinkLatency = 200;
+
+    // 单会话积压达到 maxQueuePerSlave 的该比例视为压力 1
+    private double backpressureQueueRatio = 0.5;
+
+    // 周期最多拉长的倍数
+    private int backpressureMaxStretch = 8;
+
+    // 连续多少次评估低于当前级别才降一级（每秒评估一次）
+    private int backpressureRecoverTicks = 5;
+
+    // 同时进行中的建连数上限（<=0 不限制）
+    private int maxPendingConnects = 32;
+
+    // 每秒新建连接数上限（<=0 不限制），首次上线与断网恢复时按优先级逐批建连
+    private int maxConnectsPerSecond = 50;
+
+    // 输出端（Redis / RabbitMQ）不可用时是否落盘暂存，恢复后按序回放
+    private boolean spoolEnabled = true;
+
+    // 暂存目录
+    private String spoolDir = "spool";
+
+    // 单个段文件大小 (MB)
+    private int spoolSegmentMb = 16;
+
+    // 暂存磁盘预算 (MB)，超出时淘汰最旧的段
+    private int spoolMaxDiskMb = 1024;
+
+    // 暂存保留时间 (小时)，超过的样本回放时丢弃
+    private int spoolRetentionHours = 72;
+
+    // 回放速率 (条/秒)，<=0 不限速
+    private int spoolReplayRate = 500;
+
+    // 是否保存运行状态快照（设备清单 + 最新值），重启后不等控制面同步即恢复采集
+    private boolean snapshotEnabled = true;
+
+    // 快照文件
+    private String snapshotFile = "snapshot/modbus-state.bin";
+
+    // 定期写快照的间隔 (秒)，<=0 只在停机时写
+    private int snapshotInterval = 60;
+
+    // 代理模式：对外提供 Modbus TCP 服务，读请求直接用最新值镜像应答，写请求转发给设备
+    private boolean proxyEnabled = false;
+
+    // 代理监听端口
+    private int proxyPort = 5020;
+
+    // 镜像超过该时长(ms)未更新时读请求回 0x0B（目标设备无响应）；0 取设备轮询周期的 3 倍，<0 不检查
+    private int proxyMaxAge = 0;
+
+    // 站点隔离：设备按 site 分区，每个分区独立的 IO 线程组、轮询调度线程与建连限流，Key: site
+    private Map<String, SiteQuota> sites = new LinkedHashMap<>();
+
+    // 未在 sites 中单独配置的站点使用的配额
+    private SiteQuota siteDefaults = new SiteQuota();
+
+    // 实时推送（SSE）的订阅连接数上限
+    private int liveMaxSubscribers = 200;
+
+    // 单个订阅者合并后仍待发送的点位数上限，超出视为客户端过慢，断开由其重连
+    private int liveMaxPending = 20000;
+
+    // 实时推送的发送线程数
+    private int liveThreads = 2;
+
+    // 实时推送心跳间隔(ms)，用于发现已断开的客户端
+    private int liveHeartbeat = 15000;
+
+    // 单次推送超过该时长(ms)仍未写完视为客户端卡住：断开订阅、中断发送线程，并临时补一个发送线程（<=0 不检查）
+    private int liveSendTimeout = 10000;
+
+    // 批量写入任务的默认并发数（同时在途的设备写入数），也是单个任务可指定的上限
+    private int bulkWriteConcurrency = 64;
+
+    // 保留的已结束批量写入任务数，超出时丢弃最早的
+    private int bulkWriteRetainJobs = 20;
+
     // 轮询间隔
     private int pollInterval = 10000;
 
-    // 最大连接数
+    // 链路上超过该时长(ms)收不到任何报文时插队发一次探测读，及早发现半开连接（<=0 不探测）
+    private int livenessIdle = 30000;
+
+    // 探测读连续超时达到该次数（期间无任何报文）判定链路失效，主动关闭并立即重连（<=0 不判定）；
+    // 普通请求超时只说明单个从站不应答，不计入
+    private int livenessMaxTimeouts = 3;
+
+    // 链路失效关闭时，排队中优先级不低于该值的请求（以及写请求）换到新会话重发，其余丢弃等下次轮询
+    private int livenessRequeuePriority = 1;
+
+    // 全局 TCP 会话数上限（<=0 不限制）：达到上限时淘汰最久未使用的空闲会话，没有可淘汰的则本次不建连
     private int maxConnections = 500;
 
+    // 会话空闲超过该时长(ms)自动关闭，下次轮询时按需重连（<=0 不关闭）；轮询周期更短的设备不受影响
+    private int connectionIdleTimeout = 300000;
+
+    // 连接预算淘汰时，会话至少已空闲该时长(ms)
+    private int connectionEvictMinIdle = 1000;
+
+    // 慢周期设备（interval >= slowPollInterval 且未配置 syncGroup）按端点对齐触发，一次建连集中读完各从站
+    private boolean burstSlowPolls = true;
+
+    // 慢周期阈值(ms)
+    private int slowPollInterval = 60000;
+
     // CONSOLE, REDIS, RABBITMQ
     private String outputMode = "CONSOLE";
-}
\ No newline at end of file
+
+    /**
+     * 单个站点分区的线程数与配额（site 为空的设备使用全局配置的默认分区）
+     */
+    @Data
+    public static class SiteQuota {
+        // IO 线程数：该站点所有链路的收发、超时扫描与结果分发
+        private int ioThreads = 2;
+
+        // 轮询调度线程数
+        private int pollThreads = 2;
+
+        // 设备数上限，超出的设备不启动（<=0 不限制）
+        private int maxDevices = 0;
+
+        // 同时进行中的建连数上限（<=0 不限制）
+        private int maxPendingConnects = 8;
+
+        // 每秒新建连接数上限（<=0 不限制）
+        private int maxConnectsPerSecond = 10;
+    }
+}
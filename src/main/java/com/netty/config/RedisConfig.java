@@ -1,5 +1,11 @@
 package com.netty.config;
 
+import com.netty.sink.AsyncRedisSink;
+import com.netty.sink.LettuceHashClient;
+import io.lettuce.core.RedisURI;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -26,4 +32,23 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * 非阻塞 Hash 输出，仅在 modbus.output-mode=redis-async 时建立独立的 Lettuce 连接
+     */
+    @Bean
+    @ConditionalOnProperty(name = "modbus.output-mode", havingValue = "redis-async")
+    public AsyncRedisSink asyncRedisSink(RedisProperties properties, ModbusConfig modbusConfig, MeterRegistry meterRegistry) {
+        RedisURI.Builder uri = RedisURI.builder()
+                .withHost(properties.getHost())
+                .withPort(properties.getPort())
+                .withDatabase(properties.getDatabase());
+        if (properties.getPassword() != null && !properties.getPassword().isEmpty()) {
+            uri.withPassword(properties.getPassword().toCharArray());
+        }
+        if (properties.getTimeout() != null) {
+            uri.withTimeout(properties.getTimeout());
+        }
+        return new AsyncRedisSink(new LettuceHashClient(uri.build()), modbusConfig.getRedisMaxInFlight(), meterRegistry);
+    }
+
 }
@@ -1,13 +1,33 @@
 package com.netty.controller;
 
+import com.netty.capture.WireCaptureService;
+import com.netty.core.common.BulkWriteRequest;
 import com.netty.core.common.DeviceConfig;
+import com.netty.live.LiveValueHub;
+import com.netty.manager.ConnectionManager;
+import com.netty.manager.DeviceCircuitBreaker;
+import com.netty.manager.SitePartitions;
+import com.netty.proxy.ModbusProxyServer;
+import com.netty.service.BackpressureMonitor;
+import com.netty.service.BulkWriteJob;
+import com.netty.service.BulkWriteService;
 import com.netty.service.ModbusMasterService;
+import com.netty.service.SnapshotService;
+import com.netty.sink.SinkSpool;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * {@code @author:} TaiHuLake
@@ -22,6 +42,33 @@ public class ModbusController {
     @Autowired
     private ModbusMasterService masterService;
 
+    @Autowired
+    private WireCaptureService captureService;
+
+    @Autowired
+    private BackpressureMonitor backpressureMonitor;
+
+    @Autowired
+    private SinkSpool sinkSpool;
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Autowired
+    private ModbusProxyServer proxyServer;
+
+    @Autowired
+    private SitePartitions sitePartitions;
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    @Autowired
+    private LiveValueHub liveValueHub;
+
+    @Autowired
+    private BulkWriteService bulkWriteService;
+
     /**
      * 全量同步设备列表
      * 逻辑：传入的 List 是“当前应该运行的所有设备”
@@ -36,6 +83,217 @@ public class ModbusController {
         return "Sync processed. Current active devices: " + devices.size();
     }
 
+    /**
+     * 先写后读：写入设定值后立即读回状态，设备支持时用功能码 23 一次往返，否则 16 + 03
+     * deviceKey 格式 ip:port:slaveId，请求体为写入的寄存器值
+     */
+    @PostMapping("/write-read")
+    @Operation(summary = "先写后读")
+    public CompletableFuture<int[]> writeThenRead(@RequestParam String deviceKey, @RequestParam int writeAddr,
+                                                  @RequestParam int readAddr, @RequestParam int readCount,
+                                                  @RequestBody int[] values) {
+        return masterService.writeThenRead(deviceKey, writeAddr, values, readAddr, readCount);
+    }
+
+    /**
+     * 批量写入（设定值下发）：立即返回任务号，后台并行写入各设备，verify=true 时读回比对
+     */
+    @PostMapping("/bulk-write")
+    @Operation(summary = "批量写入")
+    public Map<String, Object> bulkWrite(@RequestBody BulkWriteRequest request) {
+        return bulkWriteService.submit(request).summary();
+    }
+
+    /**
+     * 批量写入任务列表（进度概况）
+     */
+    @GetMapping("/bulk-write")
+    @Operation(summary = "批量写入任务列表")
+    public List<Map<String, Object>> bulkWriteJobs() {
+        return bulkWriteService.list();
+    }
+
+    /**
+     * 批量写入任务进度与逐设备结果，onlyUnsuccessful=true 时只列出未成功的设备
+     */
+    @GetMapping("/bulk-write/{id}")
+    @Operation(summary = "批量写入结果")
+    public Map<String, Object> bulkWriteJob(@PathVariable String id,
+                                            @RequestParam(defaultValue = "false") boolean onlyUnsuccessful) {
+        BulkWriteJob job = bulkWriteService.get(id);
+        if (job == null) {
+            throw new IllegalArgumentException("Bulk write job not found: " + id);
+        }
+        return job.status(onlyUnsuccessful);
+    }
+
+    /**
+     * 设备熔断状态
+     * onlyTripped=true 时只返回打开/半开的设备
+     */
+    @GetMapping("/breakers")
+    @Operation(summary = "熔断状态")
+    public Collection<DeviceCircuitBreaker> breakers(@RequestParam(defaultValue = "true") boolean onlyTripped) {
+        return masterService.breakers(onlyTripped);
+    }
+
+    /**
+     * 手动复位设备熔断器，deviceKey 格式 ip:port:slaveId
+     */
+    @PostMapping("/breakers/reset")
+    @Operation(summary = "复位熔断")
+    public String resetBreaker(@RequestParam String deviceKey) {
+        return masterService.resetBreaker(deviceKey) ? "Breaker reset: " + deviceKey : "Device not found: " + deviceKey;
+    }
+
+    /**
+     * 背压状态：当前级别、压力来源与各优先级的降频倍数
+     */
+    @GetMapping("/backpressure")
+    @Operation(summary = "背压状态")
+    public Map<String, Object> backpressure() {
+        return backpressureMonitor.status();
+    }
+
+    /**
+     * 落盘暂存状态：积压、段数与磁盘占用
+     */
+    @GetMapping("/spool")
+    @Operation(summary = "落盘暂存状态")
+    public Map<String, Object> spool() {
+        return sinkSpool.status();
+    }
+
+    /**
+     * 运行状态快照：最近一次写入与启动时恢复的设备数
+     */
+    @GetMapping("/snapshot")
+    @Operation(summary = "状态快照")
+    public Map<String, Object> snapshot() {
+        return snapshotService.status();
+    }
+
+    /**
+     * 立即写一次快照
+     */
+    @PostMapping("/snapshot")
+    @Operation(summary = "立即保存状态快照")
+    public Map<String, Object> writeSnapshot() throws IOException {
+        snapshotService.write();
+        return snapshotService.status();
+    }
+
+    /**
+     * 异常码自学习得到的读取计划：无效地址、单次上限与实际请求分段
+     */
+    @GetMapping("/plans")
+    @Operation(summary = "读取计划")
+    public Map<String, List<Map<String, Object>>> plans() {
+        return masterService.learnedPlans();
+    }
+
+    /**
+     * 代理模式：监听端口、unitId 映射、客户端数与应答统计
+     */
+    @GetMapping("/proxy")
+    @Operation(summary = "代理状态")
+    public Map<String, Object> proxy() {
+        return proxyServer.status();
+    }
+
+    /**
+     * 站点分区：各站点的线程数、设备数与配额、进行中的建连
+     */
+    @GetMapping("/sites")
+    @Operation(summary = "站点分区")
+    public Map<String, Map<String, Object>> sites() {
+        return sitePartitions.status();
+    }
+
+    /**
+     * 连接预算：当前会话数与上限、空闲回收与预算淘汰次数
+     */
+    @GetMapping("/connections")
+    @Operation(summary = "连接预算")
+    public Map<String, Object> connections() {
+        return connectionManager.status();
+    }
+
+    /**
+     * 实时推送（SSE）：只推变化的点位，慢客户端按点位合并为最新值
+     * devices 为设备 id 列表，points 为点位列表（如 4:1、0:10），均为空时订阅全部
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "实时推送")
+    public SseEmitter stream(@RequestParam(required = false) List<String> devices,
+                             @RequestParam(required = false) List<String> points) {
+        return liveValueHub.subscribe(devices, points);
+    }
+
+    /**
+     * 实时推送订阅者：各订阅者已发送、被合并与待发送的点位数
+     */
+    @GetMapping("/stream/status")
+    @Operation(summary = "实时推送状态")
+    public Map<String, Object> streamStatus() {
+        return liveValueHub.status();
+    }
+
+    /**
+     * 上线爬坡进度：排队、建连中与已启动的设备数
+     */
+    @GetMapping("/rampup")
+    @Operation(summary = "上线爬坡进度")
+    public Map<String, Object> rampUp() {
+        return masterService.rampUpStatus();
+    }
+
+    /**
+     * 抓包状态（需配置 capture-enabled=true 才会在链路上安装抓包 Handler）
+     */
+    @GetMapping("/capture")
+    @Operation(summary = "抓包状态")
+    public Map<String, Object> captureStatus() {
+        return captureService.status();
+    }
+
+    /**
+     * 开始/停止录制；devices 为空时录制全部链路，条目格式 ip:port 或 ip:port:slaveId
+     */
+    @PostMapping("/capture")
+    @Operation(summary = "抓包开关")
+    public Map<String, Object> capture(@RequestParam boolean enabled,
+                                       @RequestBody(required = false) List<String> devices) throws IOException {
+        if (devices != null) {
+            captureService.setFilter(devices);
+        }
+        if (enabled) {
+            captureService.start();
+        } else {
+            captureService.stop();
+        }
+        return captureService.status();
+    }
+
+    /**
+     * 导出抓包为 pcap 文件；name 为文件名，导出到抓包文件所在目录
+     */
+    @PostMapping("/capture/export")
+    @Operation(summary = "导出pcap")
+    public String exportCapture(@RequestParam String name) throws IOException {
+        Path out = captureService.resolveExport(name);
+        return "Exported " + captureService.exportPcap(out) + " records to " + out;
+    }
+
+    /**
+     * 参数不合法（文件名、过滤条件、任务号等）返回 400
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String badRequest(IllegalArgumentException e) {
+        return e.getMessage();
+    }
+
 //    /**
 //     * 单个设备立即写入指令示例
 //     * 场景：不参与轮询，手动触发一次写操作
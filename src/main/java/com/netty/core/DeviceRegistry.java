@@ -0,0 +1,183 @@
+package com.netty.core;
+
+import com.netty.core.common.DeviceConfig;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-06 10:15
+ * {@code @description:}
+ * 设备注册表：设备同步时编译出的句柄表，给每个设备、每个端点 (ip:port) 分配紧凑的整数句柄。
+ * 轮询热路径只按句柄做数组下标访问，不再拼接 Key、不再查哈希表。
+ * <ul>
+ *   <li>设备句柄：本次编译内从 0 连续编号，随每次同步重排</li>
+ *   <li>端点句柄：端点仍有设备期间保持不变；端点下的设备全部移除后句柄回收，之后的新端点优先复用，
+ *   按句柄索引的连接池数组因此只随同时在用的端点数增长</li>
+ * </ul>
+ * 只有注册表自己的数组在编译后不再改动，它不是设备状态的快照：
+ * 编译会把 deviceKey 与两个句柄写回设备对象（transient 字段），移出注册表的设备句柄重置为 -1；
+ * 设备与任务对象上另挂有镜像、轮次、读取计划、规则、聚合器等可变的运行期状态，由各自的 attach 写入，不归注册表管理。
+ */
+public final class DeviceRegistry {
+
+    public static final DeviceRegistry EMPTY = new DeviceRegistry(new String[0], new DeviceConfig[0],
+            new int[0], new String[0], new String[0], new int[0]);
+
+    // 按设备句柄
+    private final String[] deviceKeys;
+    private final DeviceConfig[] devices;
+    private final int[] deviceEndpoints;
+
+    // 按端点句柄，已回收未复用的句柄为 null
+    private final String[] endpointKeys;
+    private final String[] endpointIps;
+    private final int[] endpointPorts;
+
+    private DeviceRegistry(String[] deviceKeys, DeviceConfig[] devices, int[] deviceEndpoints,
+                           String[] endpointKeys, String[] endpointIps, int[] endpointPorts) {
+        this.deviceKeys = deviceKeys;
+        this.devices = devices;
+        this.deviceEndpoints = deviceEndpoints;
+        this.endpointKeys = endpointKeys;
+        this.endpointIps = endpointIps;
+        this.endpointPorts = endpointPorts;
+    }
+
+    /**
+     * 编译新的注册表，并把句柄写回设备对象
+     *
+     * @param previous 上一次编译的结果，用于沿用与回收端点句柄
+     * @param devices  Key: deviceKey (ip:port:slaveId)
+     */
+    public static DeviceRegistry compile(DeviceRegistry previous, Map<String, DeviceConfig> devices) {
+        // 本次仍在使用的端点，Value: 端点下首个设备
+        Map<String, DeviceConfig> used = new LinkedHashMap<>();
+        for (DeviceConfig device : devices.values()) {
+            used.putIfAbsent(device.getIp() + ":" + device.getPort(), device);
+        }
+
+        // 沿用仍在使用的端点句柄，其余句柄空出
+        Map<String, Integer> endpointIndex = new HashMap<>(used.size() * 4 / 3 + 16);
+        List<String> endpointKeys = new ArrayList<>(previous.endpointKeys.length + 16);
+        List<String> endpointIps = new ArrayList<>(previous.endpointKeys.length + 16);
+        List<Integer> endpointPorts = new ArrayList<>(previous.endpointKeys.length + 16);
+        ArrayDeque<Integer> free = new ArrayDeque<>();
+        for (int i = 0; i < previous.endpointKeys.length; i++) {
+            String key = previous.endpointKeys[i];
+            if (key != null && used.containsKey(key)) {
+                endpointIndex.put(key, i);
+                endpointKeys.add(key);
+                endpointIps.add(previous.endpointIps[i]);
+                endpointPorts.add(previous.endpointPorts[i]);
+            } else {
+                free.add(i);
+                endpointKeys.add(null);
+                endpointIps.add(null);
+                endpointPorts.add(0);
+            }
+        }
+        // 新端点优先复用空出的句柄
+        for (Map.Entry<String, DeviceConfig> entry : used.entrySet()) {
+            if (endpointIndex.containsKey(entry.getKey())) {
+                continue;
+            }
+            Integer endpoint = free.poll();
+            if (endpoint == null) {
+                endpoint = endpointKeys.size();
+                endpointKeys.add(null);
+                endpointIps.add(null);
+                endpointPorts.add(0);
+            }
+            endpointIndex.put(entry.getKey(), endpoint);
+            endpointKeys.set(endpoint, entry.getKey());
+            endpointIps.set(endpoint, entry.getValue().getIp());
+            endpointPorts.set(endpoint, entry.getValue().getPort());
+        }
+        // 末尾空出的句柄直接截掉
+        int capacity = endpointKeys.size();
+        while (capacity > 0 && endpointKeys.get(capacity - 1) == null) {
+            capacity--;
+        }
+
+        int n = devices.size();
+        String[] deviceKeys = new String[n];
+        DeviceConfig[] deviceArray = new DeviceConfig[n];
+        int[] deviceEndpoints = new int[n];
+        Set<DeviceConfig> current = Collections.newSetFromMap(new IdentityHashMap<>(n * 4 / 3 + 1));
+        int handle = 0;
+        for (Map.Entry<String, DeviceConfig> entry : devices.entrySet()) {
+            DeviceConfig device = entry.getValue();
+            int endpoint = endpointIndex.get(device.getIp() + ":" + device.getPort());
+            device.setKey(entry.getKey());
+            device.setHandle(handle);
+            device.setEndpoint(endpoint);
+            deviceKeys[handle] = entry.getKey();
+            deviceArray[handle] = device;
+            deviceEndpoints[handle] = endpoint;
+            current.add(device);
+            handle++;
+        }
+        // 移出的设备不再指向（可能被复用的）句柄，之后按 ip:port 查找
+        for (DeviceConfig device : previous.devices) {
+            if (!current.contains(device)) {
+                device.setHandle(-1);
+                device.setEndpoint(-1);
+            }
+        }
+
+        int[] ports = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ports[i] = endpointPorts.get(i);
+        }
+        return new DeviceRegistry(deviceKeys, deviceArray, deviceEndpoints,
+                endpointKeys.subList(0, capacity).toArray(new String[0]),
+                endpointIps.subList(0, capacity).toArray(new String[0]), ports);
+    }
+
+    public int deviceCount() {
+        return devices.length;
+    }
+
+    /**
+     * 端点句柄的上界（含已回收未复用的空句柄）
+     */
+    public int endpointCount() {
+        return endpointKeys.length;
+    }
+
+    public DeviceConfig device(int handle) {
+        return devices[handle];
+    }
+
+    public String deviceKey(int handle) {
+        return deviceKeys[handle];
+    }
+
+    public int endpointOf(int deviceHandle) {
+        return deviceEndpoints[deviceHandle];
+    }
+
+    /**
+     * 端点 ip:port，已回收的句柄返回 null
+     */
+    public String endpointKey(int endpoint) {
+        return endpointKeys[endpoint];
+    }
+
+    public String endpointIp(int endpoint) {
+        return endpointIps[endpoint];
+    }
+
+    public int endpointPort(int endpoint) {
+        return endpointPorts[endpoint];
+    }
+}
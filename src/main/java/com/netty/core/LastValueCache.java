@@ -0,0 +1,45 @@
+package com.netty.core;
+
+import com.netty.core.common.DeviceConfig;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-30 09:40
+ * {@code @description:}
+ * 所有设备的最新值镜像，Key: deviceKey (ip:port:slaveId)。
+ * 设备同步时把镜像挂到 DeviceConfig 上，分发路径直接引用，不做 Map 查找。
+ */
+@Component
+public class LastValueCache {
+
+    private final Map<String, RegisterImage> images = new ConcurrentHashMap<>();
+
+    public RegisterImage attach(String deviceKey, DeviceConfig device) {
+        RegisterImage image = images.computeIfAbsent(deviceKey, k -> new RegisterImage(device.getId()));
+        device.setImage(image);
+        return image;
+    }
+
+    /**
+     * 启动时放入快照中的镜像，已存在的不覆盖
+     */
+    public void restore(String deviceKey, RegisterImage image) {
+        images.putIfAbsent(deviceKey, image);
+    }
+
+    public RegisterImage get(String deviceKey) {
+        return images.get(deviceKey);
+    }
+
+    public void remove(String deviceKey) {
+        images.remove(deviceKey);
+    }
+
+    public Map<String, RegisterImage> all() {
+        return images;
+    }
+}
@@ -1,16 +1,23 @@
 package com.netty.core;
 
+import io.netty.util.Recycler;
 import lombok.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
-@Builder
 public class ModbusFrame {
 
+    private static final Recycler<ModbusFrame> RECYCLER = new Recycler<ModbusFrame>() {
+        @Override
+        protected ModbusFrame newObject(Handle<ModbusFrame> handle) {
+            ModbusFrame frame = new ModbusFrame();
+            frame.handle = handle;
+            return frame;
+        }
+    };
+
     // 事务ID：用于异步匹配响应
     private short transactionId;
 
@@ -25,4 +32,68 @@ public class ModbusFrame {
 
     // 数据载荷 (起始地址、寄存器数、具体值等)
     private byte[] payload;
+
+    // 解码完成时间(nanoTime)，由 ModbusDecoder 打点；不进构造器与 Builder
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private long receiveTime;
+
+    // 对象池句柄：仅由 newInstance 创建的帧持有，不对外暴露
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient Recycler.Handle<ModbusFrame> handle;
+
+    /**
+     * 构造非池化的帧（请求、代理应答、测试等），只含报文字段
+     */
+    @Builder
+    public ModbusFrame(short transactionId, short protocolId, byte unitId, byte functionCode, byte[] payload) {
+        this.transactionId = transactionId;
+        this.protocolId = protocolId;
+        this.unitId = unitId;
+        this.functionCode = functionCode;
+        this.payload = payload;
+    }
+
+    /**
+     * 从对象池获取帧（解码器使用），载荷数组长度一致时直接复用
+     */
+    public static ModbusFrame newInstance(short tid, short pid, byte uid, byte fc, int payloadLength) {
+        ModbusFrame frame = RECYCLER.get();
+        frame.transactionId = tid;
+        frame.protocolId = pid;
+        frame.unitId = uid;
+        frame.functionCode = fc;
+        if (frame.payload == null || frame.payload.length != payloadLength) {
+            frame.payload = new byte[payloadLength];
+        }
+        return frame;
+    }
+
+    /**
+     * 解码完成时间(nanoTime)
+     */
+    public long getReceiveTime() {
+        return receiveTime;
+    }
+
+    /**
+     * 解码器在帧解析完成时打点
+     */
+    public void markReceived(long nanoTime) {
+        this.receiveTime = nanoTime;
+    }
+
+    /**
+     * 归还对象池；非池化的帧调用无副作用
+     */
+    public void recycle() {
+        if (handle != null) {
+            handle.recycle(this);
+        }
+    }
 }
@@ -0,0 +1,182 @@
+package com.netty.core;
+
+import com.netty.core.common.CycleSnapshot;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusResult;
+import com.netty.core.common.ModbusTask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-04 09:40
+ * {@code @description:}
+ * 单个设备的轮次收集器：pollDevice 开启一轮，各读任务的结果 / 失败按计划采样时间归入当前轮，
+ * 全部到齐、截止时间到或下一轮开始时结算为一条 {@link CycleSnapshot}。
+ * 迟到的上一轮响应直接丢弃（上一轮已按缺失结算）。聚合任务与写任务不参与合并。
+ */
+public final class PollCycle {
+
+    private static final byte PENDING = 0;
+    private static final byte OK = 1;
+    private static final byte FAILED = 2;
+
+    private final String deviceId;
+    private final int slaveId;
+    // 参与合并的任务，按配置顺序
+    private final ModbusTask[] tasks;
+    private final long deadline;
+
+    private final ModbusResult[] results;
+    private final byte[] states;
+    private long cycleId;
+    private long scheduledTime;
+    private long deadlineAt;
+    private int done;
+    private boolean open;
+
+    private PollCycle(DeviceConfig device, ModbusTask[] tasks) {
+        this.deviceId = device.getId();
+        this.slaveId = device.getSlaveId();
+        this.tasks = tasks;
+        this.deadline = device.getCycleDeadline() > 0 ? device.getCycleDeadline() : device.getInterval();
+        this.results = new ModbusResult[tasks.length];
+        this.states = new byte[tasks.length];
+    }
+
+    /**
+     * 设备开启了按轮次合并时挂上收集器（设备同步时调用，须在 WindowAggregator.attach 之后）
+     */
+    public static void attach(DeviceConfig device) {
+        device.setCycle(null);
+        if (!device.isCycleSnapshot() || device.getTasks() == null) {
+            return;
+        }
+        List<ModbusTask> tracked = new ArrayList<>();
+        for (ModbusTask task : device.getTasks()) {
+            if (task.getType() >= 1 && task.getType() <= 4 && task.getAggregator() == null) {
+                tracked.add(task);
+            }
+        }
+        if (!tracked.isEmpty()) {
+            device.setCycle(new PollCycle(device, tracked.toArray(new ModbusTask[0])));
+        }
+    }
+
+    /**
+     * 任务是否参与合并
+     */
+    public boolean tracks(ModbusTask task) {
+        return indexOf(task) >= 0;
+    }
+
+    private int indexOf(ModbusTask task) {
+        for (int i = 0; i < tasks.length; i++) {
+            if (tasks[i] == task) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 开启新一轮
+     *
+     * @return 上一轮仍未结算时返回其快照（标记 SUPERSEDED），否则 null
+     */
+    public synchronized CycleSnapshot begin(long scheduledTime) {
+        CycleSnapshot previous = open ? close(CycleSnapshot.SUPERSEDED) : null;
+        cycleId++;
+        this.scheduledTime = scheduledTime;
+        this.deadlineAt = scheduledTime + deadline;
+        for (int i = 0; i < tasks.length; i++) {
+            results[i] = null;
+            states[i] = PENDING;
+        }
+        done = 0;
+        open = true;
+        return previous;
+    }
+
+    /**
+     * 记录一个任务的结果
+     *
+     * @return 本轮因此到齐时返回快照，否则 null
+     */
+    public synchronized CycleSnapshot complete(ModbusTask task, long scheduledTime, ModbusResult result) {
+        int i = accept(task, scheduledTime);
+        if (i < 0) {
+            return null;
+        }
+        results[i] = result;
+        states[i] = OK;
+        return ++done == tasks.length ? close(CycleSnapshot.COMPLETE) : null;
+    }
+
+    /**
+     * 记录一个任务失败
+     */
+    public synchronized CycleSnapshot fail(ModbusTask task, long scheduledTime) {
+        int i = accept(task, scheduledTime);
+        if (i < 0) {
+            return null;
+        }
+        states[i] = FAILED;
+        return ++done == tasks.length ? close(CycleSnapshot.COMPLETE) : null;
+    }
+
+    private int accept(ModbusTask task, long scheduledTime) {
+        if (!open || scheduledTime != this.scheduledTime) {
+            return -1;
+        }
+        int i = indexOf(task);
+        return i >= 0 && states[i] == PENDING ? i : -1;
+    }
+
+    /**
+     * 截止时间检查（周期扫描调用）
+     *
+     * @return 到期未齐的本轮快照（标记 DEADLINE），否则 null
+     */
+    public synchronized CycleSnapshot expire(long now) {
+        return open && now >= deadlineAt ? close(CycleSnapshot.DEADLINE) : null;
+    }
+
+    private CycleSnapshot close(String reason) {
+        open = false;
+        CycleSnapshot snapshot = new CycleSnapshot();
+        snapshot.setDeviceId(deviceId);
+        snapshot.setSlaveId(slaveId);
+        snapshot.setCycleId(cycleId);
+        snapshot.setScheduledTime(scheduledTime);
+        snapshot.setTimestamp(System.currentTimeMillis());
+        snapshot.setExpected(tasks.length);
+        List<ModbusResult> ok = new ArrayList<>(tasks.length);
+        List<String> missing = null;
+        List<String> failed = null;
+        for (int i = 0; i < tasks.length; i++) {
+            if (states[i] == OK) {
+                ok.add(results[i]);
+            } else if (states[i] == FAILED) {
+                if (failed == null) {
+                    failed = new ArrayList<>();
+                }
+                failed.add(tasks[i].getTaskId());
+            } else {
+                if (missing == null) {
+                    missing = new ArrayList<>();
+                }
+                missing.add(tasks[i].getTaskId());
+            }
+            results[i] = null;
+        }
+        snapshot.setResults(ok);
+        snapshot.setReceived(ok.size());
+        snapshot.setMissing(missing);
+        snapshot.setFailed(failed);
+        snapshot.setComplete(ok.size() == tasks.length);
+        snapshot.setCloseReason(reason);
+        return snapshot;
+    }
+}
@@ -0,0 +1,361 @@
+package com.netty.core;
+
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusTask;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-05 09:30
+ * {@code @description:}
+ * 读任务的实际请求计划：配置里的任务可以很粗（跨越未映射地址、超过设备的单次读取上限），
+ * 设备回异常码 02/03 时由这里自学习：
+ * <ul>
+ *   <li>02（非法地址）：把失败的分段对半拆开，下一轮分别读取；拆到单个地址仍失败即记为无效地址</li>
+ *   <li>03（非法数据值，多为数量超限）：记下失败的数量，单次上限在“已成功的最大数量”与它之间二分；
+ *   按上限读满的一轮成功后再向上试探，直到两者相邻。同设备同类（寄存器 / 位）任务共享学到的上限</li>
+ * </ul>
+ * 每确认一个无效地址或新的上限，就按“有效地址连续段 + 上限”重排分段，保持请求数最少。
+ * 拆分后的分段响应在这里拼回原任务的完整结果（无效地址填 0 / false），下游仍按原任务处理。
+ * 学到的计划随状态快照持久化。
+ */
+public final class ReadPlan {
+
+    // 协议上限：03/04 单次 125 个寄存器，01/02 单次 2000 个位
+    public static final int MAX_REGISTERS = 125;
+    public static final int MAX_BITS = 2000;
+
+    private final ModbusTask task;
+    private final boolean bits;
+
+    // 已确认无效的地址（相对任务起始地址的偏移）
+    private final BitSet invalid = new BitSet();
+    private int maxBlock;
+    // 单次读取：已成功的最大数量 / 回过 03 的最小数量
+    private int good;
+    private int bad;
+    // 当前分段，null 表示直接发送原任务
+    private volatile ModbusTask[] pieces;
+
+    // 拼装中的一轮：计划采样时间、缓冲与已到达的分段
+    private long assemblingTime = Long.MIN_VALUE;
+    private int[] registerBuffer;
+    private Object[] bitBuffer;
+    private boolean[] arrived;
+    private int received;
+
+    private ReadPlan(ModbusTask task) {
+        this.task = task;
+        this.bits = task.getType() == 1 || task.getType() == 2;
+        this.maxBlock = bits ? MAX_BITS : MAX_REGISTERS;
+        this.bad = maxBlock + 1;
+    }
+
+    /**
+     * 为设备的读任务挂上请求计划（设备同步时调用）；任务上已有的计划（快照恢复）保留
+     */
+    public static void attach(DeviceConfig device) {
+        if (device.getTasks() == null) {
+            return;
+        }
+        for (ModbusTask task : device.getTasks()) {
+            if (task.getType() < 1 || task.getType() > 4 || task.getCount() <= 0) {
+                task.setPlan(null);
+                continue;
+            }
+            ReadPlan plan = task.getPlan();
+            if (plan == null || plan.task != task) {
+                plan = new ReadPlan(task);
+                // 超过协议上限的任务一开始就分段
+                plan.rebuild();
+                task.setPlan(plan);
+            }
+        }
+    }
+
+    /**
+     * 本轮应发送的分段，null 表示直接发送原任务
+     */
+    public ModbusTask[] pieces() {
+        return pieces;
+    }
+
+    public ModbusTask getTask() {
+        return task;
+    }
+
+    /**
+     * 收集一个分段的响应
+     *
+     * @return 本轮所有分段到齐时返回拼好的完整结果（int[] 或 Object[]），否则 null
+     */
+    public synchronized Object collect(ModbusTask piece, long scheduledTime, byte[] payload) {
+        ModbusTask[] current = pieces;
+        int index = indexOf(current, piece);
+        if (index < 0) {
+            // 计划已重排，旧分段的迟到响应
+            return null;
+        }
+        if (scheduledTime != assemblingTime || arrived == null || arrived.length != current.length) {
+            assemblingTime = scheduledTime;
+            arrived = new boolean[current.length];
+            received = 0;
+            if (bits) {
+                bitBuffer = new Object[task.getCount()];
+                Arrays.fill(bitBuffer, Boolean.FALSE);
+            } else {
+                registerBuffer = new int[task.getCount()];
+            }
+        }
+        if (arrived[index]) {
+            return null;
+        }
+        int offset = piece.getStartAddr() - task.getStartAddr();
+        if (bits) {
+            Object[] values = ModbusDataParser.parseBits(payload, piece.getCount());
+            System.arraycopy(values, 0, bitBuffer, offset, Math.min(values.length, task.getCount() - offset));
+        } else {
+            int[] values = ModbusDataParser.parseRegisters(payload);
+            System.arraycopy(values, 0, registerBuffer, offset, Math.min(values.length, task.getCount() - offset));
+        }
+        arrived[index] = true;
+        good = Math.max(good, piece.getCount());
+        if (++received < current.length) {
+            return null;
+        }
+        Object complete = bits ? bitBuffer : registerBuffer;
+        registerBuffer = null;
+        bitBuffer = null;
+        arrived = null;
+        assemblingTime = Long.MIN_VALUE;
+        if (good >= maxBlock && maxBlock < bad - 1) {
+            // 按上限读满的一轮全部成功，上限还没确定：向上试探
+            maxBlock = (maxBlock + bad) / 2;
+            rebuild();
+        }
+        return complete;
+    }
+
+    /**
+     * 处理异常码 02/03
+     *
+     * @param piece 失败的请求（分段或原任务）
+     * @return 学到的内容（用于日志），计划没有变化时返回 null
+     */
+    public synchronized String onException(ModbusTask piece, int code) {
+        ModbusTask[] current = pieces;
+        if (current == null ? piece != task : indexOf(current, piece) < 0) {
+            return null;
+        }
+        int start = piece.getStartAddr();
+        int count = piece.getCount();
+        if (count == 1) {
+            invalid.set(start - task.getStartAddr());
+            rebuild();
+            return "无效地址 " + start;
+        }
+        if (code == 3 && count < bad) {
+            bad = count;
+            if (good >= bad) {
+                // 设备前后表现不一致，之前的成功记录作废
+                good = 0;
+            }
+            maxBlock = good > 0 ? (good + bad) / 2 : Math.max(1, (bad + 1) / 2);
+            rebuild();
+            return "单次读取上限 " + maxBlock;
+        }
+        // 对半拆开失败的分段，下一轮分别读取
+        List<ModbusTask> next = new ArrayList<>();
+        if (current == null) {
+            current = new ModbusTask[]{task};
+        }
+        for (ModbusTask p : current) {
+            if (p == piece) {
+                int half = count / 2;
+                next.add(newPiece(start, half));
+                next.add(newPiece(start + half, count - half));
+            } else {
+                next.add(p);
+            }
+        }
+        pieces = next.toArray(new ModbusTask[0]);
+        return "拆分 " + start + "+" + count;
+    }
+
+    /**
+     * 采纳同设备其它任务学到的上限区间
+     */
+    private synchronized void adopt(int otherGood, int otherBad) {
+        if (otherBad >= bad && otherGood <= good) {
+            return;
+        }
+        bad = Math.min(bad, otherBad);
+        good = Math.min(Math.max(good, otherGood), bad - 1);
+        int limit = good > 0 ? (good + bad) / 2 : Math.max(1, (bad + 1) / 2);
+        if (limit != maxBlock) {
+            maxBlock = limit;
+            rebuild();
+        }
+    }
+
+    public boolean isBits() {
+        return bits;
+    }
+
+    public synchronized int getMaxBlock() {
+        return maxBlock;
+    }
+
+    /**
+     * 把学到的上限区间推给同设备的同类任务
+     */
+    public static void shareLimit(DeviceConfig device, ReadPlan source) {
+        int good;
+        int bad;
+        synchronized (source) {
+            good = source.good;
+            bad = source.bad;
+        }
+        for (ModbusTask other : device.getTasks()) {
+            ReadPlan plan = other.getPlan();
+            if (plan != null && plan != source && plan.bits == source.bits) {
+                plan.adopt(good, bad);
+            }
+        }
+    }
+
+    /**
+     * 是否学到过东西（只有这样的计划才需要持久化）
+     */
+    public synchronized boolean isLearned() {
+        return !invalid.isEmpty() || bad <= (bits ? MAX_BITS : MAX_REGISTERS) || pieces != null;
+    }
+
+    /**
+     * 按有效地址连续段与单次上限重排分段
+     */
+    private void rebuild() {
+        List<ModbusTask> next = new ArrayList<>();
+        int count = task.getCount();
+        int i = invalid.nextClearBit(0);
+        while (i < count) {
+            int end = invalid.nextSetBit(i);
+            if (end < 0 || end > count) {
+                end = count;
+            }
+            for (int s = i; s < end; s += maxBlock) {
+                next.add(newPiece(task.getStartAddr() + s, Math.min(maxBlock, end - s)));
+            }
+            i = invalid.nextClearBit(end);
+        }
+        if (next.size() == 1 && next.get(0).getCount() == count) {
+            pieces = null;
+        } else {
+            pieces = next.toArray(new ModbusTask[0]);
+        }
+    }
+
+    private ModbusTask newPiece(int start, int count) {
+        ModbusTask piece = ModbusTask.builder()
+                .taskId(task.getTaskId())
+                .type(task.getType())
+                .startAddr(start)
+                .count(count)
+                .build();
+        piece.setParent(task);
+        piece.setPlan(this);
+        return piece;
+    }
+
+    private static int indexOf(ModbusTask[] pieces, ModbusTask piece) {
+        if (pieces == null) {
+            return -1;
+        }
+        for (int i = 0; i < pieces.length; i++) {
+            if (pieces[i] == piece) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 计划概况（REST 展示）
+     */
+    public synchronized Map<String, Object> describe() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("taskId", task.getTaskId());
+        map.put("range", task.getStartAddr() + "+" + task.getCount());
+        map.put("maxBlock", maxBlock);
+        map.put("limitConfirmed", maxBlock >= bad - 1);
+        List<Integer> bad = new ArrayList<>();
+        for (int i = invalid.nextSetBit(0); i >= 0; i = invalid.nextSetBit(i + 1)) {
+            bad.add(task.getStartAddr() + i);
+        }
+        map.put("invalid", bad);
+        List<String> requests = new ArrayList<>();
+        ModbusTask[] current = pieces;
+        if (current == null) {
+            requests.add(task.getStartAddr() + "+" + task.getCount());
+        } else {
+            for (ModbusTask p : current) {
+                requests.add(p.getStartAddr() + "+" + p.getCount());
+            }
+        }
+        map.put("requests", requests);
+        return map;
+    }
+
+    /**
+     * 写入快照：maxBlock(4) good(4) bad(4) invalidCount(4) [偏移(4)...] pieceCount(4, -1 为不分段) [start(4) count(4)...]
+     */
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeInt(maxBlock);
+        out.writeInt(good);
+        out.writeInt(bad);
+        out.writeInt(invalid.cardinality());
+        for (int i = invalid.nextSetBit(0); i >= 0; i = invalid.nextSetBit(i + 1)) {
+            out.writeInt(i);
+        }
+        ModbusTask[] current = pieces;
+        out.writeInt(current == null ? -1 : current.length);
+        if (current != null) {
+            for (ModbusTask p : current) {
+                out.writeInt(p.getStartAddr());
+                out.writeInt(p.getCount());
+            }
+        }
+    }
+
+    /**
+     * 从快照恢复任务的计划，格式见 {@link #writeTo(DataOutput)}
+     */
+    public static ReadPlan readFrom(ModbusTask task, ByteBuffer in) {
+        ReadPlan plan = new ReadPlan(task);
+        plan.maxBlock = in.getInt();
+        plan.good = in.getInt();
+        plan.bad = in.getInt();
+        int n = in.getInt();
+        for (int i = 0; i < n; i++) {
+            plan.invalid.set(in.getInt());
+        }
+        int pieceCount = in.getInt();
+        if (pieceCount >= 0) {
+            ModbusTask[] pieces = new ModbusTask[pieceCount];
+            for (int i = 0; i < pieceCount; i++) {
+                pieces[i] = plan.newPiece(in.getInt(), in.getInt());
+            }
+            plan.pieces = pieces;
+        }
+        return plan;
+    }
+}
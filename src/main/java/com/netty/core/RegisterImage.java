@@ -0,0 +1,220 @@
+package com.netty.core;
+
+import lombok.Getter;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-30 09:20
+ * {@code @description:}
+ * 单个设备的最新值镜像：线圈 / 离散输入 / 保持寄存器 / 输入寄存器 四张表，按 256 个地址一页按需分配。
+ * 更新时逐点比较，返回发生变化的下标，下游只写变化的字段。
+ */
+public final class RegisterImage {
+
+    public static final int COILS = 0;
+    public static final int DISCRETE_INPUTS = 1;
+    public static final int HOLDING_REGISTERS = 2;
+    public static final int INPUT_REGISTERS = 3;
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGES = 65536 >> PAGE_BITS;
+
+    @Getter
+    private final String deviceId;
+
+    // [表][页][页内偏移]：值与是否已写入
+    private final int[][][] values = new int[4][][];
+    private final boolean[][][] present = new boolean[4][][];
+
+    // 最近一次更新时间 (epoch ms)
+    @Getter
+    private volatile long updateTime;
+
+    public RegisterImage(String deviceId) {
+        this.deviceId = deviceId;
+        for (int t = 0; t < 4; t++) {
+            values[t] = new int[PAGES][];
+            present[t] = new boolean[PAGES][];
+        }
+    }
+
+    /**
+     * 功能码 -> 表（23 的响应是读回的保持寄存器），非读功能码返回 -1
+     */
+    public static int table(int fc) {
+        switch (fc) {
+            case 1:
+                return COILS;
+            case 2:
+                return DISCRETE_INPUTS;
+            case 3:
+            case 23:
+                return HOLDING_REGISTERS;
+            case 4:
+                return INPUT_REGISTERS;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * 写入一段寄存器值
+     *
+     * @param changed 调用方提供的下标缓冲（长度不小于 data.length），返回时前 n 个为变化点的下标
+     * @return 变化点个数 n
+     */
+    public synchronized int update(int table, int start, int[] data, int[] changed, long timestamp) {
+        int n = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (put(table, start + i, data[i]) && changed != null) {
+                changed[n++] = i;
+            }
+        }
+        updateTime = timestamp;
+        return n;
+    }
+
+    /**
+     * 写入一段位值（Boolean 按 0/1 存）
+     */
+    public synchronized int update(int table, int start, Object[] bits, int[] changed, long timestamp) {
+        int n = 0;
+        for (int i = 0; i < bits.length; i++) {
+            if (put(table, start + i, Boolean.TRUE.equals(bits[i]) ? 1 : 0) && changed != null) {
+                changed[n++] = i;
+            }
+        }
+        updateTime = timestamp;
+        return n;
+    }
+
+    private boolean put(int table, int address, int value) {
+        if (address < 0 || address > 0xFFFF) {
+            return false;
+        }
+        int page = address >> PAGE_BITS;
+        int offset = address & (PAGE_SIZE - 1);
+        int[] vp = values[table][page];
+        boolean[] pp = present[table][page];
+        if (vp == null) {
+            vp = values[table][page] = new int[PAGE_SIZE];
+            pp = present[table][page] = new boolean[PAGE_SIZE];
+        }
+        if (pp[offset] && vp[offset] == value) {
+            return false;
+        }
+        vp[offset] = value;
+        pp[offset] = true;
+        return true;
+    }
+
+    /**
+     * 读取一段值到 out，任一地址从未写入过时返回 false
+     */
+    public synchronized boolean read(int table, int start, int count, int[] out) {
+        for (int i = 0; i < count; i++) {
+            int address = start + i;
+            if (address > 0xFFFF) {
+                return false;
+            }
+            int[] vp = values[table][address >> PAGE_BITS];
+            if (vp == null || !present[table][address >> PAGE_BITS][address & (PAGE_SIZE - 1)]) {
+                return false;
+            }
+            out[i] = vp[address & (PAGE_SIZE - 1)];
+        }
+        return true;
+    }
+
+    /**
+     * 读取单个地址，未写入过返回 0
+     */
+    public synchronized int value(int table, int address) {
+        int[] vp = values[table][(address & 0xFFFF) >> PAGE_BITS];
+        return vp == null ? 0 : vp[address & (PAGE_SIZE - 1)];
+    }
+
+    /**
+     * 作废一段地址（下游写入失败时调用），下次采样这些点会全部视为变化重新写出
+     */
+    public synchronized void invalidate(int table, int start, int count) {
+        for (int i = 0; i < count; i++) {
+            int address = start + i;
+            if (address > 0xFFFF) {
+                return;
+            }
+            boolean[] pp = present[table][address >> PAGE_BITS];
+            if (pp != null) {
+                pp[address & (PAGE_SIZE - 1)] = false;
+            }
+        }
+    }
+
+    /**
+     * 写入快照：updateTime，然后每张表 pageCount + [pageIndex(2) bitmap(32) 已写入点的值...]
+     */
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeLong(updateTime);
+        for (int t = 0; t < 4; t++) {
+            int pages = 0;
+            for (int p = 0; p < PAGES; p++) {
+                if (values[t][p] != null) {
+                    pages++;
+                }
+            }
+            out.writeShort(pages);
+            for (int p = 0; p < PAGES; p++) {
+                int[] vp = values[t][p];
+                if (vp == null) {
+                    continue;
+                }
+                boolean[] pp = present[t][p];
+                out.writeShort(p);
+                for (int i = 0; i < PAGE_SIZE; i += 8) {
+                    int bits = 0;
+                    for (int j = 0; j < 8; j++) {
+                        if (pp[i + j]) {
+                            bits |= 1 << j;
+                        }
+                    }
+                    out.writeByte(bits);
+                }
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    if (pp[i]) {
+                        out.writeInt(vp[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 从快照读取，格式见 {@link #writeTo(DataOutput)}
+     */
+    public static RegisterImage readFrom(String deviceId, ByteBuffer in) {
+        RegisterImage image = new RegisterImage(deviceId);
+        image.updateTime = in.getLong();
+        byte[] bitmap = new byte[PAGE_SIZE / 8];
+        for (int t = 0; t < 4; t++) {
+            int pages = in.getShort() & 0xFFFF;
+            for (int k = 0; k < pages; k++) {
+                int p = in.getShort() & 0xFFFF;
+                in.get(bitmap);
+                int[] vp = image.values[t][p] = new int[PAGE_SIZE];
+                boolean[] pp = image.present[t][p] = new boolean[PAGE_SIZE];
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    if ((bitmap[i >> 3] & (1 << (i & 7))) != 0) {
+                        pp[i] = true;
+                        vp[i] = in.getInt();
+                    }
+                }
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,272 @@
+package com.netty.core;
+
+import com.alibaba.fastjson.JSON;
+import com.netty.core.common.AlarmRule;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusTask;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-03 09:20
+ * {@code @description:}
+ * 运行状态快照：设备清单（含读任务、告警规则、聚合配置与学到的读取计划）与各设备的最新值镜像，写成紧凑的二进制文件。
+ * 写入先落临时文件再原子替换；启动时以只读内存映射加载，校验失败则忽略整个文件。
+ * <pre>
+ * 文件头: magic(4) version(4) createdAt(8) deviceCount(4)
+ * 设备:   deviceKey id site ip port(4) slaveId(1) interval(4) syncGroup timeout(4) timeoutTick(4)
+ *         weight(4) connections(4) priority(4) cycleSnapshot(1) cycleDeadline(4) proxyUnitId(4) taskCount(4) [任务...]
+ *         hasImage(1) [镜像]
+ * 任务:   taskId type(4) startAddr(4) count(4) writeValues writeAddr(4) rulesJson aggregateWindow(8) publishRaw(1)
+ *         hasPlan(1) [学到的读取计划，见 ReadPlan.writeTo]
+ * 文件尾: crc32(8)，覆盖文件头到最后一个设备
+ * 字符串: len(2) + UTF-8，len = 0xFFFF 表示 null；int 数组: len(4) + 值，-1 表示 null
+ * </pre>
+ */
+public final class StateSnapshot {
+
+    private static final int MAGIC = 0x4D534E50; // "MSNP"
+    private static final int VERSION = 6;
+    private static final int NULL_STRING = 0xFFFF;
+
+    private final long createdAt;
+    // Key: deviceKey，保持写入时的顺序
+    private final Map<String, DeviceConfig> devices;
+    private final Map<String, RegisterImage> images;
+
+    private StateSnapshot(long createdAt, Map<String, DeviceConfig> devices, Map<String, RegisterImage> images) {
+        this.createdAt = createdAt;
+        this.devices = devices;
+        this.images = images;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<DeviceConfig> getDevices() {
+        return new ArrayList<>(devices.values());
+    }
+
+    /**
+     * Key: deviceKey (ip:port:slaveId)
+     */
+    public Map<String, RegisterImage> getImages() {
+        return images;
+    }
+
+    /**
+     * 写快照；images 中没有的设备不写镜像
+     *
+     * @return 文件大小
+     */
+    public static long write(Path file, Map<String, DeviceConfig> devices, Map<String, RegisterImage> images)
+            throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(os, crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(devices.size());
+            for (Map.Entry<String, DeviceConfig> entry : devices.entrySet()) {
+                writeDevice(out, entry.getKey(), entry.getValue());
+                RegisterImage image = images.get(entry.getKey());
+                out.writeBoolean(image != null);
+                if (image != null) {
+                    image.writeTo(out);
+                }
+            }
+            out.flush();
+            // 校验值不计入自身
+            new DataOutputStream(os).writeLong(crc.getValue());
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(file);
+    }
+
+    private static void writeDevice(DataOutputStream out, String key, DeviceConfig device) throws IOException {
+        writeString(out, key);
+        writeString(out, device.getId());
+        writeString(out, device.getSite());
+        writeString(out, device.getIp());
+        out.writeInt(device.getPort());
+        out.writeByte(device.getSlaveId());
+        out.writeInt(device.getInterval());
+        writeString(out, device.getSyncGroup());
+        out.writeInt(device.getTimeout());
+        out.writeInt(device.getTimeoutTick());
+        out.writeInt(device.getWeight());
+        out.writeInt(device.getConnections());
+        out.writeInt(device.getPriority());
+        out.writeBoolean(device.isCycleSnapshot());
+        out.writeInt(device.getCycleDeadline());
+        out.writeInt(device.getProxyUnitId());
+        List<ModbusTask> tasks = device.getTasks();
+        out.writeInt(tasks == null ? -1 : tasks.size());
+        if (tasks == null) {
+            return;
+        }
+        for (ModbusTask task : tasks) {
+            writeString(out, task.getTaskId());
+            out.writeInt(task.getType());
+            out.writeInt(task.getStartAddr());
+            out.writeInt(task.getCount());
+            int[] values = task.getWriteValues();
+            out.writeInt(values == null ? -1 : values.length);
+            if (values != null) {
+                for (int v : values) {
+                    out.writeInt(v);
+                }
+            }
+            out.writeInt(task.getWriteAddr());
+            // 规则字段多且少见，直接存 JSON
+            writeString(out, task.getRules() == null ? null : JSON.toJSONString(task.getRules()));
+            out.writeLong(task.getAggregateWindow());
+            out.writeBoolean(task.isPublishRaw());
+            ReadPlan plan = task.getPlan();
+            boolean learned = plan != null && plan.isLearned();
+            out.writeBoolean(learned);
+            if (learned) {
+                plan.writeTo(out);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeShort(NULL_STRING);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            throw new IOException("String too long for snapshot: " + bytes.length);
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * 以只读内存映射加载快照
+     *
+     * @throws IOException 文件不存在、格式或校验不符
+     */
+    public static StateSnapshot load(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file)) {
+            long size = ch.size();
+            if (size < 28 || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size: " + size);
+            }
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int bodyLength = (int) size - 8;
+            CRC32 crc = new CRC32();
+            // 经 ByteBuffer/Buffer 调用：JDK 9+ 编译时不绑定 Java 8 上不存在的协变重载
+            ByteBuffer body = ((ByteBuffer) buf).duplicate();
+            ((Buffer) body).limit(bodyLength);
+            crc.update(body);
+            if (crc.getValue() != buf.getLong(bodyLength)) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            long createdAt = buf.getLong();
+            int count = buf.getInt();
+            Map<String, DeviceConfig> devices = new LinkedHashMap<>(count * 4 / 3 + 1);
+            Map<String, RegisterImage> images = new LinkedHashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                String key = readString(buf);
+                DeviceConfig device = readDevice(buf);
+                devices.put(key, device);
+                if (buf.get() != 0) {
+                    images.put(key, RegisterImage.readFrom(device.getId(), buf));
+                }
+            }
+            return new StateSnapshot(createdAt, devices, images);
+        }
+    }
+
+    private static DeviceConfig readDevice(ByteBuffer in) {
+        DeviceConfig device = new DeviceConfig();
+        device.setId(readString(in));
+        device.setSite(readString(in));
+        device.setIp(readString(in));
+        device.setPort(in.getInt());
+        device.setSlaveId(in.get());
+        device.setInterval(in.getInt());
+        device.setSyncGroup(readString(in));
+        device.setTimeout(in.getInt());
+        device.setTimeoutTick(in.getInt());
+        device.setWeight(in.getInt());
+        device.setConnections(in.getInt());
+        device.setPriority(in.getInt());
+        device.setCycleSnapshot(in.get() != 0);
+        device.setCycleDeadline(in.getInt());
+        device.setProxyUnitId(in.getInt());
+        int taskCount = in.getInt();
+        if (taskCount < 0) {
+            return device;
+        }
+        List<ModbusTask> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            ModbusTask task = new ModbusTask();
+            task.setTaskId(readString(in));
+            task.setType(in.getInt());
+            task.setStartAddr(in.getInt());
+            task.setCount(in.getInt());
+            int n = in.getInt();
+            if (n >= 0) {
+                int[] values = new int[n];
+                for (int j = 0; j < n; j++) {
+                    values[j] = in.getInt();
+                }
+                task.setWriteValues(values);
+            }
+            task.setWriteAddr(in.getInt());
+            String rules = readString(in);
+            if (rules != null) {
+                task.setRules(JSON.parseArray(rules, AlarmRule.class));
+            }
+            task.setAggregateWindow(in.getLong());
+            task.setPublishRaw(in.get() != 0);
+            if (in.get() != 0) {
+                task.setPlan(ReadPlan.readFrom(task, in));
+            }
+            tasks.add(task);
+        }
+        device.setTasks(tasks);
+        return device;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int len = in.getShort() & 0xFFFF;
+        if (len == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
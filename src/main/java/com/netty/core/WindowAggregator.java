@@ -0,0 +1,143 @@
+package com.netty.core;
+
+import com.netty.core.common.AggregateResult;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusTask;
+
+import java.util.Arrays;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-29 09:50
+ * {@code @description:}
+ * 单个任务的滚动窗口聚合：每个点位一组基本类型累加器（min/max/sum/last），窗口内逐样本累加不分配对象。
+ * 窗口按墙钟对齐（windowStart 为窗口长度的整数倍），收到落在下一窗口的样本时结算并返回上一窗口的结果；
+ * 下一样本迟迟不来（设备停止、熔断、移除）时由定时清扫或停止时的 flush 结算。
+ */
+public final class WindowAggregator {
+
+    private final long window;
+
+    private int[] min = new int[0];
+    private int[] max = new int[0];
+    private long[] sum = new long[0];
+    private int[] last = new int[0];
+    private int points;
+    private int count;
+    private long windowStart = -1;
+
+    public WindowAggregator(long window) {
+        this.window = window;
+    }
+
+    /**
+     * 为设备上配置了聚合窗口的任务挂上聚合器（设备同步时调用）
+     */
+    public static void attach(DeviceConfig device) {
+        if (device.getTasks() == null) {
+            return;
+        }
+        for (ModbusTask task : device.getTasks()) {
+            task.setAggregator(task.getAggregateWindow() > 0 ? new WindowAggregator(task.getAggregateWindow()) : null);
+        }
+    }
+
+    /**
+     * 累加一帧寄存器值，跨窗口时返回已结算的上一窗口，否则返回 null
+     */
+    public synchronized AggregateResult add(int[] registers, long timestamp) {
+        AggregateResult closed = roll(timestamp, registers.length);
+        for (int i = 0; i < points; i++) {
+            accumulate(i, registers[i]);
+        }
+        count++;
+        return closed;
+    }
+
+    /**
+     * 累加一帧位值（按 0/1 统计，avg 即为置位比例）
+     */
+    public synchronized AggregateResult add(Object[] bits, long timestamp) {
+        AggregateResult closed = roll(timestamp, bits.length);
+        for (int i = 0; i < points; i++) {
+            accumulate(i, Boolean.TRUE.equals(bits[i]) ? 1 : 0);
+        }
+        count++;
+        return closed;
+    }
+
+    /**
+     * 结算已到结束时间、但还没被下一样本结算的窗口，没有时返回 null
+     *
+     * @param now 当前时间 (epoch ms)，Long.MAX_VALUE 表示不论是否到期都结算（设备停止时）
+     */
+    public synchronized AggregateResult flush(long now) {
+        if (count == 0 || now < windowStart + window) {
+            return null;
+        }
+        AggregateResult closed = snapshot();
+        count = 0;
+        return closed;
+    }
+
+    private void accumulate(int i, int v) {
+        if (count == 0) {
+            min[i] = v;
+            max[i] = v;
+        } else {
+            if (v < min[i]) {
+                min[i] = v;
+            }
+            if (v > max[i]) {
+                max[i] = v;
+            }
+        }
+        sum[i] += v;
+        last[i] = v;
+    }
+
+    /**
+     * 样本落入新窗口时结算旧窗口并清零；点位数变化（从站返回长度变化）时同样结算后重建累加器
+     */
+    private AggregateResult roll(long timestamp, int n) {
+        long start = timestamp - Math.floorMod(timestamp, window);
+        AggregateResult closed = null;
+        if (count > 0 && (start != windowStart || n != points)) {
+            closed = snapshot();
+        }
+        if (start != windowStart || n != points) {
+            windowStart = start;
+            count = 0;
+        }
+        if (n != points) {
+            min = new int[n];
+            max = new int[n];
+            sum = new long[n];
+            last = new int[n];
+            points = n;
+        } else if (count == 0) {
+            Arrays.fill(sum, 0L);
+        }
+        return closed;
+    }
+
+    private AggregateResult snapshot() {
+        AggregateResult result = new AggregateResult();
+        result.setWindowStart(windowStart);
+        result.setWindowEnd(windowStart + window);
+        result.setCount(count);
+        result.setMin(Arrays.copyOf(min, points));
+        result.setMax(Arrays.copyOf(max, points));
+        result.setLast(Arrays.copyOf(last, points));
+        double[] avg = new double[points];
+        for (int i = 0; i < points; i++) {
+            avg[i] = (double) sum[i] / count;
+        }
+        result.setAvg(avg);
+        return result;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+}
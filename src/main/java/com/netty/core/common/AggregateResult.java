@@ -0,0 +1,43 @@
+package com.netty.core.common;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-29 09:40
+ * {@code @description:}
+ * 单个任务在一个滚动窗口内的统计结果，数组下标与任务读取结果一一对应
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AggregateResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String deviceId;
+
+    private int slaveId;
+
+    private int fc;
+
+    private String taskId;
+
+    // 窗口区间 [windowStart, windowEnd) (epoch ms)，按墙钟对齐
+    private long windowStart;
+
+    private long windowEnd;
+
+    // 窗口内样本数
+    private int count;
+
+    private int[] min;
+
+    private int[] max;
+
+    private double[] avg;
+
+    private int[] last;
+}
@@ -0,0 +1,45 @@
+package com.netty.core.common;
+
+import lombok.Data;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-28 09:15
+ * {@code @description:}
+ * 单个点位的告警规则，挂在 ModbusTask 上，offset 为该点在任务读取结果中的下标。
+ * 点位值 = 原始值(signed 时按 int16 解释) * scale；bit 规则直接比较原始值。
+ */
+@Data
+public class AlarmRule {
+    // 规则名称，告警事件中原样带出
+    private String name;
+
+    // threshold: 越限；rate: 变化率(每秒)超限；bit: 位模式匹配；hysteresis: 带回差的越限
+    private String type;
+
+    // 点位在结果数组中的下标
+    private int offset;
+
+    // INFO / WARN / CRITICAL
+    private String severity = "WARN";
+
+    // 原始值是否按有符号 int16 解释
+    private boolean signed;
+
+    // 工程量换算系数
+    private double scale = 1;
+
+    // threshold / hysteresis 的上下限，为空表示不判断该方向
+    private Double high;
+    private Double low;
+
+    // hysteresis 的回差：越限后回到 (high - deadband, low + deadband) 之内才恢复
+    private double deadband;
+
+    // rate 的每秒最大变化量
+    private double maxRate;
+
+    // bit：(原始值 & mask) == expected 时告警
+    private int mask;
+    private int expected;
+}
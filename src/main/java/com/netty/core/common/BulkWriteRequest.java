@@ -0,0 +1,47 @@
+package com.netty.core.common;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-13 09:40
+ * {@code @description:}
+ * 批量写入请求（设定值下发）：deviceKeys 中的每个设备都写入同一组 address/values，
+ * writes 中按设备单独指定；两者可同时使用。
+ */
+@Data
+public class BulkWriteRequest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // ip:port:slaveId，统一写入 address/values
+    private List<String> deviceKeys;
+
+    private int address;
+
+    private int[] values;
+
+    // 按设备单独指定的写入
+    private List<Item> writes;
+
+    // 写入后读回比对（设备支持时用功能码 23 一次往返）
+    private boolean verify;
+
+    // 同时在途的设备写入数，<=0 使用默认值
+    private int concurrency;
+
+    @Data
+    public static class Item implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String deviceKey;
+
+        private int address;
+
+        private int[] values;
+    }
+}
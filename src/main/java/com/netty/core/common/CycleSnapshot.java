@@ -0,0 +1,60 @@
+package com.netty.core.common;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-04 09:20
+ * {@code @description:}
+ * 一个设备一次轮询的合并结果：本轮所有读任务的结果放在一条消息里，附带轮次与完整性标记，
+ * 消费端不必再按任务拼装，也能直接判断本轮是否齐全。
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CycleSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // 所有任务都已返回（成功或失败）
+    public static final String COMPLETE = "COMPLETE";
+    // 截止时间到仍有任务未返回
+    public static final String DEADLINE = "DEADLINE";
+    // 下一轮已开始，本轮被提前结算
+    public static final String SUPERSEDED = "SUPERSEDED";
+
+    private String deviceId;
+
+    private int slaveId;
+
+    // 设备内单调递增的轮次号
+    private long cycleId;
+
+    // 本轮计划采样时间 (epoch ms)
+    private long scheduledTime;
+
+    // 结算时间 (epoch ms)
+    private long timestamp;
+
+    // 所有任务都成功返回
+    private boolean complete;
+
+    // COMPLETE / DEADLINE / SUPERSEDED
+    private String closeReason;
+
+    private int expected;
+
+    private int received;
+
+    // 成功返回的任务结果（带 taskId），顺序与任务配置一致
+    private List<ModbusResult> results;
+
+    // 未返回的任务
+    private List<String> missing;
+
+    // 失败的任务（超时、异常码、链路错误）
+    private List<String> failed;
+}
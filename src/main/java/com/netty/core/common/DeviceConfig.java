@@ -1,6 +1,11 @@
 package com.netty.core.common;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.netty.core.PollCycle;
+import com.netty.core.RegisterImage;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.util.List;
 
@@ -13,11 +18,67 @@ import java.util.List;
 public class DeviceConfig {
     // 逻辑ID
     private String id;
+    // 站点 / 租户：同一站点的设备共用一个隔离分区（IO 线程、调度线程、建连限流），为空使用默认分区
+    private String site;
     private String ip;
     private int port;
     private byte slaveId;
     // 轮询间隔(ms)
     private int interval;
+    // 对齐采样组：同组同周期的设备在相同的墙钟边界上触发，为空则随机错峰启动
+    private String syncGroup;
+    // 响应超时(ms)，<=0 时使用全局 readTimeout
+    private int timeout;
+    // 超时扫描精度(ms)，<=0 时使用全局 timeoutTick；同一连接取最细精度
+    private int timeoutTick;
+    // 共享网关时的调度权重，<=0 视为 1
+    private int weight;
+    // 该端点的并发会话数，<=0 时使用全局 connectionsPerEndpoint（以端点首个设备为准）
+    private int connections;
+    // 轮询优先级，越大越重要；背压时低优先级设备先降频，>=3 不降频
+    private int priority;
+
+    // 按轮次合并输出：一次轮询的所有读任务结果合成一条 CycleSnapshot，替代逐任务输出
+    private boolean cycleSnapshot;
+    // 轮次截止时间(ms，相对计划采样时间)，到时仍未返回的任务标记为缺失；<=0 时取 interval
+    private int cycleDeadline;
+
+    // 代理模式下对外暴露的 unitId（1-247），<=0 不对外暴露
+    private int proxyUnitId;
 
     private List<ModbusTask> tasks;
+
+    // 最新值镜像，设备同步时由 LastValueCache 挂上
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient RegisterImage image;
+
+    // 轮次收集器，设备同步时由 PollCycle.attach 挂上
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient PollCycle cycle;
+
+    // 设备对功能码 23 回过 01（非法功能），之后先写后读改为 16 + 03 两次请求
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient volatile boolean readWriteUnsupported;
+
+    // 以下由 DeviceRegistry 编译时写入：deviceKey (ip:port:slaveId)、设备句柄与端点句柄，未登记的设备为 null / -1
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient String key;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient int handle = -1;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient int endpoint = -1;
 }
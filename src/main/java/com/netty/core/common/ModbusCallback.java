@@ -0,0 +1,23 @@
+package com.netty.core.common;
+
+import com.netty.core.ModbusFrame;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-20 10:12
+ * {@code @description:}
+ * 请求完成回调，替代 CompletableFuture 链。两个方法都在连接的 EventLoop 线程上调用，
+ * 返回后 request 与 response 会被回收，实现方不得在方法外继续持有它们。
+ */
+public interface ModbusCallback {
+
+    /**
+     * 收到匹配的响应（包括功能码 > 0x80 的异常响应）
+     */
+    void onResponse(QueuedTask request, ModbusFrame response);
+
+    /**
+     * 请求失败（超时、连接断开等）
+     */
+    void onFailure(QueuedTask request, Throwable cause);
+}
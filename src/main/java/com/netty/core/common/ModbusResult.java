@@ -1,25 +1,44 @@
 package com.netty.core.common;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
-import java.util.List;
+import java.io.Serializable;
 
 /**
  * {@code @author:} TaiHuLake
  * {@code @date:} 2026-01-11 23:27
  * {@code @description:}
+ * 单次响应的解析结果，替代原先逐条 put 的 HashMap（字段名与原 Map 的 key 保持一致）
  */
 @Data
-public class ModbusResult {
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ModbusResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String deviceId;
 
     private int slaveId;
 
     private int fc;
 
+    private String taskId;
+
+    // 接收时间 (epoch ms)，由 receiveTime 换算
     private long timestamp;
 
-    private String deviceId;
+    // 计划采样时间 (epoch ms)，对齐模式下为墙钟边界
+    private long scheduledTime;
+
+    // 请求写出 / 响应解码时间 (epoch ns)，由 nanoTime 换算，同节点内单调可比
+    private long sendTime;
+
+    private long receiveTime;
+
+    // 03/04 为 int[] 寄存器值，01/02 为 Boolean[] 位值
+    private Object values;
 
-//    private int[] values;
-    private List<Integer> values;
+    // 写入类响应原样输出的十六进制载荷
+    private String raw;
 }
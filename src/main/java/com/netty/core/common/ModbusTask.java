@@ -1,9 +1,12 @@
 package com.netty.core.common;
 
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.netty.core.ReadPlan;
+import com.netty.core.WindowAggregator;
+import com.netty.rule.RuleSet;
+import lombok.*;
+
+import java.util.List;
 
 /**
  * {@code @author:} TaiHuLake
@@ -18,7 +21,7 @@ public class ModbusTask {
     // 任务唯一标识
     private String taskId;
 
-    // 功能码: 3-读寄存器, 6-写单个, 16-写多个, 1-读线圈
+    // 功能码: 3-读寄存器, 6-写单个, 16-写多个, 1-读线圈, 23-先写后读
     private int type;
 
     // 起始地址
@@ -30,8 +33,49 @@ public class ModbusTask {
     // 如果是写操作，存储待写入的数值
     private int[] writeValues;
 
+    // 功能码 23 的写入起始地址（startAddr/count 为读取区段）
+    private int writeAddr;
+
+    // 点位告警规则（仅读任务），设备同步时编译为 ruleSet
+    private List<AlarmRule> rules;
+
+    // 编译后的规则求值器，携带各点位的告警状态
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient RuleSet ruleSet;
+
+    // 聚合窗口(ms)：>0 时按墙钟对齐的滚动窗口输出 min/max/avg/last/count，替代逐条输出
+    private long aggregateWindow;
+
+    // 开启聚合后是否仍输出原始数据（走独立的 raw 路由键）
+    private boolean publishRaw;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient WindowAggregator aggregator;
+
+    // 读任务的实际请求计划（异常码自学习的拆分与上限），设备同步时挂上
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient ReadPlan plan;
+
+    // 计划拆出的分段指向配置里的原任务，原任务为 null
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient ModbusTask parent;
+
     // 快速构造读取任务
     public static ModbusTask read(int startAddr, int count) {
         return ModbusTask.builder().type(3).startAddr(startAddr).count(count).build();
     }
+
+    // 快速构造先写后读任务（功能码 23）
+    public static ModbusTask readWrite(int writeAddr, int[] values, int readAddr, int readCount) {
+        return ModbusTask.builder().type(23).writeAddr(writeAddr).writeValues(values)
+                .startAddr(readAddr).count(readCount).build();
+    }
 }
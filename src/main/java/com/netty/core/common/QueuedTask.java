@@ -1,16 +1,77 @@
 package com.netty.core.common;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import com.netty.manager.ChannelTaskCoordinator;
+import io.netty.util.Recycler;
+import lombok.Getter;
+import lombok.Setter;
 
 /**
  * {@code @author:} TaiHuLake
  * {@code @date:} 2026-01-11 22:18
  * {@code @description:}
+ * 单次请求的上下文（对象池复用）：从 pollDevice 创建，经 Coordinator 排队、发送、匹配回包，
+ * 回调完成后由 Coordinator 调用 {@link #recycle()} 归还，稳态轮询不再逐次分配。
  */
-@Data
-@AllArgsConstructor
-public class QueuedTask {
+@Getter
+@Setter
+public final class QueuedTask implements Runnable {
+
+    private static final Recycler<QueuedTask> RECYCLER = new Recycler<QueuedTask>() {
+        @Override
+        protected QueuedTask newObject(Handle<QueuedTask> handle) {
+            return new QueuedTask(handle);
+        }
+    };
+
+    private final Recycler.Handle<QueuedTask> handle;
+
     private DeviceConfig device;
     private ModbusTask task;
+    private ModbusCallback callback;
+
+    // 所属协调器，入队时设置，用于在 EventLoop 上完成入队
+    private ChannelTaskCoordinator coordinator;
+    // 事务ID，发送时分配
+    private int transactionId;
+    // 截止时间(nanoTime)
+    private long deadline;
+    // 入队时间(nanoTime)，用于统计排队等待
+    private long enqueueTime;
+    // 计划采样时间(epoch ms)，对齐模式下为墙钟边界
+    private long scheduledTime;
+    // 写出时间(nanoTime)
+    private long sendTime;
+
+    private QueuedTask(Recycler.Handle<QueuedTask> handle) {
+        this.handle = handle;
+    }
+
+    public static QueuedTask newInstance(DeviceConfig device, ModbusTask task, ModbusCallback callback) {
+        QueuedTask qTask = RECYCLER.get();
+        qTask.device = device;
+        qTask.task = task;
+        qTask.callback = callback;
+        return qTask;
+    }
+
+    /**
+     * 在协调器的 EventLoop 上执行入队，复用自身作为投递任务，避免额外的 Runnable 分配
+     */
+    @Override
+    public void run() {
+        coordinator.offerLocal(this);
+    }
+
+    public void recycle() {
+        device = null;
+        task = null;
+        callback = null;
+        coordinator = null;
+        transactionId = 0;
+        deadline = 0;
+        enqueueTime = 0;
+        scheduledTime = 0;
+        sendTime = 0;
+        handle.recycle(this);
+    }
 }
@@ -1,6 +1,7 @@
 package com.netty.core.handler;
 
 import com.netty.core.ModbusFrame;
+import com.netty.jfr.ModbusEvents;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
@@ -11,13 +12,29 @@ import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
  * {@code @description:}
  */
 public class ModbusDecoder extends LengthFieldBasedFrameDecoder {
+
+    // 最大包长
+    public static final int MAX_FRAME_LENGTH = 1024;
+
     // 参数说明：最大包长1024, 长度字段偏移量4, 长度字段2字节, 修正0, 跳过0字节直接读
     public ModbusDecoder() {
-        super(1024, 4, 2, 0, 0);
+        super(MAX_FRAME_LENGTH, 4, 2, 0, 0);
+    }
+
+    /**
+     * 只按 MBAP 长度切帧、不解析的解码器，放在需要逐帧查看原始字节的 Handler（如抓包）之前
+     */
+    public static LengthFieldBasedFrameDecoder framer() {
+        return new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 4, 2, 0, 0);
     }
 
     @Override
     protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        ModbusEvents.Decoded event = null;
+        if (ModbusEvents.DECODED.isEnabled()) {
+            event = new ModbusEvents.Decoded();
+            event.begin();
+        }
         ByteBuf frame = (ByteBuf) super.decode(ctx, in);
         if (frame == null) {
             return null;
@@ -30,9 +47,19 @@ public class ModbusDecoder extends LengthFieldBasedFrameDecoder {
             byte uid = frame.readByte();
             byte fc = frame.readByte();
 
-            byte[] payload = new byte[frame.readableBytes()];
-            frame.readBytes(payload);
-            return new ModbusFrame(tid, pid, uid, fc, payload);
+            // 使用池化帧，由 ModbusResponseHandler 在分发完成后回收
+            ModbusFrame msg = ModbusFrame.newInstance(tid, pid, uid, fc, frame.readableBytes());
+            frame.readBytes(msg.getPayload());
+            msg.markReceived(System.nanoTime());
+            if (event != null) {
+                event.endpoint = ModbusEvents.endpoint(ctx.channel());
+                event.transactionId = tid & 0xFFFF;
+                event.functionCode = fc & 0xFF;
+                event.unitId = uid & 0xFF;
+                event.length = len + 6;
+                event.commit();
+            }
+            return msg;
         } finally {
             frame.release();
         }
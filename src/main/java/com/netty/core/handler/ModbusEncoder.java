@@ -1,6 +1,9 @@
 package com.netty.core.handler;
 
 import com.netty.core.ModbusFrame;
+import com.netty.core.common.ModbusTask;
+import com.netty.core.common.QueuedTask;
+import com.netty.util.ModbusProtocolUtils;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
@@ -9,16 +12,72 @@ import io.netty.handler.codec.MessageToByteEncoder;
  * {@code @author:} TaiHuLake
  * {@code @date:} 2026-01-11 20:53
  * {@code @description:}
+ * 支持两种出站消息：完整的 {@link ModbusFrame}，以及请求上下文 {@link QueuedTask}
+ * （直接把 MBAP 头与 PDU 写进 ByteBuf，不再构建中间 byte[] 和 Frame 对象）
  */
-public class ModbusEncoder extends MessageToByteEncoder<ModbusFrame> {
+public class ModbusEncoder extends MessageToByteEncoder<Object> {
+
+    @Override
+    public boolean acceptOutboundMessage(Object msg) {
+        return msg instanceof ModbusFrame || msg instanceof QueuedTask;
+    }
+
     @Override
-    protected void encode(ChannelHandlerContext ctx, ModbusFrame msg, ByteBuf out) {
-        out.writeShort(msg.getTransactionId());
-        out.writeShort(msg.getProtocolId());
+    protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) {
+        if (msg instanceof QueuedTask) {
+            encodeRequest((QueuedTask) msg, out);
+            return;
+        }
+        ModbusFrame frame = (ModbusFrame) msg;
+        out.writeShort(frame.getTransactionId());
+        out.writeShort(frame.getProtocolId());
         // Length = UnitId(1) + FunctionCode(1) + Payload(n)
-        out.writeShort(2 + msg.getPayload().length);
-        out.writeByte(msg.getUnitId());
-        out.writeByte(msg.getFunctionCode());
-        out.writeBytes(msg.getPayload());
+        out.writeShort(2 + frame.getPayload().length);
+        out.writeByte(frame.getUnitId());
+        out.writeByte(frame.getFunctionCode());
+        out.writeBytes(frame.getPayload());
+    }
+
+    private void encodeRequest(QueuedTask qTask, ByteBuf out) {
+        ModbusTask task = qTask.getTask();
+        out.writeShort(qTask.getTransactionId());
+        out.writeShort(0);
+        // 长度字段先占位，PDU 写完后回填
+        int lengthIndex = out.writerIndex();
+        out.writeShort(0);
+        out.writeByte(qTask.getDevice().getSlaveId());
+        out.writeByte(task.getType());
+        buildPdu(task, out);
+        out.setShort(lengthIndex, out.writerIndex() - lengthIndex - 2);
+    }
+
+    // 适配各功能码的 PDU 构建
+    private void buildPdu(ModbusTask task, ByteBuf out) {
+        switch (task.getType()) {
+            case 1:
+            case 2:
+            case 3:
+            case 4:
+                ModbusProtocolUtils.writeReadPDU(out, task.getStartAddr(), task.getCount());
+                break;
+            case 5:
+                ModbusProtocolUtils.writeWriteSingleCoil(out, task.getStartAddr(), task.getWriteValues()[0] == 1);
+                break;
+            case 6:
+                ModbusProtocolUtils.writeWriteSingleRegister(out, task.getStartAddr(), task.getWriteValues()[0]);
+                break;
+            case 16:
+                int[] vals = (task.getWriteValues() != null) ? task.getWriteValues() : new int[0];
+                ModbusProtocolUtils.writeWriteMultipleRegisters(out, task.getStartAddr(), vals);
+                break;
+            case 23:
+                // startAddr/count 为读取区段，writeAddr/writeValues 为写入区段
+                ModbusProtocolUtils.writeReadWriteMultipleRegisters(out, task.getStartAddr(), task.getCount(),
+                        task.getWriteAddr(), task.getWriteValues());
+                break;
+            default:
+                // 默认兜底读取逻辑
+                ModbusProtocolUtils.writeReadPDU(out, task.getStartAddr(), Math.max(1, task.getCount()));
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,12 @@
 package com.netty.core.handler;
 
 import com.netty.core.ModbusFrame;
+import com.netty.jfr.ModbusEvents;
+import com.netty.manager.ChannelTaskCoordinator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
  * {@code @author:} TaiHuLake
  * {@code @date:} 2026-01-11 21:02
@@ -17,32 +15,32 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 public class ModbusResponseHandler extends SimpleChannelInboundHandler<ModbusFrame> {
 
-    // 全局静态映射表：Key = TransactionId
-    public static final Map<Short, CompletableFuture<ModbusFrame>> futures = new ConcurrentHashMap<>();
-
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, ModbusFrame msg) {
-        // 收到响应，根据事务ID找到对应的 Future 并唤醒
-        CompletableFuture<ModbusFrame> future = futures.remove(msg.getTransactionId());
-        if (future != null) {
-            future.complete(msg);
+        // 收到响应，交给该连接自己的协调器按事务ID匹配在途请求
+        ChannelTaskCoordinator coordinator = ctx.channel().attr(ChannelTaskCoordinator.COORDINATOR).get();
+        ModbusEvents.Matched event = null;
+        if (ModbusEvents.MATCHED.isEnabled()) {
+            event = new ModbusEvents.Matched();
+            event.begin();
+            // 帧在回调后回收，先取出需要的字段
+            event.deviceKey = ModbusEvents.endpoint(ctx.channel()) + ":" + (msg.getUnitId() & 0xFF);
+            event.transactionId = msg.getTransactionId() & 0xFFFF;
+            event.functionCode = msg.getFunctionCode() & 0xFF;
+        }
+        try {
+            long roundTrip = coordinator != null ? coordinator.onResponse(msg) : -1;
+            if (event != null) {
+                event.matched = roundTrip >= 0;
+                event.roundTrip = roundTrip;
+                event.commit();
+            }
+        } finally {
+            // 回调是同步执行的，返回后帧即可归还对象池
+            msg.recycle();
         }
     }
 
-//    @Override
-//    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-//        InetSocketAddress add = (InetSocketAddress) ctx.channel().remoteAddress();
-//        Integer port = add.getPort();
-//        String ip = add.getAddress().getHostAddress();
-//        if (msg instanceof ModbusFrame) {
-////            log.info("\n  {}:{}【成功解析对象】: \n {}", ip, port, msg);
-//            System.out.println(ip + ":" + port + " 【成功解析对象】: " + msg);
-//        } else if (msg instanceof ByteBuf) {
-//            log.info("\n {}:{}【收到原始字节】: \n {}", ip, port, ByteBufUtil.hexDump((ByteBuf) msg));
-//        }
-//        super.channelRead(ctx, msg);
-//    }
-
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         cause.printStackTrace();
@@ -0,0 +1,144 @@
+package com.netty.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-26 14:10
+ * {@code @description:}
+ * 读取 JFR 录制文件，输出 Modbus 各阶段的延迟分布（count / avg / p50 / p90 / p99 / max）。
+ * 用法：java -cp app.jar com.netty.jfr.JfrLatencyAnalyzer modbus.jfr [--by-device]
+ */
+public class JfrLatencyAnalyzer {
+
+    private static final String PREFIX = "com.netty.modbus.";
+
+    // 阶段名 -> 样本(ns)，按名称排序输出
+    private final Map<String, Samples> stages = new TreeMap<>();
+    private final boolean byDevice;
+
+    public JfrLatencyAnalyzer(boolean byDevice) {
+        this.byDevice = byDevice;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: JfrLatencyAnalyzer <recording.jfr> [--by-device]");
+            System.exit(1);
+        }
+        boolean byDevice = args.length > 1 && "--by-device".equals(args[1]);
+        JfrLatencyAnalyzer analyzer = new JfrLatencyAnalyzer(byDevice);
+        analyzer.analyze(Paths.get(args[0]));
+        analyzer.print();
+    }
+
+    public void analyze(Path recording) throws IOException {
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                String name = event.getEventType().getName();
+                if (!name.startsWith(PREFIX)) {
+                    continue;
+                }
+                accept(name.substring(PREFIX.length()), event);
+            }
+        }
+    }
+
+    private void accept(String type, RecordedEvent event) {
+        switch (type) {
+            case "PollScheduled":
+                record("1.poll.lateness", event, event.getDuration("lateness").toNanos());
+                break;
+            case "Sent":
+                record("2.queue.wait", event, event.getDuration("queueWait").toNanos());
+                break;
+            case "Decoded":
+                record("3.decode", event, event.getDuration().toNanos());
+                break;
+            case "Matched":
+                if (event.getBoolean("matched")) {
+                    record("4.round.trip", event, event.getDuration("roundTrip").toNanos());
+                    record("5.match+callback", event, event.getDuration().toNanos());
+                } else {
+                    record("4.unmatched", event, 0);
+                }
+                break;
+            case "Dispatched":
+                record("6.dispatch.parse", event, event.getDuration().toNanos());
+                break;
+            case "Sunk":
+                record("7.sink.write", event, event.getDuration().toNanos());
+                record("8.end.to.end", event, event.getDuration("endToEnd").toNanos());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void record(String stage, RecordedEvent event, long nanos) {
+        stages.computeIfAbsent(stage, k -> new Samples()).add(nanos);
+        if (byDevice && event.hasField("deviceKey")) {
+            String device = event.getString("deviceKey");
+            if (device != null) {
+                stages.computeIfAbsent(stage + " [" + device + "]", k -> new Samples()).add(nanos);
+            }
+        }
+    }
+
+    public void print() {
+        System.out.printf("%-48s %10s %12s %12s %12s %12s %12s%n",
+                "stage", "count", "avg(us)", "p50(us)", "p90(us)", "p99(us)", "max(us)");
+        for (Map.Entry<String, Samples> entry : stages.entrySet()) {
+            Samples s = entry.getValue();
+            s.sort();
+            System.out.printf("%-48s %10d %12.1f %12.1f %12.1f %12.1f %12.1f%n",
+                    entry.getKey(), s.size, s.avg() / 1000.0,
+                    s.percentile(0.50) / 1000.0, s.percentile(0.90) / 1000.0,
+                    s.percentile(0.99) / 1000.0, s.max() / 1000.0);
+        }
+    }
+
+    // 可增长的 long 样本数组
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+        private long sum;
+
+        private void add(long v) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = v;
+            sum += v;
+        }
+
+        private void sort() {
+            Arrays.sort(values, 0, size);
+        }
+
+        private double avg() {
+            return size == 0 ? 0 : (double) sum / size;
+        }
+
+        private long percentile(double p) {
+            if (size == 0) {
+                return 0;
+            }
+            int idx = (int) Math.ceil(p * size) - 1;
+            return values[Math.max(0, Math.min(size - 1, idx))];
+        }
+
+        private long max() {
+            return size == 0 ? 0 : values[size - 1];
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.netty.jfr;
+
+import com.netty.core.common.DeviceConfig;
+import io.netty.channel.Channel;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-26 09:30
+ * {@code @description:}
+ * Modbus 请求生命周期的 JFR 自定义事件：调度 -> 入队 -> 发送 -> 解码 -> 匹配 -> 分发 -> 落地。
+ * 热路径先判断缓存的事件开关是否启用，未录制时不创建事件对象，也不拼接设备 Key。
+ * 配套录制配置见 resources/jfr/modbus.jfc，分析工具见 {@link JfrLatencyAnalyzer}。
+ * <p>
+ * jdk.jfr 只在 8u262+ / 11+ 上存在。开关本身不引用 jdk.jfr 的类型，运行时没有 JFR 时开关恒为关闭，
+ * 事件类永远不会被加载，轮询主路径照常工作，只是没有事件可录。
+ */
+public final class ModbusEvents {
+
+    /**
+     * 当前运行时是否带有 JFR
+     */
+    public static final boolean AVAILABLE = jfrPresent();
+
+    public static final Gate POLL_SCHEDULED = gate("PollScheduled");
+    public static final Gate ENQUEUED = gate("Enqueued");
+    public static final Gate SENT = gate("Sent");
+    public static final Gate DECODED = gate("Decoded");
+    public static final Gate MATCHED = gate("Matched");
+    public static final Gate DISPATCHED = gate("Dispatched");
+    public static final Gate SUNK = gate("Sunk");
+
+    private ModbusEvents() {
+    }
+
+    private static boolean jfrPresent() {
+        try {
+            Class.forName("jdk.jfr.EventType", false, ModbusEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * 按嵌套事件类的简单名取开关；类名在运行时拼出，避免 JFR 缺失时在静态初始化中触发事件类加载
+     */
+    private static Gate gate(String simpleName) {
+        if (!AVAILABLE) {
+            return Gate.OFF;
+        }
+        try {
+            return new Gate(Jfr.eventType(ModbusEvents.class.getName() + "$" + simpleName));
+        } catch (ClassNotFoundException | LinkageError e) {
+            return Gate.OFF;
+        }
+    }
+
+    /**
+     * 事件开关：持有的 EventType 以 Object 保存，JFR 缺失时为 null
+     */
+    public static final class Gate {
+
+        static final Gate OFF = new Gate(null);
+
+        private final Object type;
+
+        private Gate(Object type) {
+            this.type = type;
+        }
+
+        public boolean isEnabled() {
+            return type != null && Jfr.isEnabled(type);
+        }
+    }
+
+    /**
+     * 唯一直接引用 jdk.jfr.EventType 的地方，只在 JFR 存在时才会被加载
+     */
+    private static final class Jfr {
+
+        static Object eventType(String className) throws ClassNotFoundException {
+            Class<?> eventClass = Class.forName(className, false, ModbusEvents.class.getClassLoader());
+            return EventType.getEventType(eventClass.asSubclass(Event.class));
+        }
+
+        static boolean isEnabled(Object type) {
+            return ((EventType) type).isEnabled();
+        }
+    }
+
+    /**
+     * 设备 Key (ip:port:slaveId)，仅在事件启用时调用
+     */
+    public static String deviceKey(DeviceConfig device) {
+        if (device.getKey() != null) {
+            return device.getKey();
+        }
+        return device.getIp() + ":" + device.getPort() + ":" + device.getSlaveId();
+    }
+
+    /**
+     * 链路对端 ip:port，仅在事件启用时调用
+     */
+    public static String endpoint(Channel channel) {
+        SocketAddress address = channel.remoteAddress();
+        if (address instanceof InetSocketAddress) {
+            InetSocketAddress inet = (InetSocketAddress) address;
+            return inet.getHostString() + ":" + inet.getPort();
+        }
+        return String.valueOf(address);
+    }
+
+    @Name("com.netty.modbus.PollScheduled")
+    @Label("Poll Scheduled")
+    @Category({"Modbus", "Lifecycle"})
+    @Description("ModbusMasterService 触发一次设备轮询")
+    @StackTrace(false)
+    public static class PollScheduled extends Event {
+        @Label("Device Key")
+        public String deviceKey;
+        @Label("Task Count")
+        public int taskCount;
+        @Label("Scheduled Time")
+        @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+        public long scheduledTime;
+        @Label("Lateness")
+        @Description("实际触发时间相对计划时间的延迟")
+        @Timespan(Timespan.MILLISECONDS)
+        public long lateness;
+    }
+
+    @Name("com.netty.modbus.Enqueued")
+    @Label("Request Enqueued")
+    @Category({"Modbus", "Lifecycle"})
+    @Description("请求进入连接的从站子队列")
+    @StackTrace(false)
+    public static class Enqueued extends Event {
+        @Label("Device Key")
+        public String deviceKey;
+        @Label("Function Code")
+        public int functionCode;
+        @Label("Queue Depth")
+        public int queueDepth;
+    }
+
+    @Name("com.netty.modbus.Sent")
+    @Label("Request Sent")
+    @Category({"Modbus", "Lifecycle"})
+    @Description("请求出队并写出到链路")
+    @StackTrace(false)
+    public static class Sent extends Event {
+        @Label("Device Key")
+        public String deviceKey;
+        @Label("Transaction Id")
+        public int transactionId;
+        @Label("Function Code")
+        public int functionCode;
+        @Label("Queue Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        public long queueWait;
+    }
+
+    @Name("com.netty.modbus.Decoded")
+    @Label("Frame Decoded")
+    @Category({"Modbus", "Lifecycle"})
+    @Description("ModbusDecoder 解出一帧响应，事件时长为解码耗时")
+    @StackTrace(false)
+    public static class Decoded extends Event {
+        @Label("Endpoint")
+        public String endpoint;
+        @Label("Transaction Id")
+        public int transactionId;
+        @Label("Function Code")
+        public int functionCode;
+        @Label("Unit Id")
+        public int unitId;
+        @Label("Frame Length")
+        @DataAmount
+        public int length;
+    }
+
+    @Name("com.netty.modbus.Matched")
+    @Label("Response Matched")
+    @Category({"Modbus", "Lifecycle"})
+    @Description("ModbusResponseHandler 按事务ID匹配在途请求，事件时长包含回调处理")
+    @StackTrace(false)
+    public static class Matched extends Event {
+        @Label("Device Key")
+        public String deviceKey;
+        @Label("Transaction Id")
+        public int transactionId;
+        @Label("Function Code")
+        public int functionCode;
+        @Label("Matched")
+        public boolean matched;
+        @Label("Round Trip")
+        @Timespan(Timespan.NANOSECONDS)
+        public long roundTrip;
+    }
+
+    @Name("com.netty.modbus.Dispatched")
+    @Label("Response Dispatched")
+    @Category({"Modbus", "Lifecycle"})
+    @Description("DataRouteDispatcher 解析响应，事件时长为解析耗时")
+    @StackTrace(false)
+    public static class Dispatched extends Event {
+        @Label("Device Key")
+        public String deviceKey;
+        @Label("Function Code")
+        public int functionCode;
+        @Label("Exception Code")
+        public int exceptionCode;
+    }
+
+    @Name("com.netty.modbus.Sunk")
+    @Label("Result Sunk")
+    @Category({"Modbus", "Lifecycle"})
+    @Description("结果写入下游（console/redis/rabbitmq），事件时长为写入耗时")
+    @StackTrace(false)
+    public static class Sunk extends Event {
+        @Label("Device Key")
+        public String deviceKey;
+        @Label("Sink")
+        public String sink;
+        @Label("End To End")
+        @Description("从请求写出到落地完成")
+        @Timespan(Timespan.NANOSECONDS)
+        public long endToEnd;
+    }
+}
@@ -0,0 +1,19 @@
+package com.netty.live;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-12 10:10
+ * {@code @description:}
+ * 一个点位的一次变化，JSON 在发布时生成一次，所有订阅者共享同一份（不可变）。
+ */
+final class LiveFrame {
+
+    // deviceId/点位，订阅者按它合并
+    final String key;
+    final String json;
+
+    LiveFrame(String key, String json) {
+        this.key = key;
+        this.json = json;
+    }
+}
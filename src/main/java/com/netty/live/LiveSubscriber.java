@@ -0,0 +1,134 @@
+package com.netty.live;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-12 10:10
+ * {@code @description:}
+ * 单个 SSE 订阅者：待发送的变化按点位合并（同一点位只保留最新一帧，位置不变），
+ * 客户端慢时积压的是点位数而不是变化次数。同一时刻最多一个发送任务在跑，保证帧的顺序；
+ * 记录在跑的发送线程与开始时间，供发现写不动的客户端。
+ */
+final class LiveSubscriber {
+
+    final long id;
+    final SseEmitter emitter;
+    // 订阅的设备 id / 点位（如 "4:1"），null 表示全部
+    final Set<String> devices;
+    final Set<String> points;
+
+    // Key: deviceId/点位
+    private LinkedHashMap<String, LiveFrame> pending = new LinkedHashMap<>();
+    private boolean ping;
+    private long sent;
+    private long conflated;
+
+    // 已有发送任务排队或在跑
+    final AtomicBoolean scheduled = new AtomicBoolean();
+    volatile boolean closed;
+
+    // 正在执行发送的线程与开始时间(ms)，未在发送时线程为 null；stalled 表示本次发送已被判定超时
+    private Thread sendingThread;
+    private long sendStartedAt;
+    private boolean stalled;
+
+    LiveSubscriber(long id, SseEmitter emitter, Set<String> devices, Set<String> points) {
+        this.id = id;
+        this.emitter = emitter;
+        this.devices = devices;
+        this.points = points;
+    }
+
+    boolean wants(String point) {
+        return points == null || points.contains(point);
+    }
+
+    /**
+     * 放入一帧，同一点位未发出的旧帧被替换；返回合并后的待发送点位数
+     */
+    synchronized int offer(LiveFrame frame) {
+        if (pending.put(frame.key, frame) != null) {
+            conflated++;
+        }
+        return pending.size();
+    }
+
+    synchronized void requestPing() {
+        ping = true;
+    }
+
+    /**
+     * 取走全部待发送的帧，没有时返回 null
+     */
+    synchronized List<LiveFrame> take() {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        List<LiveFrame> batch = new ArrayList<>(pending.values());
+        pending = new LinkedHashMap<>();
+        sent += batch.size();
+        ping = false;
+        return batch;
+    }
+
+    /**
+     * 没有数据可发时取走心跳请求
+     */
+    synchronized boolean takePing() {
+        boolean p = ping;
+        ping = false;
+        return p;
+    }
+
+    synchronized void beginSend() {
+        sendingThread = Thread.currentThread();
+        sendStartedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 发送结束，返回本次发送是否已被判定超时
+     */
+    synchronized boolean endSend() {
+        sendingThread = null;
+        boolean s = stalled;
+        stalled = false;
+        return s;
+    }
+
+    /**
+     * 发送开始于 deadline 之前且仍未结束时先执行 onStall 再中断发送线程；与 endSend 互斥，
+     * 不会中断已转去做其它事的线程，onStall 也一定先于对应的 endSend 完成
+     */
+    synchronized boolean interruptIfStalled(long deadline, Runnable onStall) {
+        if (sendingThread == null || stalled || sendStartedAt > deadline) {
+            return false;
+        }
+        stalled = true;
+        onStall.run();
+        sendingThread.interrupt();
+        return true;
+    }
+
+    synchronized boolean hasWork() {
+        return !pending.isEmpty() || ping;
+    }
+
+    synchronized long sent() {
+        return sent;
+    }
+
+    synchronized long conflated() {
+        return conflated;
+    }
+
+    synchronized int pendingSize() {
+        return pending.size();
+    }
+}
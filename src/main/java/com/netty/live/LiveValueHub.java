@@ -0,0 +1,324 @@
+package com.netty.live;
+
+import com.alibaba.fastjson.JSON;
+import com.netty.config.ModbusConfig;
+import com.netty.core.RegisterImage;
+import com.netty.manager.SitePartitions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-12 10:10
+ * {@code @description:}
+ * 实时值推送（SSE）：分发路径上镜像比对出的变化点位直接发布到这里，只推变化，不再需要前端轮询 Redis。
+ * 每个变化只生成一次 JSON，按设备索引找到订阅者后放入各自的合并缓冲；发送在独立线程池上进行，
+ * 一次把缓冲里的全部点位作为一个 values 事件发出。慢客户端拿到的是每个点位的最新值，
+ * 合并后的点位数仍超过上限时断开，由客户端重连。单次发送超过 liveSendTimeout 仍未写完（客户端不收）时同样断开，
+ * 并中断卡住的发送线程、临时补一个线程，其它订阅者的推送不受影响。
+ * <pre>
+ * event: values
+ * data: [{"deviceId":"d1","point":"4:1","value":123,"ts":1768189688000}, ...]
+ * </pre>
+ */
+@Slf4j
+@Component
+public class LiveValueHub {
+
+    // 表 -> 点位前缀，与 Redis Hash 字段（AsyncRedisSink）一致
+    private static final String[] FIELD_PREFIX = {"0:", "1:", "4:", "3:"};
+
+    @Autowired
+    private ModbusConfig modbusConfig;
+
+    @Autowired
+    private SitePartitions partitions;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, LiveSubscriber> subscribers = new ConcurrentHashMap<>();
+    // Key: deviceId，只订阅了部分设备的订阅者
+    private final Map<String, List<LiveSubscriber>> byDevice = new ConcurrentHashMap<>();
+    // 订阅全部设备的订阅者
+    private final List<LiveSubscriber> wildcard = new CopyOnWriteArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    // 发送超时时补一个发送线程
+    private final Runnable addSender = () -> resizeSender(1);
+
+    private ThreadPoolExecutor sender;
+    private Counter frames;
+    private Counter slowClosed;
+    private Counter stalledClosed;
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, modbusConfig.getLiveThreads());
+        sender = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new DefaultThreadFactory("modbus-live"));
+        frames = Counter.builder("modbus.live.frames")
+                .description("发布的点位变化帧数（每个变化一帧，与订阅者数无关）").register(meterRegistry);
+        slowClosed = Counter.builder("modbus.live.slow")
+                .description("积压超限被断开的订阅者").register(meterRegistry);
+        stalledClosed = Counter.builder("modbus.live.stalled")
+                .description("单次发送超时被断开的订阅者").register(meterRegistry);
+        Gauge.builder("modbus.live.subscribers", subscribers, Map::size)
+                .description("实时推送订阅者数").register(meterRegistry);
+        if (modbusConfig.getLiveHeartbeat() > 0) {
+            partitions.defaultPartition().getScheduler()
+                    .scheduleAtFixedRate(this::heartbeat, modbusConfig.getLiveHeartbeat());
+        }
+        if (modbusConfig.getLiveSendTimeout() > 0) {
+            partitions.defaultPartition().getScheduler()
+                    .scheduleAtFixedRate(this::expireStalled, Math.max(100, modbusConfig.getLiveSendTimeout() / 4));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (LiveSubscriber subscriber : subscribers.values()) {
+            subscriber.emitter.complete();
+        }
+        sender.shutdownNow();
+    }
+
+    /**
+     * 新建订阅；devices / points 为空表示全部
+     */
+    public SseEmitter subscribe(Collection<String> devices, Collection<String> points) {
+        if (subscribers.size() >= modbusConfig.getLiveMaxSubscribers()) {
+            throw new IllegalStateException("Too many live subscribers: " + subscribers.size());
+        }
+        // 不设超时，断开由发送失败或心跳发现
+        SseEmitter emitter = new SseEmitter(0L);
+        LiveSubscriber subscriber = new LiveSubscriber(ids.incrementAndGet(), emitter,
+                devices == null || devices.isEmpty() ? null : new HashSet<>(devices),
+                points == null || points.isEmpty() ? null : new HashSet<>(points));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscribers.put(subscriber.id, subscriber);
+        if (subscriber.devices == null) {
+            wildcard.add(subscriber);
+        } else {
+            for (String device : subscriber.devices) {
+                byDevice.computeIfAbsent(device, k -> new CopyOnWriteArrayList<>()).add(subscriber);
+            }
+        }
+        log.info("实时推送订阅 #{}: 设备 {}, 点位 {}", subscriber.id,
+                subscriber.devices != null ? subscriber.devices : "*", subscriber.points != null ? subscriber.points : "*");
+        return emitter;
+    }
+
+    /**
+     * 发布一段读取结果中变化的点位（EventLoop 线程），值从镜像中取（镜像已在分发时更新）；没有订阅者时直接返回
+     *
+     * @param changed 变化点在本段内的下标，前 n 个有效；方法返回后不再引用
+     */
+    public void publish(RegisterImage image, int table, int start, int[] changed, int n, long timestamp) {
+        if (n == 0 || subscribers.isEmpty()) {
+            return;
+        }
+        String deviceId = image.getDeviceId();
+        List<LiveSubscriber> targets = byDevice.get(deviceId);
+        boolean none = targets == null || targets.isEmpty();
+        if (none && wildcard.isEmpty()) {
+            return;
+        }
+        String prefix = FIELD_PREFIX[table];
+        String quotedId = JSON.toJSONString(deviceId);
+        for (int i = 0; i < n; i++) {
+            int address = start + changed[i];
+            String point = prefix + address;
+            int value = image.value(table, address);
+            LiveFrame frame = null;
+            if (!none) {
+                frame = offer(targets, deviceId, quotedId, point, value, timestamp, null);
+            }
+            offer(wildcard, deviceId, quotedId, point, value, timestamp, frame);
+        }
+    }
+
+    /**
+     * 把变化放进关心该点位的订阅者缓冲；帧在第一个需要它的订阅者处才生成，之后共享
+     */
+    private LiveFrame offer(List<LiveSubscriber> targets, String deviceId, String quotedId, String point,
+                            int value, long timestamp, LiveFrame frame) {
+        for (LiveSubscriber subscriber : targets) {
+            if (subscriber.closed || !subscriber.wants(point)) {
+                continue;
+            }
+            if (frame == null) {
+                frame = new LiveFrame(deviceId + "/" + point, "{\"deviceId\":" + quotedId + ",\"point\":\"" + point
+                        + "\",\"value\":" + value + ",\"ts\":" + timestamp + "}");
+                frames.increment();
+            }
+            if (subscriber.offer(frame) > modbusConfig.getLiveMaxPending()) {
+                slowClosed.increment();
+                log.warn("实时推送订阅 #{} 积压超过 {} 个点位，断开", subscriber.id, modbusConfig.getLiveMaxPending());
+                close(subscriber);
+                continue;
+            }
+            schedule(subscriber);
+        }
+        return frame;
+    }
+
+    private void heartbeat() {
+        for (LiveSubscriber subscriber : subscribers.values()) {
+            subscriber.requestPing();
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * 断开单次发送超时的订阅者。这里只摘除订阅并中断发送线程：SseEmitter 的 send 与 complete 互斥，
+     * 在这里 complete 会跟着卡住，收尾交给发送线程返回后进行。卡住的线程期间补一个线程，不占其它订阅者的并发
+     */
+    private void expireStalled() {
+        long deadline = System.currentTimeMillis() - modbusConfig.getLiveSendTimeout();
+        for (LiveSubscriber subscriber : subscribers.values()) {
+            if (!subscriber.interruptIfStalled(deadline, addSender)) {
+                continue;
+            }
+            stalledClosed.increment();
+            log.warn("实时推送订阅 #{} 单次发送超过 {} ms 未完成，断开", subscriber.id, modbusConfig.getLiveSendTimeout());
+            remove(subscriber);
+        }
+    }
+
+    private synchronized void resizeSender(int delta) {
+        if (delta > 0) {
+            sender.setMaximumPoolSize(sender.getMaximumPoolSize() + delta);
+            sender.setCorePoolSize(sender.getCorePoolSize() + delta);
+        } else {
+            sender.setCorePoolSize(sender.getCorePoolSize() + delta);
+            sender.setMaximumPoolSize(sender.getMaximumPoolSize() + delta);
+        }
+    }
+
+    private void schedule(LiveSubscriber subscriber) {
+        if (!subscriber.closed && subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> send(subscriber));
+            } catch (RejectedExecutionException e) {
+                // 停机中
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * 发送线程：一次发出缓冲里的全部帧；期间到达的变化继续在缓冲中合并，发完后重新排队，不独占线程
+     */
+    private void send(LiveSubscriber subscriber) {
+        subscriber.beginSend();
+        try {
+            List<LiveFrame> batch = subscriber.take();
+            if (batch != null) {
+                StringBuilder sb = new StringBuilder(batch.size() * 64).append('[');
+                for (int i = 0; i < batch.size(); i++) {
+                    if (i > 0) {
+                        sb.append(',');
+                    }
+                    sb.append(batch.get(i).json);
+                }
+                subscriber.emitter.send(SseEmitter.event().name("values").data(sb.append(']').toString(),
+                        MediaType.APPLICATION_JSON));
+            } else if (subscriber.takePing()) {
+                subscriber.emitter.send(SseEmitter.event().comment("ping"));
+            }
+        } catch (Exception e) {
+            // 客户端已断开
+            log.debug("实时推送订阅 #{} 发送失败: {}", subscriber.id, e.getMessage());
+            close(subscriber);
+            return;
+        } finally {
+            if (subscriber.endSend()) {
+                // 超时期间补的线程收回；发送即便最终写完，订阅也已摘除，这里完成 emitter
+                resizeSender(-1);
+                close(subscriber);
+            }
+            subscriber.scheduled.set(false);
+        }
+        if (subscriber.hasWork()) {
+            schedule(subscriber);
+        }
+    }
+
+    private void close(LiveSubscriber subscriber) {
+        remove(subscriber);
+        try {
+            subscriber.emitter.complete();
+        } catch (RuntimeException ignored) {
+            // 已完成
+        }
+    }
+
+    private void remove(LiveSubscriber subscriber) {
+        subscriber.closed = true;
+        if (subscribers.remove(subscriber.id) == null) {
+            return;
+        }
+        if (subscriber.devices == null) {
+            wildcard.remove(subscriber);
+        } else {
+            for (String device : subscriber.devices) {
+                List<LiveSubscriber> list = byDevice.get(device);
+                if (list != null) {
+                    list.remove(subscriber);
+                    if (list.isEmpty()) {
+                        byDevice.remove(device, list);
+                    }
+                }
+            }
+        }
+        log.info("实时推送订阅 #{} 结束", subscriber.id);
+    }
+
+    /**
+     * 推送概况（REST 展示）
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("subscribers", subscribers.size());
+        map.put("maxSubscribers", modbusConfig.getLiveMaxSubscribers());
+        map.put("frames", (long) frames.count());
+        map.put("slowClosed", (long) slowClosed.count());
+        Map<Long, Map<String, Object>> each = new LinkedHashMap<>();
+        for (LiveSubscriber subscriber : subscribers.values()) {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("devices", subscriber.devices != null ? subscriber.devices : "*");
+            s.put("points", subscriber.points != null ? subscriber.points : "*");
+            s.put("sent", subscriber.sent());
+            s.put("conflated", subscriber.conflated());
+            s.put("pending", subscriber.pendingSize());
+            each.put(subscriber.id, s);
+        }
+        map.put("each", each);
+        return map;
+    }
+}
@@ -1,138 +1,579 @@
 package com.netty.manager;
 
+import com.netty.config.ModbusConfig;
 import com.netty.core.ModbusFrame;
 import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusCallback;
 import com.netty.core.common.ModbusTask;
 import com.netty.core.common.QueuedTask;
-import com.netty.core.handler.ModbusResponseHandler;
-import com.netty.service.DataRouteDispatcher;
-import com.netty.util.AsyncUtils;
-import com.netty.util.ModbusProtocolUtils;
+import com.netty.jfr.ModbusEvents;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.concurrent.ScheduledFuture;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * {@code @author:} TaiHuLake
  * {@code @date:} 2026-01-11 22:17
  * {@code @description:}
+ * 单连接任务协调器。所有状态（队列、在途表、发送锁）都只在该 Channel 的 EventLoop 线程上访问：
+ * 入队时请求上下文自身作为任务投递到 EventLoop，超时判定与请求间隔都由每个连接自己的扫描任务驱动。
+ * 同一网关下的多个从站各有子队列，按赤字轮询（DRR）公平出队，任务多或响应慢的从站不会拖累邻居。
+ * 链路保活：链路上收不到任何报文时定期插队发一次探测读，探测连续超时达到上限（期间仍无任何报文）即判定失效
+ * （半开连接）并主动关闭，不必等对端 RST。普通请求超时只说明单个从站不应答，不作为链路失效的依据。
  */
 @Slf4j
 public class ChannelTaskCoordinator {
+    // 通过 Channel 属性反查协调器，供 ResponseHandler 匹配回包
+    public static final AttributeKey<ChannelTaskCoordinator> COORDINATOR = AttributeKey.valueOf("modbusCoordinator");
+
+    // 共享的超时异常，不填充堆栈，避免每次超时分配
+    private static final TimeoutException REQUEST_TIMEOUT = new TimeoutException("Modbus request timed out!");
+    private static final IllegalStateException CHANNEL_CLOSED = new IllegalStateException("Modbus channel closed");
+    // 排队中被舍弃（积压超限、链路断开），请求从未发出，不计入熔断
+    public static final IllegalStateException REQUEST_DROPPED = new IllegalStateException("Modbus request dropped before sending");
+
+    static {
+        REQUEST_TIMEOUT.setStackTrace(new StackTraceElement[0]);
+        CHANNEL_CLOSED.setStackTrace(new StackTraceElement[0]);
+        REQUEST_DROPPED.setStackTrace(new StackTraceElement[0]);
+    }
+
+    // 单次读请求的最大寄存器数，deficit 模式下作为每轮的基础配额
+    private static final int MAX_BLOCK = 125;
+
     private final Channel channel;
-    // 该连接专属的异步任务队列
-    private final BlockingQueue<QueuedTask> queue = new LinkedBlockingQueue<>();
-    // 锁：标记当前连接是否正在等待回包
-    private final AtomicBoolean isWaiting = new AtomicBoolean(false);
-    // 事务ID生成器
-    private final AtomicInteger tidGenerator = new AtomicInteger(0);
-
-    public ChannelTaskCoordinator(Channel channel) {
+    // 连接标识 ip:port，用于指标标签
+    private final String endpoint;
+    // 按 slaveId 划分的子队列（仅 EventLoop 线程访问）
+    private final SlaveQueue[] slaveQueues = new SlaveQueue[256];
+    // 有待发任务的从站环
+    private final ArrayDeque<SlaveQueue> activeSlaves = new ArrayDeque<>();
+    // 每个从站子队列的上限
+    private final int maxQueuePerSlave;
+    // deficit：按寄存器数计费；否则按请求数轮询
+    private final boolean deficitMode;
+    private final MeterRegistry meterRegistry;
+    // 负载：已入队未完成的请求数（含在途），供连接池做负载均衡，任意线程可读
+    private final AtomicInteger load = new AtomicInteger();
+    // 自上次读取以来单个从站子队列的最大深度，供背压判定（EventLoop 线程写，任意线程读取并清零）
+    private volatile int peakSlaveQueue;
+    // 在途请求表：Key = TransactionId (0~65535)，仅 EventLoop 线程访问
+    private final IntObjectMap<QueuedTask> pending = new IntObjectHashMap<>();
+    // 设备未配置超时时使用的默认响应超时(ms)
+    private final int defaultTimeout;
+    // 两次请求之间的最小间隔(ns)
+    private final long requestGapNanos;
+    // 标记当前连接是否正在等待回包（EventLoop 线程内访问）
+    private boolean isWaiting;
+    // 下一次允许发送的时间(nanoTime)
+    private long nextSendTime;
+    // 事务ID生成器（EventLoop 线程内访问）
+    private int tidGenerator;
+    // 超时扫描任务及其精度(ms)
+    private ScheduledFuture<?> sweepFuture;
+    private volatile int sweepTick;
+    // 最近一次入队时间(nanoTime)，连接预算按它淘汰最久未使用的空闲会话
+    private volatile long lastActive = System.nanoTime();
+    // 已被主动关闭（空闲超时 / 连接预算）：之后的请求按“未建连”失败，不计入熔断
+    private volatile boolean evicted;
+    // 连续超时的探测读次数，收到任何报文清零（EventLoop 线程内访问）
+    private int probeTimeouts;
+    // 探测读连续超时达到该次数判定链路失效（<=0 不判定）
+    private final int maxTimeouts;
+    // 等待发出的探测读（插队，先于各从站子队列发送）及是否有探测未结束（EventLoop 线程内访问）
+    private QueuedTask probeTask;
+    private boolean probing;
+    // 链路失效关闭时，优先级不低于该值的排队请求（以及写请求）换到新会话重发
+    private final int requeuePriority;
+    // 已判定失效并关闭
+    private volatile boolean dead;
+    // 最近一次入队的设备，失效重连时用于预建连（EventLoop 线程内访问）
+    private DeviceConfig lastDevice;
+    // 最近一次应答过的设备，探测读优先以它为目标，避免探到本就离线的从站（EventLoop 线程内访问）
+    private DeviceConfig lastAnswered;
+
+    // 探测读的回调：回包本身（含异常应答）即证明链路存活，结果不向下游分发
+    private static final ModbusCallback PROBE_CALLBACK = new ModbusCallback() {
+        @Override
+        public void onResponse(QueuedTask request, ModbusFrame response) {
+        }
+
+        @Override
+        public void onFailure(QueuedTask request, Throwable cause) {
+        }
+    };
+
+    private final Runnable sweepTask = this::sweep;
+
+    public ChannelTaskCoordinator(Channel channel, String endpoint, ModbusConfig config, int sweepTick,
+                                  MeterRegistry meterRegistry) {
         this.channel = channel;
+        this.endpoint = endpoint;
+        this.defaultTimeout = config.getReadTimeout();
+        this.requestGapNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getRequestGap()));
+        this.maxQueuePerSlave = Math.max(1, config.getMaxQueuePerSlave());
+        this.deficitMode = "deficit".equalsIgnoreCase(config.getSlaveScheduling());
+        this.maxTimeouts = config.getLivenessMaxTimeouts();
+        this.requeuePriority = config.getLivenessRequeuePriority();
+        this.meterRegistry = meterRegistry;
+        channel.attr(COORDINATOR).set(this);
+        channel.eventLoop().execute(() -> ensureSweepTick(sweepTick));
     }
 
-    public void enqueue(DeviceConfig device, ModbusTask task) {
+    /**
+     * 入队：任意线程调用，实际入队在 EventLoop 上完成
+     */
+    public void enqueue(QueuedTask qTask) {
+        load.incrementAndGet();
+        lastActive = System.nanoTime();
+        qTask.setCoordinator(this);
+        if (channel.eventLoop().inEventLoop()) {
+            offerLocal(qTask);
+        } else {
+            channel.eventLoop().execute(qTask);
+        }
+    }
 
-        // 检查队列里是否已经有这个任务了（防止堆积）
-        // 只有在队列长度小于阈值（例如 50）时才添加，或者按任务唯一标识去重
-        if (queue.size() > 100) {
-            log.warn("IP:{} 任务队列积压过载，舍弃旧请求", device.getIp());
-            queue.clear(); // 强制清理，防止雪崩
+    /**
+     * EventLoop 线程内入队：进入对应从站的子队列
+     */
+    public void offerLocal(QueuedTask qTask) {
+        if (!channel.isActive()) {
+            // 投递途中链路已断开，直接以失败结束
+            fail(qTask, closedCause());
+            return;
+        }
+        if (qTask.getCallback() != PROBE_CALLBACK) {
+            lastDevice = qTask.getDevice();
+        }
+        SlaveQueue sq = slaveQueue(qTask.getDevice().getSlaveId() & 0xFF);
+        // 积压只影响该从站自己：超过上限时舍弃该从站最旧的请求，防止雪崩
+        if (sq.queue.size() >= maxQueuePerSlave) {
+            log.warn("IP:{} Slave:{} 任务队列积压过载，舍弃旧请求", qTask.getDevice().getIp(), sq.slaveId);
+            fail(sq.queue.poll(), REQUEST_DROPPED);
         }
 
-        queue.offer(new QueuedTask(device, task));
+        qTask.setEnqueueTime(System.nanoTime());
+        sq.weight = Math.max(1, qTask.getDevice().getWeight());
+        sq.queue.offer(qTask);
+        if (!sq.active) {
+            sq.active = true;
+            activeSlaves.offer(sq);
+        }
+        if (ModbusEvents.ENQUEUED.isEnabled()) {
+            ModbusEvents.Enqueued event = new ModbusEvents.Enqueued();
+            event.deviceKey = ModbusEvents.deviceKey(qTask.getDevice());
+            event.functionCode = qTask.getTask().getType();
+            event.queueDepth = sq.queue.size();
+            event.commit();
+        }
         trySendNext();
+        int depth = sq.queue.size();
+        if (depth > peakSlaveQueue) {
+            peakSlaveQueue = depth;
+        }
+    }
+
+    private SlaveQueue slaveQueue(int slaveId) {
+        SlaveQueue sq = slaveQueues[slaveId];
+        if (sq == null) {
+            Timer waitTimer = meterRegistry == null ? null : Timer.builder("modbus.queue.wait")
+                    .description("请求在从站子队列中的等待时间")
+                    .tag("endpoint", endpoint)
+                    .tag("slave", String.valueOf(slaveId))
+                    .register(meterRegistry);
+            sq = new SlaveQueue(slaveId, waitTimer);
+            slaveQueues[slaveId] = sq;
+        }
+        return sq;
+    }
+
+    /**
+     * 赤字轮询出队：从站轮到时获得 quantum 配额，队首请求的代价不超过剩余配额才出队，否则让给下一个从站。
+     * round-robin 模式下代价为 1、配额为权重；deficit 模式下代价为寄存器数、配额为 权重 * 125
+     */
+    private QueuedTask pollNext() {
+        while (!activeSlaves.isEmpty()) {
+            SlaveQueue sq = activeSlaves.peek();
+            QueuedTask head = sq.queue.peek();
+            if (head == null) {
+                activeSlaves.poll();
+                sq.deactivate();
+                continue;
+            }
+            if (!sq.credited) {
+                sq.deficit += deficitMode ? (long) sq.weight * MAX_BLOCK : sq.weight;
+                sq.credited = true;
+            }
+            int cost = deficitMode ? Math.max(1, Math.min(MAX_BLOCK, head.getTask().getCount())) : 1;
+            if (cost > sq.deficit) {
+                // 配额用完，轮到下一个从站
+                activeSlaves.poll();
+                sq.credited = false;
+                activeSlaves.offer(sq);
+                continue;
+            }
+            sq.deficit -= cost;
+            sq.queue.poll();
+            if (sq.queue.isEmpty()) {
+                activeSlaves.poll();
+                sq.deactivate();
+            }
+            if (sq.waitTimer != null) {
+                sq.waitTimer.record(System.nanoTime() - head.getEnqueueTime(), TimeUnit.NANOSECONDS);
+            }
+            return head;
+        }
+        return null;
     }
 
-    private synchronized void trySendNext() {
-        // 如果正在等待响应，或者队列为空，则跳过（由下一个回调触发）
-        if (isWaiting.get() || queue.isEmpty()) {
+    /**
+     * 调整超时扫描精度：同一连接上的设备取最细的精度
+     */
+    public void requestSweepTick(int tickMs) {
+        if (tickMs <= 0 || (sweepTick > 0 && tickMs >= sweepTick)) {
             return;
         }
+        channel.eventLoop().execute(() -> ensureSweepTick(tickMs));
+    }
 
-        QueuedTask qTask = queue.poll();
-        if (qTask == null) {
+    private void ensureSweepTick(int tickMs) {
+        if (tickMs <= 0 || (sweepFuture != null && tickMs >= sweepTick) || !channel.isActive()) {
+            return;
+        }
+        if (sweepFuture != null) {
+            sweepFuture.cancel(false);
+        }
+        sweepTick = tickMs;
+        sweepFuture = channel.eventLoop().scheduleAtFixedRate(sweepTask, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void trySendNext() {
+        // 如果正在等待响应、仍在请求间隔内，或者队列为空，则跳过（由回包或扫描任务触发）
+        if (isWaiting || (activeSlaves.isEmpty() && probeTask == null) || !channel.isActive() || System.nanoTime() - nextSendTime < 0) {
+            return;
+        }
+
+        QueuedTask qTask = probeTask;
+        if (qTask != null) {
+            probeTask = null;
+        } else if ((qTask = pollNext()) == null) {
             return;
         }
 
         // 上锁
-        isWaiting.set(true);
-
-        short tid = (short) (tidGenerator.incrementAndGet() & 0xFFFF);
-
-        // 构建 PDU 并封装成 Frame
-        byte[] pdu = buildPdu(qTask.getTask());
-        ModbusFrame frame = ModbusFrame.builder()
-                .transactionId(tid)
-                .unitId(qTask.getDevice().getSlaveId())
-                .functionCode((byte) qTask.getTask().getType())
-                .payload(pdu)
-                .build();
-
-        CompletableFuture<ModbusFrame> future = new CompletableFuture<>();
-        ModbusResponseHandler.futures.put(tid, future);
-
-        // 使用之前提供的 AsyncUtils (JDK8) 增加超时控制
-        AsyncUtils.withTimeout(future, 5000, TimeUnit.MILLISECONDS).whenComplete((res, ex) -> {
-            // 1. 无论成功失败，第一时间清理事务 ID，防止内存泄漏和 ID 冲突
-            ModbusResponseHandler.futures.remove(tid);
-            try {
-                if (ex != null) {
-                    log.error("IP:{} Slave:{} 请求失败:{}",
-                            qTask.getDevice().getIp(), qTask.getDevice().getSlaveId(), ex.getMessage());
-                } else {
-                    // 数据分发（这里改为你之前的 Dispatcher）
-                    DataRouteDispatcher.staticDispatch(qTask.getDevice(), res, qTask.getTask());
+        isWaiting = true;
+
+        tidGenerator = (tidGenerator + 1) & 0xFFFF;
+        int tid = tidGenerator;
+        qTask.setTransactionId(tid);
+
+        // 截止时间登记到在途表，由扫描任务统一判定超时
+        int timeout = qTask.getDevice().getTimeout() > 0 ? qTask.getDevice().getTimeout() : defaultTimeout;
+        qTask.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+        pending.put(tid, qTask);
+
+        // 请求上下文直接交给 ModbusEncoder 编码，使用 voidPromise 避免分配 Promise
+        qTask.setSendTime(System.nanoTime());
+        if (ModbusEvents.SENT.isEnabled()) {
+            ModbusEvents.Sent event = new ModbusEvents.Sent();
+            event.deviceKey = ModbusEvents.deviceKey(qTask.getDevice());
+            event.transactionId = tid;
+            event.functionCode = qTask.getTask().getType();
+            event.queueWait = qTask.getSendTime() - qTask.getEnqueueTime();
+            event.commit();
+        }
+        channel.writeAndFlush(qTask, channel.voidPromise());
+    }
+
+    /**
+     * 收到回包（EventLoop 线程）：按事务ID匹配在途请求
+     * @return 往返时间(ns)，无匹配请求时返回 -1
+     */
+    public long onResponse(ModbusFrame response) {
+        // 任何报文（含迟到的回包）都说明链路是通的
+        probeTimeouts = 0;
+        QueuedTask qTask = pending.remove(response.getTransactionId() & 0xFFFF);
+        if (qTask == null) {
+            // 已超时或未知事务的迟到报文，直接丢弃
+            log.debug("IP:{} 丢弃无匹配的回包 TID:{}", channel.remoteAddress(), response.getTransactionId() & 0xFFFF);
+            return -1;
+        }
+        lastAnswered = qTask.getDevice();
+        long roundTrip = response.getReceiveTime() - qTask.getSendTime();
+        complete(qTask, response, null);
+        trySendNext();
+        return roundTrip;
+    }
+
+    /**
+     * 周期扫描：判定超时的在途请求，并在请求间隔结束后发送下一条
+     */
+    private void sweep() {
+        if (!pending.isEmpty()) {
+            long now = System.nanoTime();
+            Iterator<IntObjectMap.PrimitiveEntry<QueuedTask>> it = pending.entries().iterator();
+            while (it.hasNext()) {
+                QueuedTask qTask = it.next().value();
+                if (now - qTask.getDeadline() >= 0) {
+                    it.remove();
+                    if (qTask.getCallback() == PROBE_CALLBACK) {
+                        probeTimeouts++;
+                    }
+                    complete(qTask, null, REQUEST_TIMEOUT);
                 }
-            } finally {
-                // 2. 释放当前通道的“忙碌”状态
-                isWaiting.set(false);
+            }
+            if (maxTimeouts > 0 && probeTimeouts >= maxTimeouts && !dead && channel.isActive()) {
+                // 半开连接（网关重启、NAT 表项过期）不会触发 channelInactive，主动关闭后由连接管理器立即重连
+                log.warn("IP:{} 连续 {} 次探测读超时且期间无任何报文，判定链路失效，关闭重连",
+                        channel.remoteAddress(), probeTimeouts);
+                dead = true;
+                channel.close();
+                return;
+            }
+        }
+        trySendNext();
+    }
 
-                // 3. 【核心步骤 2】延迟 50ms 再发送下一个请求
-                // 给从站（Slave）协议栈留出处理缓冲区的时间，防止“连珠炮”式请求压垮从站
-                channel.eventLoop().schedule(this::trySendNext, 50, TimeUnit.MILLISECONDS);
+    /**
+     * 链路读静默时发送一次探测读（EventLoop 线程）：只读 1 个点，插在各从站子队列之前，当前在途请求结束后立即发出；
+     * 上一次探测未结束时不重复发送。目标优先取最近应答过的设备，一个从站离线不会让探测落空。
+     * 不更新最近活跃时间，空闲会话照常被回收。
+     *
+     * @return 是否发出了探测
+     */
+    public boolean probe() {
+        DeviceConfig device = lastAnswered != null ? lastAnswered : lastDevice;
+        if (device == null || probing || !channel.isActive() || dead) {
+            return false;
+        }
+        ModbusTask probe = null;
+        if (device.getTasks() != null) {
+            for (ModbusTask task : device.getTasks()) {
+                if (task.getType() >= 1 && task.getType() <= 4) {
+                    probe = ModbusTask.builder().taskId("liveness").type(task.getType())
+                            .startAddr(task.getStartAddr()).count(1).build();
+                    break;
+                }
             }
-        });
-
-        channel.writeAndFlush(frame);
-    }
-
-    // 适配各功能码的 PDU 构建
-    private byte[] buildPdu(ModbusTask task) {
-        // 使用之前实现的 ModbusProtocolUtils
-        switch (task.getType()) {
-            case 1:
-                return ModbusProtocolUtils.buildReadPDU(task.getStartAddr(), task.getCount());
-            case 2:
-                return ModbusProtocolUtils.buildReadPDU(task.getStartAddr(), task.getCount());
-            case 3:
-                return ModbusProtocolUtils.buildReadPDU(task.getStartAddr(), task.getCount());
-            case 4:
-                return ModbusProtocolUtils.buildReadPDU(task.getStartAddr(), task.getCount());
-            case 5:
-                return ModbusProtocolUtils.buildWriteSingleCoil(task.getStartAddr(), task.getWriteValues()[0] == 1);
-//            case 6:
-//                // 增加判断，防止写入值为空
-//                int val = (task.getWriteValues() != null && task.getWriteValues().length > 0)
-//                        ? task.getWriteValues()[0] : 0;
-//                return ModbusProtocolUtils.buildWriteMultipleRegisters(task.getStartAddr(), task.getWriteValues()[0]);
-            case 16:
-                int[] vals = (task.getWriteValues() != null) ? task.getWriteValues() : new int[0];
-                return ModbusProtocolUtils.buildWriteMultipleRegisters(task.getStartAddr(), vals);
-            default:
-                // 默认兜底读取逻辑
-                return ModbusProtocolUtils.buildReadRegisters(task.getStartAddr(), Math.max(1, task.getCount()));
         }
+        if (probe == null) {
+            // 没有读任务：读保持寄存器 0，异常应答同样能证明链路存活
+            probe = ModbusTask.builder().taskId("liveness").type(3).startAddr(0).count(1).build();
+        }
+        QueuedTask qTask = QueuedTask.newInstance(device, probe, PROBE_CALLBACK);
+        load.incrementAndGet();
+        qTask.setCoordinator(this);
+        qTask.setEnqueueTime(System.nanoTime());
+        probing = true;
+        probeTask = qTask;
+        trySendNext();
+        return true;
     }
 
+    private void complete(QueuedTask qTask, ModbusFrame res, Throwable cause) {
+        try {
+            if (cause != null) {
+                qTask.getCallback().onFailure(qTask, cause);
+            } else {
+                qTask.getCallback().onResponse(qTask, res);
+            }
+        } catch (Exception e) {
+            log.error("IP:{} Slave:{} 回调处理异常", qTask.getDevice().getIp(), qTask.getDevice().getSlaveId(), e);
+        } finally {
+            if (qTask.getCallback() == PROBE_CALLBACK) {
+                probing = false;
+            }
+            release(qTask);
+            // 释放当前通道的“忙碌”状态
+            isWaiting = false;
+
+            // 间隔 requestGap 再发送下一个请求（默认 50ms，由扫描任务驱动）
+            // 给从站（Slave）协议栈留出处理缓冲区的时间，防止“连珠炮”式请求压垮从站
+            nextSendTime = System.nanoTime() + requestGapNanos;
+        }
+    }
+
+    /**
+     * 链路断开时调用（EventLoop 线程）：在途与排队的请求都以失败回调结束
+     */
     public void clear() {
-        queue.clear();
-        isWaiting.set(false);
+        clear(null);
+    }
+
+    /**
+     * 同 clear()；requeue 不为空时，排队中（尚未发出）的写请求与优先级不低于 livenessRequeuePriority 的请求
+     * 改为交给 requeue 后回收（不回调），调用方须在回调内取出设备、任务与回调
+     */
+    public void clear(Consumer<QueuedTask> requeue) {
+        if (!pending.isEmpty()) {
+            for (IntObjectMap.PrimitiveEntry<QueuedTask> entry : pending.entries()) {
+                fail(entry.value(), closedCause());
+            }
+            pending.clear();
+        }
+        if (probeTask != null) {
+            fail(probeTask, droppedCause());
+            probeTask = null;
+        }
+        probing = false;
+        SlaveQueue sq;
+        while ((sq = activeSlaves.poll()) != null) {
+            QueuedTask dropped;
+            while ((dropped = sq.queue.poll()) != null) {
+                if (requeue != null && shouldRequeue(dropped)) {
+                    requeue.accept(dropped);
+                    release(dropped);
+                } else {
+                    fail(dropped, droppedCause());
+                }
+            }
+            sq.deactivate();
+        }
+        isWaiting = false;
+        if (sweepFuture != null) {
+            sweepFuture.cancel(false);
+            sweepFuture = null;
+        }
+    }
+
+    /**
+     * 链路失效时是否换会话重发：写请求（编码器支持的 05 / 06 / 16 / 23）与优先级足够高的读请求
+     */
+    private boolean shouldRequeue(QueuedTask qTask) {
+        if (qTask.getCallback() == PROBE_CALLBACK) {
+            return false;
+        }
+        int type = qTask.getTask().getType();
+        return type == 5 || type == 6 || type == 16 || type == 23
+                || qTask.getDevice().getPriority() >= requeuePriority;
+    }
+
+    private void fail(QueuedTask qTask, Throwable cause) {
+        try {
+            qTask.getCallback().onFailure(qTask, cause);
+        } catch (Exception e) {
+            log.error("IP:{} 回调处理异常", qTask.getDevice().getIp(), e);
+        } finally {
+            release(qTask);
+        }
+    }
+
+    // 请求结束（完成、舍弃、失败）时回收并扣减负载
+    private void release(QueuedTask qTask) {
+        load.decrementAndGet();
+        qTask.recycle();
+    }
+
+    public boolean isActive() {
+        return channel.isActive();
+    }
+
+    /**
+     * 主动关闭本会话（在 EventLoop 上执行，已投递的请求先发出），已在关闭中时返回 false
+     */
+    public synchronized boolean evict() {
+        if (evicted) {
+            return false;
+        }
+        evicted = true;
+        channel.eventLoop().execute(channel::close);
+        return true;
+    }
+
+    public boolean isEvicted() {
+        return evicted;
+    }
+
+    /**
+     * 是否因探测读连续超时被判定失效而关闭
+     */
+    public boolean isDead() {
+        return dead;
+    }
+
+    /**
+     * 最近一次入队的设备（EventLoop 线程内访问，失效重连时用于预建连）
+     */
+    public DeviceConfig lastDevice() {
+        return lastDevice;
+    }
+
+    /**
+     * 最近一次入队时间(nanoTime，任意线程)
+     */
+    public long lastActive() {
+        return lastActive;
+    }
+
+    private Throwable closedCause() {
+        return evicted ? ConnectionManager.CONNECT_DEFERRED : CHANNEL_CLOSED;
+    }
+
+    private Throwable droppedCause() {
+        return evicted ? ConnectionManager.CONNECT_DEFERRED : REQUEST_DROPPED;
+    }
+
+    /**
+     * 已入队未完成的请求数（任意线程）
+     */
+    public int load() {
+        return load.get();
+    }
+
+    /**
+     * 自上次调用以来单个从站子队列的最大深度（与 maxQueuePerSlave 同口径），读取后清零
+     */
+    public int takePeakSlaveQueue() {
+        int peak = peakSlaveQueue;
+        peakSlaveQueue = 0;
+        return peak;
+    }
+
+    /**
+     * 当前排队的请求数（EventLoop 线程内访问）
+     */
+    public int queuedCount() {
+        int count = 0;
+        for (SlaveQueue sq : activeSlaves) {
+            count += sq.queue.size();
+        }
+        return count;
+    }
+
+    // 单个从站的子队列与 DRR 状态
+    private static final class SlaveQueue {
+        private final int slaveId;
+        private final Timer waitTimer;
+        private final ArrayDeque<QueuedTask> queue = new ArrayDeque<>();
+        private int weight = 1;
+        private long deficit;
+        // 本轮是否已发放配额
+        private boolean credited;
+        // 是否在活跃环中
+        private boolean active;
+
+        private SlaveQueue(int slaveId, Timer waitTimer) {
+            this.slaveId = slaveId;
+            this.waitTimer = waitTimer;
+        }
+
+        private void deactivate() {
+            active = false;
+            credited = false;
+            deficit = 0;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package com.netty.manager;
+
+import com.netty.config.ModbusConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-21 09:55
+ * {@code @description:}
+ * 设备熔断器注册表，Key: deviceKey (ip:port:slaveId)。按状态统计的设备数与打开次数暴露为 Micrometer 指标。
+ */
+@Slf4j
+@Component
+public class CircuitBreakerRegistry {
+
+    private final Map<String, DeviceCircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ModbusConfig modbusConfig;
+    private final Counter tripCounter;
+
+    public CircuitBreakerRegistry(ModbusConfig modbusConfig, MeterRegistry meterRegistry) {
+        this.modbusConfig = modbusConfig;
+        for (DeviceCircuitBreaker.State state : DeviceCircuitBreaker.State.values()) {
+            Gauge.builder("modbus.breaker.devices", this, r -> r.countByState(state))
+                    .tag("state", state.name().toLowerCase())
+                    .description("按熔断状态统计的设备数")
+                    .register(meterRegistry);
+        }
+        this.tripCounter = Counter.builder("modbus.breaker.trips")
+                .description("熔断器打开次数")
+                .register(meterRegistry);
+    }
+
+    public DeviceCircuitBreaker getOrCreate(String deviceKey) {
+        return breakers.computeIfAbsent(deviceKey, k -> new DeviceCircuitBreaker(k,
+                modbusConfig.getBreakerFailureThreshold(),
+                modbusConfig.getBreakerOpenTime(),
+                modbusConfig.getBreakerMaxOpenTime()));
+    }
+
+    public DeviceCircuitBreaker get(String deviceKey) {
+        return breakers.get(deviceKey);
+    }
+
+    public void remove(String deviceKey) {
+        breakers.remove(deviceKey);
+    }
+
+    /**
+     * 记录失败，若熔断器因此打开则计数并告警
+     */
+    public void recordFailure(DeviceCircuitBreaker breaker, String reason) {
+        long trips = breaker.getTripCount();
+        breaker.recordFailure(reason, System.currentTimeMillis());
+        onTrip(breaker, trips, reason);
+    }
+
+    /**
+     * 记录探测失败（只有当前探测的结果生效），熔断器重新打开时计数并告警
+     */
+    public void recordProbeFailure(DeviceCircuitBreaker breaker, long probe, String reason) {
+        long trips = breaker.getTripCount();
+        breaker.recordProbeFailure(probe, reason, System.currentTimeMillis());
+        onTrip(breaker, trips, reason);
+    }
+
+    private void onTrip(DeviceCircuitBreaker breaker, long trips, String reason) {
+        if (breaker.getTripCount() != trips) {
+            tripCounter.increment();
+            log.warn("设备 {} 熔断打开，{}ms 后探测，原因: {}", breaker.getDeviceKey(),
+                    breaker.getCurrentOpenTime(), reason);
+        }
+    }
+
+    public Collection<DeviceCircuitBreaker> all() {
+        return breakers.values();
+    }
+
+    /**
+     * 非关闭状态的熔断器
+     */
+    public List<DeviceCircuitBreaker> tripped() {
+        List<DeviceCircuitBreaker> list = new ArrayList<>();
+        for (DeviceCircuitBreaker breaker : breakers.values()) {
+            if (breaker.getState() != DeviceCircuitBreaker.State.CLOSED) {
+                list.add(breaker);
+            }
+        }
+        return list;
+    }
+
+    private double countByState(DeviceCircuitBreaker.State state) {
+        int count = 0;
+        for (DeviceCircuitBreaker breaker : breakers.values()) {
+            if (breaker.getState() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,72 @@
+package com.netty.manager;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-01 09:20
+ * {@code @description:}
+ * 建连限流：同时进行中的建连数上限 + 每秒新建连接数（令牌桶，桶容量为 1 秒的令牌）。
+ * 首次上线与断网恢复时所有建连都经过这里，避免对现场网络发起 SYN 风暴。参数 <=0 表示不限制。
+ */
+public class ConnectLimiter {
+
+    private final int maxPending;
+    private final double ratePerSecond;
+
+    private int pending;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    public ConnectLimiter(int maxPending, double ratePerSecond) {
+        this.maxPending = maxPending;
+        this.ratePerSecond = ratePerSecond;
+        this.tokens = Math.max(1, ratePerSecond);
+    }
+
+    /**
+     * 申请一次建连，成功后必须在建连结束（成功或失败）时调用 {@link #release()}
+     */
+    public synchronized boolean tryAcquire() {
+        if (maxPending > 0 && pending >= maxPending) {
+            return false;
+        }
+        if (ratePerSecond > 0) {
+            refill();
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+        }
+        pending++;
+        return true;
+    }
+
+    public synchronized void release() {
+        if (pending > 0) {
+            pending--;
+        }
+    }
+
+    /**
+     * 当前是否已无法再发起建连
+     */
+    public synchronized boolean isSaturated() {
+        if (maxPending > 0 && pending >= maxPending) {
+            return true;
+        }
+        if (ratePerSecond > 0) {
+            refill();
+            return tokens < 1;
+        }
+        return false;
+    }
+
+    public synchronized int pending() {
+        return pending;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(Math.max(1, ratePerSecond), tokens + (now - lastRefill) * ratePerSecond / 1e9);
+        lastRefill = now;
+    }
+}
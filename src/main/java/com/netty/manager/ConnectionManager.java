@@ -1,20 +1,41 @@
 package com.netty.manager;
 
+import com.netty.capture.WireCaptureHandler;
+import com.netty.capture.WireCaptureService;
+import com.netty.config.ModbusConfig;
+import com.netty.core.DeviceRegistry;
 import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusCallback;
 import com.netty.core.common.ModbusTask;
+import com.netty.core.common.QueuedTask;
 import com.netty.core.handler.ModbusDecoder;
 import com.netty.core.handler.ModbusEncoder;
 import com.netty.core.handler.ModbusResponseHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 
@@ -26,55 +47,553 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component
 @Slf4j
 public class ConnectionManager {
-    // Key: "ip:port"
-    private final Map<String, ChannelTaskCoordinator> coordinatorMap = new ConcurrentHashMap<>();
-    private final EventLoopGroup group = new NioEventLoopGroup(Runtime.getRuntime().availableProcessors());
+    @Autowired
+    private ModbusConfig modbusConfig;
 
-    public void send(DeviceConfig device, ModbusTask task) {
-        String key = device.getIp() + ":" + device.getPort();
-        ChannelTaskCoordinator coordinator = coordinatorMap.get(key);
+    @Autowired
+    private MeterRegistry meterRegistry;
 
+    @Autowired
+    private WireCaptureService captureService;
+
+    @Autowired
+    private SitePartitions partitions;
+
+    // 没有可用会话（全部处于重连退避中）时的共享异常
+    private static final IllegalStateException NO_SESSION = new IllegalStateException("No available Modbus session");
+    // 建连限流或连接预算已满、本次未能建连（或会话被主动回收）：不是设备故障，不计入熔断
+    public static final IllegalStateException CONNECT_DEFERRED = new IllegalStateException("Modbus connect deferred by rate limit");
+
+    static {
+        NO_SESSION.setStackTrace(new StackTraceElement[0]);
+        CONNECT_DEFERRED.setStackTrace(new StackTraceElement[0]);
+    }
+
+    // Key: "ip:port"，每个端点一个连接池
+    private final Map<String, EndpointPool> coordinatorMap = new ConcurrentHashMap<>();
+    // 按端点句柄索引的连接池（与 coordinatorMap 中是同一批对象），已登记设备的热路径只走这里
+    private volatile EndpointPool[] pools = new EndpointPool[0];
+
+    // 已建立与建连中的会话数（连接预算 maxConnections 按它判定）
+    private final AtomicInteger sessions = new AtomicInteger();
+    private Counter evictedIdle;
+    private Counter evictedBudget;
+    private Counter livenessProbes;
+    private Counter livenessDead;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("modbus.connections.open", sessions, AtomicInteger::get)
+                .description("已建立与建连中的 TCP 会话数").register(meterRegistry);
+        evictedIdle = Counter.builder("modbus.connections.evicted").tag("reason", "idle")
+                .description("空闲超时关闭的会话").register(meterRegistry);
+        evictedBudget = Counter.builder("modbus.connections.evicted").tag("reason", "budget")
+                .description("为腾出连接预算淘汰的空闲会话").register(meterRegistry);
+        livenessProbes = Counter.builder("modbus.liveness.probes")
+                .description("静默链路上发出的探测读").register(meterRegistry);
+        livenessDead = Counter.builder("modbus.liveness.dead")
+                .description("探测读连续超时判定失效而关闭的会话").register(meterRegistry);
+        int idleTimeout = modbusConfig.getConnectionIdleTimeout();
+        if (idleTimeout > 0) {
+            long period = Math.max(1000, Math.min(10000, idleTimeout / 4));
+            // 空闲会话回收，精度为空闲超时的 1/4（1-10 秒）
+            partitions.defaultPartition().getScheduler().scheduleAtFixedRate(this::closeIdle, period);
+        }
+    }
+
+    public void send(DeviceConfig device, ModbusTask task, ModbusCallback callback) {
+        send(device, task, callback, System.currentTimeMillis());
+    }
+
+    /**
+     * @param scheduledTime 本次采样的计划时间 (epoch ms)，随请求上下文带到结果中
+     */
+    public void send(DeviceConfig device, ModbusTask task, ModbusCallback callback, long scheduledTime) {
+        EndpointPool pool = pool(device);
+        ChannelTaskCoordinator coordinator = select(pool, device);
         if (coordinator == null) {
-            synchronized (this) {
-                coordinator = coordinatorMap.get(key);
-                if (coordinator == null) {
-                    try {
-                        Channel ch = connect(device.getIp(), device.getPort());
-                        coordinator = new ChannelTaskCoordinator(ch);
-                        coordinatorMap.put(key, coordinator);
-                    } catch (Exception e) {
-                        log.error("无法连接到 {}:{}", device.getIp(), device.getPort());
-                        return;
-                    }
+            // 连接失败同样以失败回调通知调用方（熔断器据此计数）；限流或连接预算导致的未建连单独区分
+            boolean deferred = pool.getPartition().getConnectLimiter().isSaturated() || budgetExhausted();
+            fail(device, task, callback, deferred ? CONNECT_DEFERRED : NO_SESSION);
+            return;
+        }
+        enqueue(coordinator, device, task, callback, scheduledTime);
+    }
+
+    /**
+     * 不阻塞调用线程的发送（IO 线程、代理 Worker 等不能同步建连的地方使用）：端点已有会话时直接入队；
+     * 否则先预建连，会话就绪（或建连结束）后回到端点所属站点分区的调度线程按 send 发送
+     */
+    public void sendAsync(DeviceConfig device, ModbusTask task, ModbusCallback callback) {
+        EndpointPool pool = pool(device);
+        ChannelTaskCoordinator coordinator = existing(pool, device);
+        if (coordinator != null) {
+            enqueue(coordinator, device, task, callback, System.currentTimeMillis());
+            return;
+        }
+        Runnable onReady = () -> pool.getPartition().getScheduler().execute(() -> send(device, task, callback));
+        if (!preconnect(device, onReady)) {
+            // 建连限流已满：交给调度线程，由 send 按限流结果失败
+            onReady.run();
+        }
+    }
+
+    private void enqueue(ChannelTaskCoordinator coordinator, DeviceConfig device, ModbusTask task,
+                         ModbusCallback callback, long scheduledTime) {
+        if (device.getTimeoutTick() > 0) {
+            coordinator.requestSweepTick(device.getTimeoutTick());
+        }
+        QueuedTask qTask = QueuedTask.newInstance(device, task, callback);
+        qTask.setScheduledTime(scheduledTime);
+        coordinator.enqueue(qTask);
+    }
+
+    /**
+     * 已建立的会话中选一个（不建连）：开启从站亲和时优先固定槽位，否则取负载最小的，没有会话返回 null
+     */
+    private ChannelTaskCoordinator existing(EndpointPool pool, DeviceConfig device) {
+        int n = pool.size();
+        if (modbusConfig.isSlaveAffinity()) {
+            ChannelTaskCoordinator c = pool.get((device.getSlaveId() & 0xFF) % n);
+            if (c != null) {
+                return c;
+            }
+        }
+        ChannelTaskCoordinator best = null;
+        for (int i = 0; i < n; i++) {
+            ChannelTaskCoordinator c = pool.get(i);
+            if (c != null && (best == null || c.load() < best.load())) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 登记新编译的设备注册表（设备同步时调用，须在设备开始轮询之前）：为新端点（含复用回收句柄的）准备好连接池，
+     * 不再有设备的端点移出并关闭其会话
+     */
+    public synchronized void register(DeviceRegistry registry) {
+        EndpointPool[] current = pools;
+        EndpointPool[] next = new EndpointPool[registry.endpointCount()];
+        for (int e = 0; e < next.length && e < current.length; e++) {
+            if (current[e] != null && current[e].getKey().equals(registry.endpointKey(e))) {
+                next[e] = current[e];
+            }
+        }
+        // 新端点的池大小以端点下首个设备为准；临时设备可能已按 ip:port 建过池，沿用同一个
+        for (int d = 0; d < registry.deviceCount(); d++) {
+            int endpoint = registry.endpointOf(d);
+            if (next[endpoint] == null) {
+                DeviceConfig device = registry.device(d);
+                next[endpoint] = coordinatorMap.computeIfAbsent(registry.endpointKey(endpoint),
+                        k -> newPool(k, device));
+            }
+        }
+        pools = next;
+        Set<EndpointPool> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(Arrays.asList(next));
+        for (EndpointPool pool : current) {
+            if (pool != null && !kept.contains(pool)) {
+                retire(pool);
+            }
+        }
+    }
+
+    /**
+     * 现有连接池（含临时请求按需建的）所在的站点分区，这些分区不能回收
+     */
+    public Set<SitePartition> partitionsInUse() {
+        Set<SitePartition> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (EndpointPool pool : coordinatorMap.values()) {
+            used.add(pool.getPartition());
+        }
+        return used;
+    }
+
+    /**
+     * 端点已没有设备：移出连接池表并关闭全部会话，之后的临时请求按需重新建池
+     */
+    private void retire(EndpointPool pool) {
+        coordinatorMap.remove(pool.getKey(), pool);
+        pool.retire();
+        int closed = 0;
+        for (int i = 0; i < pool.size(); i++) {
+            ChannelTaskCoordinator c = pool.get(i);
+            if (c != null && c.evict()) {
+                closed++;
+            }
+        }
+        log.info("端点已无设备，移除连接池: {}，关闭 {} 个会话", pool.getKey(), closed);
+    }
+
+    /**
+     * 设备所在端点的连接池：已登记设备按端点句柄直接取，未登记的（如 REST 临时写入）按 ip:port 查找
+     */
+    private EndpointPool pool(DeviceConfig device) {
+        int handle = device.getEndpoint();
+        EndpointPool[] current = pools;
+        if (handle >= 0 && handle < current.length && current[handle] != null) {
+            return current[handle];
+        }
+        return coordinatorMap.computeIfAbsent(device.getIp() + ":" + device.getPort(), k -> newPool(k, device));
+    }
+
+    private EndpointPool newPool(String key, DeviceConfig device) {
+        return new EndpointPool(key, device.getIp(), device.getPort(), resolvePoolSize(device),
+                partitions.get(device.getSite()));
+    }
+
+    /**
+     * 所有会话中单个从站子队列自上次调用以来的最大深度（背压判定，读取后清零）
+     */
+    public int maxSlaveBacklog() {
+        int max = 0;
+        for (EndpointPool pool : coordinatorMap.values()) {
+            for (int i = 0; i < pool.size(); i++) {
+                ChannelTaskCoordinator c = pool.get(i);
+                if (c != null) {
+                    max = Math.max(max, c.takePeakSlaveQueue());
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 所有会话中最大的积压请求数（含所有从站与在途请求）
+     */
+    public int maxLoad() {
+        int max = 0;
+        for (EndpointPool pool : coordinatorMap.values()) {
+            for (int i = 0; i < pool.size(); i++) {
+                ChannelTaskCoordinator c = pool.get(i);
+                if (c != null && c.load() > max) {
+                    max = c.load();
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 选择会话：开启从站亲和时按 slaveId 固定槽位（槽位不可用时退回负载均衡），
+     * 否则选负载最小的会话；所有会话都忙且还有空槽位时，按需建立新会话
+     */
+    private ChannelTaskCoordinator select(EndpointPool pool, DeviceConfig device) {
+        int n = pool.size();
+        if (n == 1) {
+            ChannelTaskCoordinator c = pool.get(0);
+            return c != null ? c : connectSlot(pool, 0, device);
+        }
+
+        long now = System.currentTimeMillis();
+        if (modbusConfig.isSlaveAffinity()) {
+            int slot = (device.getSlaveId() & 0xFF) % n;
+            ChannelTaskCoordinator c = pool.get(slot);
+            if (c == null && pool.canRetry(slot, now)) {
+                c = connectSlot(pool, slot, device);
+            }
+            if (c != null) {
+                return c;
+            }
+        }
+
+        ChannelTaskCoordinator best = null;
+        int emptySlot = -1;
+        for (int i = 0; i < n; i++) {
+            ChannelTaskCoordinator c = pool.get(i);
+            if (c == null) {
+                if (emptySlot < 0 && pool.canRetry(i, now)) {
+                    emptySlot = i;
                 }
+                continue;
+            }
+            if (best == null || c.load() < best.load()) {
+                best = c;
+            }
+        }
+        if (emptySlot >= 0 && (best == null || best.load() > 0)) {
+            ChannelTaskCoordinator c = connectSlot(pool, emptySlot, device);
+            if (c != null) {
+                return c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 建立单个槽位的会话（轮询线程同步等待），失败后该槽位进入重连退避，不影响其它槽位；
+     * 建连限流已满、连接预算腾不出名额或该槽位正在建连时直接返回 null
+     */
+    private ChannelTaskCoordinator connectSlot(EndpointPool pool, int slot, DeviceConfig device) {
+        ChannelFuture future;
+        synchronized (pool.lock(slot)) {
+            ChannelTaskCoordinator coordinator = pool.get(slot);
+            if (coordinator != null) {
+                return coordinator;
+            }
+            if (pool.isConnecting(slot) || !pool.canRetry(slot, System.currentTimeMillis())
+                    || !pool.getPartition().getConnectLimiter().tryAcquire()) {
+                return null;
+            }
+            if (!reserveSession()) {
+                pool.getPartition().getConnectLimiter().release();
+                return null;
+            }
+            pool.setConnecting(slot, true);
+            future = connect(pool, slot);
+        }
+        future.awaitUninterruptibly();
+        return finishConnect(pool, slot, device, future);
+    }
+
+    /**
+     * 预建连（上线爬坡使用）：不阻塞调用线程，会话就绪（或建连失败）后执行 onReady。
+     * 端点已有会话、正在建连或处于重连退避时立即执行 onReady；建连限流已满时返回 false，调用方稍后重试。
+     * 连接预算已满且没有可淘汰的空闲会话时同样立即执行 onReady：设备照常开始轮询，等有名额时按需建连。
+     */
+    public boolean preconnect(DeviceConfig device, Runnable onReady) {
+        EndpointPool pool = pool(device);
+        int slot = modbusConfig.isSlaveAffinity() ? (device.getSlaveId() & 0xFF) % pool.size() : 0;
+        ChannelFuture future;
+        synchronized (pool.lock(slot)) {
+            if (pool.get(slot) != null || pool.isConnecting(slot) || !pool.canRetry(slot, System.currentTimeMillis())) {
+                onReady.run();
+                return true;
+            }
+            if (!pool.getPartition().getConnectLimiter().tryAcquire()) {
+                return false;
             }
+            if (!reserveSession()) {
+                pool.getPartition().getConnectLimiter().release();
+                onReady.run();
+                return true;
+            }
+            pool.setConnecting(slot, true);
+            future = connect(pool, slot);
+        }
+        future.addListener(f -> {
+            finishConnect(pool, slot, device, future);
+            onReady.run();
+        });
+        return true;
+    }
+
+    /**
+     * 建连结束（每次建连只调用一次）：归还限流名额，成功则登记会话（会话名额在链路关闭时归还），失败则归还会话名额并进入退避
+     */
+    private ChannelTaskCoordinator finishConnect(EndpointPool pool, int slot, DeviceConfig device, ChannelFuture future) {
+        pool.getPartition().getConnectLimiter().release();
+        synchronized (pool.lock(slot)) {
+            pool.setConnecting(slot, false);
+            if (!future.isSuccess()) {
+                sessions.decrementAndGet();
+                log.error("无法连接到 {}#{}", pool.getKey(), slot);
+                pool.markFailed(slot, System.currentTimeMillis() + modbusConfig.getReconnectInterval());
+                return null;
+            }
+            future.channel().closeFuture().addListener(f -> sessions.decrementAndGet());
+            ChannelTaskCoordinator coordinator = new ChannelTaskCoordinator(future.channel(), pool.getKey(),
+                    modbusConfig, resolveTimeoutTick(device), meterRegistry);
+            pool.set(slot, coordinator);
+            if (pool.isRetired()) {
+                // 建连期间端点已被移除
+                coordinator.evict();
+            }
+            if (pool.size() > 1) {
+                log.info("会话建立: {}#{}", pool.getKey(), slot);
+            }
+            return coordinator;
         }
-        coordinator.enqueue(device, task);
     }
 
-    private Channel connect(String ip, int port) throws Exception {
+    /**
+     * 进行中的建连数
+     */
+    public int pendingConnects() {
+        return partitions.pendingConnects();
+    }
+
+    private boolean budgetExhausted() {
+        int max = modbusConfig.getMaxConnections();
+        return max > 0 && sessions.get() >= max;
+    }
+
+    /**
+     * 占用一个会话名额：预算已满时淘汰最久未使用的空闲会话，没有可淘汰的返回 false。
+     * 被淘汰的会话在链路关闭后才归还名额，这期间允许短暂超出预算一个
+     */
+    private boolean reserveSession() {
+        int max = modbusConfig.getMaxConnections();
+        while (true) {
+            int n = sessions.get();
+            if (max > 0 && n >= max) {
+                break;
+            }
+            if (sessions.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+        ChannelTaskCoordinator victim = leastRecentlyUsed(System.nanoTime(),
+                TimeUnit.MILLISECONDS.toNanos(modbusConfig.getConnectionEvictMinIdle()));
+        if (victim == null || !victim.evict()) {
+            return false;
+        }
+        evictedBudget.increment();
+        sessions.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 空闲时长不短于 minIdle 且没有积压请求的会话中，最久未使用的一个
+     */
+    private ChannelTaskCoordinator leastRecentlyUsed(long now, long minIdle) {
+        ChannelTaskCoordinator victim = null;
+        for (EndpointPool pool : coordinatorMap.values()) {
+            for (int i = 0; i < pool.size(); i++) {
+                ChannelTaskCoordinator c = pool.get(i);
+                if (c == null || c.load() > 0 || now - c.lastActive() < minIdle) {
+                    continue;
+                }
+                if (victim == null || c.lastActive() < victim.lastActive()) {
+                    victim = c;
+                }
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * 关闭空闲超时的会话（定时执行）：轮询周期长于空闲超时的设备每次轮询按需重连，不长期占用连接
+     */
+    private void closeIdle() {
+        long now = System.nanoTime();
+        long idle = TimeUnit.MILLISECONDS.toNanos(modbusConfig.getConnectionIdleTimeout());
+        for (EndpointPool pool : coordinatorMap.values()) {
+            for (int i = 0; i < pool.size(); i++) {
+                ChannelTaskCoordinator c = pool.get(i);
+                if (c != null && c.load() == 0 && now - c.lastActive() >= idle && c.evict()) {
+                    evictedIdle.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 连接预算概况（REST 展示）
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("open", sessions.get());
+        map.put("maxConnections", modbusConfig.getMaxConnections());
+        map.put("pendingConnects", pendingConnects());
+        map.put("endpoints", coordinatorMap.size());
+        map.put("idleTimeout", modbusConfig.getConnectionIdleTimeout());
+        map.put("evictedIdle", (long) evictedIdle.count());
+        map.put("evictedBudget", (long) evictedBudget.count());
+        map.put("livenessProbes", (long) livenessProbes.count());
+        map.put("livenessDead", (long) livenessDead.count());
+        return map;
+    }
+
+    private void fail(DeviceConfig device, ModbusTask task, ModbusCallback callback, Throwable cause) {
+        QueuedTask failed = QueuedTask.newInstance(device, task, callback);
+        try {
+            callback.onFailure(failed, cause);
+        } finally {
+            failed.recycle();
+        }
+    }
+
+    private int resolvePoolSize(DeviceConfig device) {
+        return device.getConnections() > 0 ? device.getConnections() : modbusConfig.getConnectionsPerEndpoint();
+    }
+
+    private int resolveTimeoutTick(DeviceConfig device) {
+        return device.getTimeoutTick() > 0 ? device.getTimeoutTick() : modbusConfig.getTimeoutTick();
+    }
+
+    /**
+     * 链路判定失效后的快速恢复（EventLoop 线程）：不进入重连退避，立即预建连；
+     * 排队中的写请求与高优先级请求在新会话就绪后重发，不必等下一个轮询周期
+     */
+    private void failover(EndpointPool pool, ChannelTaskCoordinator dead) {
+        List<Runnable> resend = new ArrayList<>();
+        DeviceConfig device = dead.lastDevice();
+        dead.clear(qTask -> {
+            // 请求上下文随即回收，这里先取出需要的字段
+            DeviceConfig d = qTask.getDevice();
+            ModbusTask task = qTask.getTask();
+            ModbusCallback callback = qTask.getCallback();
+            long scheduledTime = qTask.getScheduledTime();
+            resend.add(() -> send(d, task, callback, scheduledTime));
+        });
+        // 重发可能同步建连，放到调度线程上执行
+        Runnable onReady = () -> pool.getPartition().getScheduler().execute(() -> resend.forEach(Runnable::run));
+        if (device == null || !preconnect(device, onReady)) {
+            onReady.run();
+        }
+        log.info("链路失效恢复: {}，重发 {} 个排队请求", pool.getKey(), resend.size());
+    }
+
+    private ChannelFuture connect(EndpointPool pool, int slot) {
         Bootstrap b = new Bootstrap();
-        b.group(group).channel(NioSocketChannel.class)
+        // 链路落在端点所属站点分区的线程组上，收发、超时扫描与结果分发都不跨站点
+        b.group(pool.getPartition().getGroup()).channel(NioSocketChannel.class)
                 .option(ChannelOption.TCP_NODELAY, true)
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, modbusConfig.getConnectTimeout())
                 .handler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel ch) {
+                        if (captureService.isInstalled()) {
+                            // 先按 MBAP 长度切帧：入站每条记录是一个完整的响应帧（而不是任意的 TCP 分段），
+                            // 出站看到编码后的请求帧
+                            ch.pipeline().addLast(ModbusDecoder.framer());
+                            ch.pipeline().addLast(new WireCaptureHandler(captureService, pool.getKey()));
+                        }
+                        if (modbusConfig.getLivenessIdle() > 0) {
+                            // 读静默超时触发探测读
+                            ch.pipeline().addLast(new IdleStateHandler(modbusConfig.getLivenessIdle(), 0, 0,
+                                    TimeUnit.MILLISECONDS));
+                        }
                         ch.pipeline().addLast(new ModbusDecoder(), new ModbusEncoder(), new ModbusResponseHandler());
-                        // 监听链路断开
+                        // 监听链路断开：只清理本槽位，其它会话不受影响
                         ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                                if (!(evt instanceof IdleStateEvent)) {
+                                    ctx.fireUserEventTriggered(evt);
+                                    return;
+                                }
+                                ChannelTaskCoordinator c = ctx.channel().attr(ChannelTaskCoordinator.COORDINATOR).get();
+                                if (c != null && c.probe()) {
+                                    livenessProbes.increment();
+                                }
+                            }
+
                             @Override
                             public void channelInactive(ChannelHandlerContext ctx) {
-                                String key = ip + ":" + port;
-                                log.warn("链路断开: {}", key);
-                                ChannelTaskCoordinator c = coordinatorMap.remove(key);
-                                if (c != null) {
+                                ChannelTaskCoordinator c = ctx.channel().attr(ChannelTaskCoordinator.COORDINATOR).get();
+                                if (c != null && c.isEvicted()) {
+                                    log.debug("空闲会话已关闭: {}#{}", pool.getKey(), slot);
+                                } else {
+                                    log.warn("链路断开: {}#{}", pool.getKey(), slot);
+                                }
+                                if (c == null) {
+                                    return;
+                                }
+                                pool.clear(slot, c);
+                                if (c.isDead()) {
+                                    livenessDead.increment();
+                                    failover(pool, c);
+                                } else {
                                     c.clear();
                                 }
                             }
                         });
                     }
                 });
-        return b.connect(ip, port).sync().channel();
+        return b.connect(pool.getIp(), pool.getPort());
     }
-}
\ No newline at end of file
+}
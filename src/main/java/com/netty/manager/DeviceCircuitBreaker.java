@@ -0,0 +1,155 @@
+package com.netty.manager;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-21 09:40
+ * {@code @description:}
+ * 单设备(ip:port:slaveId)熔断器：连续超时/异常响应达到阈值后打开，打开期间跳过轮询；
+ * 到期后进入半开状态，只发一次廉价探测读，成功则关闭，失败则按倍数延长打开时间。
+ * 打开与半开期间只认当前探测的结果：熔断前已在途的普通请求、被重发替代的旧探测迟到的结果都不改变状态。
+ * 结果在 EventLoop 线程记录，判定在调度线程执行，统一用对象锁保护。
+ */
+@Getter
+public class DeviceCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public enum Decision {
+        // 正常轮询
+        POLL,
+        // 发送一次探测读
+        PROBE,
+        // 跳过本轮
+        SKIP
+    }
+
+    private final String deviceKey;
+    private final int failureThreshold;
+    private final long baseOpenTime;
+    private final long maxOpenTime;
+
+    private State state = State.CLOSED;
+    // 连续失败次数
+    private int consecutiveFailures;
+    // 累计打开次数
+    private long tripCount;
+    // 最近一次失败原因
+    private String lastFailure;
+    // 打开时间 / 下次允许探测的时间(ms)
+    private long openedAt;
+    private long nextProbeAt;
+    // 最近一次探测的发出时间(ms)
+    private long probeStartedAt;
+    // 当前打开时长(ms)，探测失败时翻倍
+    private long currentOpenTime;
+    // 探测编号：每发出一次探测读递增，只有当前编号的结果能结束半开
+    @Getter(AccessLevel.NONE)
+    private long probeId;
+
+    public DeviceCircuitBreaker(String deviceKey, int failureThreshold, long baseOpenTime, long maxOpenTime) {
+        this.deviceKey = deviceKey;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.baseOpenTime = baseOpenTime;
+        this.maxOpenTime = Math.max(baseOpenTime, maxOpenTime);
+        this.currentOpenTime = baseOpenTime;
+    }
+
+    /**
+     * 调度前判定本轮是否轮询
+     */
+    public synchronized Decision tryAcquire(long now) {
+        switch (state) {
+            case CLOSED:
+                return Decision.POLL;
+            case OPEN:
+                if (now >= nextProbeAt) {
+                    state = State.HALF_OPEN;
+                    probeStartedAt = now;
+                    probeId++;
+                    return Decision.PROBE;
+                }
+                return Decision.SKIP;
+            default:
+                // 半开：探测请求在途，等待结果；探测丢失（队列清理、断链）时到期重发
+                if (now - probeStartedAt >= baseOpenTime) {
+                    probeStartedAt = now;
+                    probeId++;
+                    return Decision.PROBE;
+                }
+                return Decision.SKIP;
+        }
+    }
+
+    /**
+     * 本次 tryAcquire 返回 PROBE 后发出的探测的编号，随探测请求带回结果
+     */
+    public synchronized long currentProbe() {
+        return probeId;
+    }
+
+    /**
+     * 普通请求成功：只在关闭状态下清零连续失败，打开 / 半开期间的迟到结果忽略
+     */
+    public synchronized void recordSuccess() {
+        if (state == State.CLOSED) {
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * 普通请求失败：只在关闭状态下累计，打开 / 半开期间的迟到结果忽略
+     */
+    public synchronized void recordFailure(String reason, long now) {
+        if (state != State.CLOSED) {
+            return;
+        }
+        lastFailure = reason;
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            open(now);
+        }
+    }
+
+    /**
+     * 探测成功：当前探测的结果才关闭熔断器
+     */
+    public synchronized void recordProbeSuccess(long probe) {
+        if (state != State.HALF_OPEN || probe != probeId) {
+            return;
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        currentOpenTime = baseOpenTime;
+    }
+
+    /**
+     * 探测失败：当前探测的结果才重新打开，并延长打开时间
+     */
+    public synchronized void recordProbeFailure(long probe, String reason, long now) {
+        if (state != State.HALF_OPEN || probe != probeId) {
+            return;
+        }
+        lastFailure = reason;
+        consecutiveFailures++;
+        currentOpenTime = Math.min(maxOpenTime, currentOpenTime * 2);
+        open(now);
+    }
+
+    public synchronized void reset() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        currentOpenTime = baseOpenTime;
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        tripCount++;
+        openedAt = now;
+        nextProbeAt = now + currentOpenTime;
+    }
+}
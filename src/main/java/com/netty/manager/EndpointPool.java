@@ -0,0 +1,110 @@
+package com.netty.manager;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-22 14:05
+ * {@code @description:}
+ * 单个 ip:port 的连接池：固定数量的会话槽位，每个槽位持有一个 Coordinator，独立建连、独立断线重连。
+ * 连接池归属一个站点分区（以端点首个设备的站点为准），建连与收发都在该分区的线程上。
+ */
+@Getter
+public class EndpointPool {
+
+    private final String key;
+    private final String ip;
+    private final int port;
+    private final SitePartition partition;
+
+    private final AtomicReferenceArray<ChannelTaskCoordinator> sessions;
+    // 每个槽位的建连锁，避免单个槽位阻塞其它槽位
+    private final Object[] slotLocks;
+    // 每个槽位下次允许重连的时间(ms)，在槽位锁内读写
+    private final long[] nextRetryAt;
+    // 每个槽位是否有建连进行中，在槽位锁内读写
+    private final boolean[] connecting;
+    // 端点已从注册表移除，之后建立的会话立即关闭
+    private volatile boolean retired;
+
+    public EndpointPool(String key, String ip, int port, int size, SitePartition partition) {
+        this.key = key;
+        this.ip = ip;
+        this.port = port;
+        this.partition = partition;
+        int n = Math.max(1, size);
+        this.sessions = new AtomicReferenceArray<>(n);
+        this.slotLocks = new Object[n];
+        this.nextRetryAt = new long[n];
+        this.connecting = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            slotLocks[i] = new Object();
+        }
+    }
+
+    public void retire() {
+        retired = true;
+    }
+
+    public int size() {
+        return sessions.length();
+    }
+
+    /**
+     * 获取槽位上的可用会话；链路已断开（或已被淘汰）但尚未清理的会话顺带清掉
+     */
+    public ChannelTaskCoordinator get(int slot) {
+        ChannelTaskCoordinator coordinator = sessions.get(slot);
+        if (coordinator != null && (!coordinator.isActive() || coordinator.isEvicted())) {
+            sessions.compareAndSet(slot, coordinator, null);
+            return null;
+        }
+        return coordinator;
+    }
+
+    public void set(int slot, ChannelTaskCoordinator coordinator) {
+        sessions.set(slot, coordinator);
+    }
+
+    /**
+     * 仅当槽位仍是该 Coordinator 时清空（断线回调使用，防止误清新建立的会话）
+     */
+    public boolean clear(int slot, ChannelTaskCoordinator coordinator) {
+        return sessions.compareAndSet(slot, coordinator, null);
+    }
+
+    public Object lock(int slot) {
+        return slotLocks[slot];
+    }
+
+    public boolean canRetry(int slot, long now) {
+        return now >= nextRetryAt[slot];
+    }
+
+    public void markFailed(int slot, long retryAt) {
+        nextRetryAt[slot] = retryAt;
+    }
+
+    public boolean isConnecting(int slot) {
+        return connecting[slot];
+    }
+
+    public void setConnecting(int slot, boolean value) {
+        connecting[slot] = value;
+    }
+
+    /**
+     * 当前已建立的会话数
+     */
+    public int activeCount() {
+        int count = 0;
+        for (int i = 0; i < sessions.length(); i++) {
+            if (sessions.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,82 @@
+package com.netty.manager;
+
+import io.netty.channel.EventLoopGroup;
+import lombok.Getter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-11 09:30
+ * {@code @description:}
+ * 站点分区（舱壁）：一个站点 / 租户独占的 IO 线程组、轮询调度线程与建连限流，外加设备数配额。
+ * 某个站点大量重连或分发突增时只占满自己的线程，其它站点的轮询与响应时延不受影响。
+ */
+@Getter
+public final class SitePartition {
+
+    private final String name;
+    private final EventLoopGroup group;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final ConnectLimiter connectLimiter;
+    private final int ioThreads;
+    private final int pollThreads;
+    private final int maxDevices;
+
+    private final AtomicInteger devices = new AtomicInteger();
+
+    SitePartition(String name, EventLoopGroup group, ThreadPoolTaskScheduler scheduler, ConnectLimiter connectLimiter,
+                  int ioThreads, int pollThreads, int maxDevices) {
+        this.name = name;
+        this.group = group;
+        this.scheduler = scheduler;
+        this.connectLimiter = connectLimiter;
+        this.ioThreads = ioThreads;
+        this.pollThreads = pollThreads;
+        this.maxDevices = maxDevices;
+    }
+
+    /**
+     * 占用一个设备名额，配额已满返回 false
+     */
+    public boolean admit() {
+        while (true) {
+            int n = devices.get();
+            if (maxDevices > 0 && n >= maxDevices) {
+                return false;
+            }
+            if (devices.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还设备名额（设备移除时）
+     */
+    public void release() {
+        devices.decrementAndGet();
+    }
+
+    void shutdown() {
+        scheduler.shutdown();
+        group.shutdownGracefully();
+    }
+
+    /**
+     * 分区概况（REST 展示）
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("ioThreads", ioThreads);
+        map.put("pollThreads", pollThreads);
+        map.put("devices", devices.get());
+        map.put("maxDevices", maxDevices);
+        map.put("pendingConnects", connectLimiter.pending());
+        map.put("activePollThreads", scheduler.getActiveCount());
+        return map;
+    }
+}
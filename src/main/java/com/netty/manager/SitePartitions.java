@@ -0,0 +1,132 @@
+package com.netty.manager;
+
+import com.netty.config.ModbusConfig;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-11 09:30
+ * {@code @description:}
+ * 站点分区表：site 为空的设备使用默认分区（沿用全局的线程数与建连限流，同时承担定时维护任务）；
+ * 其它站点首次出现时按 sites 中的配置（没有则按 siteDefaults）创建独立分区；设备同步后，
+ * 已没有设备、也没有连接池引用的分区关闭并移除，站点再次出现时重新创建，线程数不随出现过的站点累积。
+ */
+@Slf4j
+@Component
+public class SitePartitions {
+
+    public static final String DEFAULT = "default";
+
+    @Autowired
+    private ModbusConfig modbusConfig;
+
+    // Key: site
+    private final Map<String, SitePartition> partitions = new ConcurrentHashMap<>();
+
+    private SitePartition defaultPartition;
+
+    @PostConstruct
+    public void init() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        // 设置线程池大小，500个设备建议 20-50 个调度线程即可（因为是非阻塞发送）
+        defaultPartition = create(DEFAULT, cpus, cpus * 2, 0,
+                modbusConfig.getMaxPendingConnects(), modbusConfig.getMaxConnectsPerSecond(), "ModbusPoll-");
+    }
+
+    /**
+     * 设备所属站点的分区
+     */
+    public SitePartition get(String site) {
+        if (site == null || site.isEmpty() || DEFAULT.equals(site)) {
+            return defaultPartition;
+        }
+        SitePartition partition = partitions.get(site);
+        return partition != null ? partition : partitions.computeIfAbsent(site, this::create);
+    }
+
+    public SitePartition defaultPartition() {
+        return defaultPartition;
+    }
+
+    private SitePartition create(String site) {
+        ModbusConfig.SiteQuota quota = modbusConfig.getSites().get(site);
+        if (quota == null) {
+            quota = modbusConfig.getSiteDefaults();
+        }
+        log.info("创建站点分区 {}: IO 线程 {}, 调度线程 {}, 设备上限 {}", site, quota.getIoThreads(),
+                quota.getPollThreads(), quota.getMaxDevices());
+        return create(site, quota.getIoThreads(), quota.getPollThreads(), quota.getMaxDevices(),
+                quota.getMaxPendingConnects(), quota.getMaxConnectsPerSecond(), "ModbusPoll-" + site + "-");
+    }
+
+    private static SitePartition create(String name, int ioThreads, int pollThreads, int maxDevices,
+                                        int maxPendingConnects, int maxConnectsPerSecond, String pollPrefix) {
+        int io = Math.max(1, ioThreads);
+        int poll = Math.max(1, pollThreads);
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poll);
+        scheduler.setThreadNamePrefix(pollPrefix);
+        scheduler.initialize();
+        NioEventLoopGroup group = new NioEventLoopGroup(io, new DefaultThreadFactory("modbus-io-" + name));
+        return new SitePartition(name, group, scheduler, new ConnectLimiter(maxPendingConnects, maxConnectsPerSecond),
+                io, poll, maxDevices);
+    }
+
+    /**
+     * 关闭已没有设备、也不被任何连接池引用的站点分区（设备同步并登记端点之后调用），默认分区不回收
+     *
+     * @param inUse 现有连接池所在的分区
+     */
+    public void retireIdle(Set<SitePartition> inUse) {
+        for (SitePartition partition : partitions.values()) {
+            if (partition.getDevices().get() == 0 && !inUse.contains(partition)
+                    && partitions.remove(partition.getName(), partition)) {
+                log.info("站点分区 {} 已无设备，关闭", partition.getName());
+                partition.shutdown();
+            }
+        }
+    }
+
+    /**
+     * 所有分区进行中的建连数
+     */
+    public int pendingConnects() {
+        int n = defaultPartition.getConnectLimiter().pending();
+        for (SitePartition partition : partitions.values()) {
+            n += partition.getConnectLimiter().pending();
+        }
+        return n;
+    }
+
+    /**
+     * 各分区概况，Key: site
+     */
+    public Map<String, Map<String, Object>> status() {
+        Map<String, Map<String, Object>> map = new TreeMap<>();
+        map.put(DEFAULT, defaultPartition.status());
+        for (Map.Entry<String, SitePartition> entry : partitions.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().status());
+        }
+        return map;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (SitePartition partition : partitions.values()) {
+            partition.shutdown();
+        }
+        defaultPartition.shutdown();
+    }
+}
@@ -0,0 +1,170 @@
+package com.netty.proxy;
+
+import com.netty.config.ModbusConfig;
+import com.netty.core.DeviceRegistry;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.handler.ModbusDecoder;
+import com.netty.core.handler.ModbusEncoder;
+import com.netty.manager.ConnectionManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-09 10:20
+ * {@code @description:}
+ * 代理模式：本服务同时作为 Modbus TCP 从站对外监听，SCADA / HMI 不再直连 PLC。
+ * 01-04 读请求直接用设备的最新值镜像应答（不访问设备）；05/06/16/23 写请求经 ConnectionManager 转发给设备，
+ * 与采集请求共用同一条链路排队，设备的应答（或异常）原样回给客户端。
+ * 对外 unitId 由设备配置的 proxyUnitId 指定，设备同步时随注册表一起登记。
+ */
+@Slf4j
+@Component
+public class ModbusProxyServer {
+
+    @Autowired
+    private ModbusConfig modbusConfig;
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 下标: 对外 unitId
+    private volatile DeviceConfig[] units = new DeviceConfig[256];
+
+    private final ChannelGroup clients = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Channel serverChannel;
+
+    Counter hits;
+    Counter misses;
+    Counter stale;
+    Counter forwarded;
+    Counter rejected;
+
+    @PostConstruct
+    public void start() throws InterruptedException {
+        hits = Counter.builder("modbus.proxy.requests").tag("result", "hit")
+                .description("代理读请求由镜像应答").register(meterRegistry);
+        misses = Counter.builder("modbus.proxy.requests").tag("result", "miss")
+                .description("代理读请求的地址未被采集").register(meterRegistry);
+        stale = Counter.builder("modbus.proxy.requests").tag("result", "stale")
+                .description("代理读请求的镜像已过期").register(meterRegistry);
+        forwarded = Counter.builder("modbus.proxy.requests").tag("result", "forward")
+                .description("代理写请求转发给设备").register(meterRegistry);
+        rejected = Counter.builder("modbus.proxy.requests").tag("result", "rejected")
+                .description("代理请求被拒绝（未映射的 unitId、不支持的功能码、非法参数）").register(meterRegistry);
+        if (!modbusConfig.isProxyEnabled()) {
+            return;
+        }
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        ProxyRequestHandler handler = new ProxyRequestHandler(this);
+        ServerBootstrap b = new ServerBootstrap();
+        b.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        clients.add(ch);
+                        // 服务端同样以 MBAP 帧收发，复用采集侧的编解码器
+                        ch.pipeline().addLast(new ModbusDecoder(), new ModbusEncoder(), handler);
+                    }
+                });
+        serverChannel = b.bind(modbusConfig.getProxyPort()).sync().channel();
+        log.info("Modbus 代理已监听端口 {}", modbusConfig.getProxyPort());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (serverChannel == null) {
+            return;
+        }
+        serverChannel.close().awaitUninterruptibly();
+        clients.close().awaitUninterruptibly();
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+    }
+
+    /**
+     * 按新编译的设备注册表重建 unitId 映射（设备同步时调用）；多个设备声明同一 unitId 时先到先得
+     */
+    public void register(DeviceRegistry registry) {
+        DeviceConfig[] next = new DeviceConfig[256];
+        for (int i = 0; i < registry.deviceCount(); i++) {
+            DeviceConfig device = registry.device(i);
+            int unit = device.getProxyUnitId();
+            if (unit <= 0 || unit > 247) {
+                continue;
+            }
+            if (next[unit] != null) {
+                log.warn("代理 unitId {} 重复: {} 与 {}，保留前者", unit, next[unit].getKey(), device.getKey());
+                continue;
+            }
+            next[unit] = device;
+        }
+        units = next;
+    }
+
+    DeviceConfig unit(int unitId) {
+        return units[unitId & 0xFF];
+    }
+
+    ConnectionManager connectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * 镜像允许的最大时长(ms)，<0 不检查
+     */
+    long maxAge(DeviceConfig device) {
+        int maxAge = modbusConfig.getProxyMaxAge();
+        return maxAge != 0 ? maxAge : device.getInterval() * 3L;
+    }
+
+    /**
+     * 代理状态（REST 展示）
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("enabled", serverChannel != null);
+        map.put("port", modbusConfig.getProxyPort());
+        Map<Integer, String> mapped = new LinkedHashMap<>();
+        DeviceConfig[] current = units;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != null) {
+                mapped.put(i, current[i].getKey());
+            }
+        }
+        map.put("units", mapped);
+        map.put("clients", clients.size());
+        map.put("hits", (long) hits.count());
+        map.put("misses", (long) misses.count());
+        map.put("stale", (long) stale.count());
+        map.put("forwarded", (long) forwarded.count());
+        map.put("rejected", (long) rejected.count());
+        return map;
+    }
+}
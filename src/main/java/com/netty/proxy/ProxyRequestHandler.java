@@ -0,0 +1,246 @@
+package com.netty.proxy;
+
+import com.netty.core.ModbusFrame;
+import com.netty.core.RegisterImage;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusCallback;
+import com.netty.core.common.ModbusTask;
+import com.netty.core.common.QueuedTask;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-09 10:20
+ * {@code @description:}
+ * 代理请求处理：读请求在 IO 线程上直接查镜像应答；写请求（含 23 先写后读）转发给设备，应答在设备链路的回调里回给客户端。
+ * 镜像中没有的地址回 02，镜像过期回 0x0B，未映射的 unitId 回 0x0A。
+ */
+@Slf4j
+@ChannelHandler.Sharable
+class ProxyRequestHandler extends SimpleChannelInboundHandler<ModbusFrame> {
+
+    private static final int ILLEGAL_FUNCTION = 0x01;
+    private static final int ILLEGAL_ADDRESS = 0x02;
+    private static final int ILLEGAL_VALUE = 0x03;
+    private static final int GATEWAY_PATH_UNAVAILABLE = 0x0A;
+    private static final int GATEWAY_TARGET_FAILED = 0x0B;
+
+    private final ModbusProxyServer server;
+
+    ProxyRequestHandler(ModbusProxyServer server) {
+        this.server = server;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ModbusFrame request) {
+        try {
+            handle(ctx.channel(), request);
+        } finally {
+            // 帧来自解码器的对象池，需要的字段已在 handle 中取出
+            request.recycle();
+        }
+    }
+
+    private void handle(Channel channel, ModbusFrame request) {
+        short tid = request.getTransactionId();
+        byte unitId = request.getUnitId();
+        int fc = request.getFunctionCode() & 0xFF;
+        byte[] payload = request.getPayload();
+        DeviceConfig device = server.unit(unitId);
+        if (device == null) {
+            server.rejected.increment();
+            channel.writeAndFlush(exception(tid, unitId, fc, GATEWAY_PATH_UNAVAILABLE));
+            return;
+        }
+        switch (fc) {
+            case 1:
+            case 2:
+            case 3:
+            case 4:
+                read(channel, device, tid, unitId, fc, payload);
+                break;
+            case 5:
+            case 6:
+            case 16:
+            case 23:
+                write(channel, device, tid, unitId, fc, payload);
+                break;
+            default:
+                server.rejected.increment();
+                channel.writeAndFlush(exception(tid, unitId, fc, ILLEGAL_FUNCTION));
+        }
+    }
+
+    private void read(Channel channel, DeviceConfig device, short tid, byte unitId, int fc, byte[] payload) {
+        if (payload.length < 4) {
+            server.rejected.increment();
+            channel.writeAndFlush(exception(tid, unitId, fc, ILLEGAL_VALUE));
+            return;
+        }
+        int start = u16(payload, 0);
+        int count = u16(payload, 2);
+        boolean bits = fc == 1 || fc == 2;
+        if (count < 1 || count > (bits ? 2000 : 125)) {
+            server.rejected.increment();
+            channel.writeAndFlush(exception(tid, unitId, fc, ILLEGAL_VALUE));
+            return;
+        }
+        RegisterImage image = device.getImage();
+        long maxAge = server.maxAge(device);
+        if (image == null || maxAge >= 0 && System.currentTimeMillis() - image.getUpdateTime() > maxAge) {
+            server.stale.increment();
+            channel.writeAndFlush(exception(tid, unitId, fc, GATEWAY_TARGET_FAILED));
+            return;
+        }
+        int[] values = new int[count];
+        if (!image.read(RegisterImage.table(fc), start, count, values)) {
+            // 区段里有未被采集的地址
+            server.misses.increment();
+            channel.writeAndFlush(exception(tid, unitId, fc, ILLEGAL_ADDRESS));
+            return;
+        }
+        byte[] data;
+        if (bits) {
+            data = new byte[1 + (count + 7) / 8];
+            for (int i = 0; i < count; i++) {
+                if (values[i] != 0) {
+                    data[1 + i / 8] |= (byte) (1 << (i % 8));
+                }
+            }
+        } else {
+            data = new byte[1 + count * 2];
+            for (int i = 0; i < count; i++) {
+                data[1 + i * 2] = (byte) (values[i] >> 8);
+                data[2 + i * 2] = (byte) values[i];
+            }
+        }
+        data[0] = (byte) (data.length - 1);
+        server.hits.increment();
+        channel.writeAndFlush(frame(tid, unitId, fc, data));
+    }
+
+    private void write(Channel channel, DeviceConfig device, short tid, byte unitId, int fc, byte[] payload) {
+        ModbusTask task = toWriteTask(fc, payload);
+        if (task == null) {
+            server.rejected.increment();
+            channel.writeAndFlush(exception(tid, unitId, fc, ILLEGAL_VALUE));
+            return;
+        }
+        // 正常应答：05/06 回显请求，16 回 起始地址 + 数量，23 原样转发设备读回的数据
+        byte[] echo = new byte[4];
+        System.arraycopy(payload, 0, echo, 0, 4);
+        server.forwarded.increment();
+        // Worker 线程不能同步建连：没有会话时先预建连，就绪后由设备所在分区的调度线程发送
+        server.connectionManager().sendAsync(device, task, new ModbusCallback() {
+            @Override
+            public void onResponse(QueuedTask req, ModbusFrame response) {
+                if ((response.getFunctionCode() & 0xFF) > 0x80) {
+                    int code = response.getPayload().length > 0 ? response.getPayload()[0] & 0xFF : GATEWAY_TARGET_FAILED;
+                    channel.writeAndFlush(exception(tid, unitId, fc, code));
+                } else {
+                    // 设备帧在回调返回后回收，23 的载荷需要拷贝
+                    channel.writeAndFlush(frame(tid, unitId, fc, fc == 23 ? response.getPayload().clone() : echo));
+                }
+            }
+
+            @Override
+            public void onFailure(QueuedTask req, Throwable cause) {
+                log.warn("代理写入转发失败: {} fc={} - {}", device.getKey(), fc, cause.getMessage());
+                channel.writeAndFlush(exception(tid, unitId, fc, GATEWAY_TARGET_FAILED));
+            }
+        });
+    }
+
+    /**
+     * 客户端写请求转成设备写任务，参数非法返回 null
+     */
+    private static ModbusTask toWriteTask(int fc, byte[] payload) {
+        if (fc == 23) {
+            return toReadWriteTask(payload);
+        }
+        if (payload.length < 4) {
+            return null;
+        }
+        int address = u16(payload, 0);
+        int[] values;
+        int type;
+        if (fc == 5) {
+            int raw = u16(payload, 2);
+            if (raw != 0xFF00 && raw != 0x0000) {
+                return null;
+            }
+            type = 5;
+            values = new int[]{raw == 0xFF00 ? 1 : 0};
+        } else if (fc == 6) {
+            type = 6;
+            values = new int[]{u16(payload, 2)};
+        } else {
+            int quantity = u16(payload, 2);
+            if (quantity < 1 || quantity > 123 || payload.length < 5
+                    || (payload[4] & 0xFF) != quantity * 2 || payload.length < 5 + quantity * 2) {
+                return null;
+            }
+            type = 16;
+            values = new int[quantity];
+            for (int i = 0; i < quantity; i++) {
+                values[i] = u16(payload, 5 + i * 2);
+            }
+        }
+        return ModbusTask.builder()
+                .taskId("proxy")
+                .type(type)
+                .startAddr(address)
+                .count(values.length)
+                .writeValues(values)
+                .build();
+    }
+
+    /**
+     * 23：读起始(2) 读数量(2) 写起始(2) 写数量(2) 字节数(1) 写入值
+     */
+    private static ModbusTask toReadWriteTask(byte[] payload) {
+        if (payload.length < 9) {
+            return null;
+        }
+        int readCount = u16(payload, 2);
+        int writeCount = u16(payload, 6);
+        if (readCount < 1 || readCount > 125 || writeCount < 1 || writeCount > 121
+                || (payload[8] & 0xFF) != writeCount * 2 || payload.length < 9 + writeCount * 2) {
+            return null;
+        }
+        int[] values = new int[writeCount];
+        for (int i = 0; i < writeCount; i++) {
+            values[i] = u16(payload, 9 + i * 2);
+        }
+        ModbusTask task = ModbusTask.readWrite(u16(payload, 4), values, u16(payload, 0), readCount);
+        task.setTaskId("proxy");
+        return task;
+    }
+
+    private static int u16(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 8) | (b[offset + 1] & 0xFF);
+    }
+
+    private static ModbusFrame frame(short tid, byte unitId, int fc, byte[] payload) {
+        ModbusFrame frame = new ModbusFrame();
+        frame.setTransactionId(tid);
+        frame.setUnitId(unitId);
+        frame.setFunctionCode((byte) fc);
+        frame.setPayload(payload);
+        return frame;
+    }
+
+    private static ModbusFrame exception(short tid, byte unitId, int fc, int code) {
+        return frame(tid, unitId, fc | 0x80, new byte[]{(byte) code});
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        log.warn("代理连接异常 {}: {}", ctx.channel().remoteAddress(), cause.getMessage());
+        ctx.close();
+    }
+}
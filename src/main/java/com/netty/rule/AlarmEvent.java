@@ -0,0 +1,43 @@
+package com.netty.rule;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-28 09:25
+ * {@code @description:}
+ * 告警事件：只在状态翻转（产生 / 恢复）时发布
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AlarmEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String RAISED = "RAISED";
+    public static final String CLEARED = "CLEARED";
+
+    private String deviceId;
+
+    private int slaveId;
+
+    private String taskId;
+
+    private String rule;
+
+    private String type;
+
+    private String severity;
+
+    // RAISED / CLEARED
+    private String state;
+
+    // 触发时的点位值（工程量）
+    private double value;
+
+    // 触发样本的接收时间 (epoch ms)
+    private long timestamp;
+}
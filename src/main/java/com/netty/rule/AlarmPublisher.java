@@ -0,0 +1,62 @@
+package com.netty.rule;
+
+import com.netty.config.ModbusConfig;
+import com.netty.core.common.AlarmRule;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusTask;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-28 10:05
+ * {@code @description:}
+ * 告警发布：发往 modbus.exchange 的独立路由键（默认 modbus.alarm），与实时数据分开消费。
+ * 路由键配置为空时只记录日志。只在状态翻转时调用，不在稳态路径上。
+ */
+@Slf4j
+@Component
+public class AlarmPublisher {
+
+    private final ModbusConfig modbusConfig;
+    private final RabbitTemplate rabbitTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public AlarmPublisher(ModbusConfig modbusConfig, RabbitTemplate rabbitTemplate, MeterRegistry meterRegistry) {
+        this.modbusConfig = modbusConfig;
+        this.rabbitTemplate = rabbitTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    void publish(DeviceConfig device, ModbusTask task, RuleEvaluator evaluator, int transition,
+                 double value, long epochNanos) {
+        AlarmRule rule = evaluator.rule;
+        AlarmEvent event = new AlarmEvent();
+        event.setDeviceId(device.getId());
+        event.setSlaveId(device.getSlaveId());
+        event.setTaskId(task.getTaskId());
+        event.setRule(rule.getName());
+        event.setType(rule.getType());
+        event.setSeverity(rule.getSeverity());
+        event.setState(transition == RuleEvaluator.RAISED ? AlarmEvent.RAISED : AlarmEvent.CLEARED);
+        event.setValue(value);
+        event.setTimestamp(epochNanos / 1_000_000L);
+
+        meterRegistry.counter("modbus.alarms", "severity", String.valueOf(rule.getSeverity()),
+                "state", event.getState().toLowerCase()).increment();
+        log.warn("告警{}: 设备 {} 规则 {} [{}] 值 {}", event.getState(), device.getId(), rule.getName(),
+                rule.getSeverity(), value);
+
+        String routingKey = modbusConfig.getAlarmRoutingKey();
+        if (rabbitTemplate == null || routingKey == null || routingKey.isEmpty()) {
+            return;
+        }
+        try {
+            rabbitTemplate.convertAndSend("modbus.exchange", routingKey, event);
+        } catch (Exception e) {
+            log.error("告警发布失败: 设备 {} 规则 {} - {}", device.getId(), rule.getName(), e.getMessage());
+        }
+    }
+}
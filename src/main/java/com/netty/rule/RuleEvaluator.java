@@ -0,0 +1,181 @@
+package com.netty.rule;
+
+import com.netty.core.common.AlarmRule;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-28 09:35
+ * {@code @description:}
+ * 编译后的单点规则：参数拆成基本类型字段，求值只做算术比较，稳态下不分配对象。
+ * 每个求值器只保存自己点位的状态（是否处于告警、上一个样本），只在状态翻转时返回非 0。
+ */
+public abstract class RuleEvaluator {
+
+    public static final int NONE = 0;
+    public static final int RAISED = 1;
+    public static final int CLEARED = -1;
+
+    final AlarmRule rule;
+    final int offset;
+    private final boolean signed;
+    private final double scale;
+
+    boolean active;
+
+    RuleEvaluator(AlarmRule rule) {
+        this.rule = rule;
+        this.offset = rule.getOffset();
+        this.signed = rule.isSigned();
+        this.scale = rule.getScale();
+    }
+
+    /**
+     * 按规则类型编译，参数不完整时抛 IllegalArgumentException
+     */
+    public static RuleEvaluator compile(AlarmRule rule) {
+        if (rule.getOffset() < 0) {
+            throw new IllegalArgumentException("offset must be >= 0: " + rule.getName());
+        }
+        String type = rule.getType() == null ? "" : rule.getType().toLowerCase();
+        switch (type) {
+            case "threshold":
+                requireLimit(rule);
+                return new Threshold(rule);
+            case "hysteresis":
+                requireLimit(rule);
+                return new Hysteresis(rule);
+            case "rate":
+                if (rule.getMaxRate() <= 0) {
+                    throw new IllegalArgumentException("rate rule needs maxRate > 0: " + rule.getName());
+                }
+                return new RateOfChange(rule);
+            case "bit":
+                if (rule.getMask() == 0) {
+                    throw new IllegalArgumentException("bit rule needs a non-zero mask: " + rule.getName());
+                }
+                return new BitPattern(rule);
+            default:
+                throw new IllegalArgumentException("Unknown rule type: " + rule.getType());
+        }
+    }
+
+    private static void requireLimit(AlarmRule rule) {
+        if (rule.getHigh() == null && rule.getLow() == null) {
+            throw new IllegalArgumentException("rule needs high or low: " + rule.getName());
+        }
+    }
+
+    /**
+     * @param raw        原始 16 位值（位数据为 0/1）
+     * @param epochNanos 样本时间
+     * @return RAISED / CLEARED / NONE
+     */
+    public final int evaluate(int raw, long epochNanos) {
+        boolean next = test(raw, value(raw), epochNanos);
+        if (next == active) {
+            return NONE;
+        }
+        active = next;
+        return next ? RAISED : CLEARED;
+    }
+
+    final double value(int raw) {
+        return (signed ? (short) raw : raw) * scale;
+    }
+
+    abstract boolean test(int raw, double value, long epochNanos);
+
+    /**
+     * 越限：每个样本独立判断
+     */
+    static final class Threshold extends RuleEvaluator {
+        private final double high;
+        private final double low;
+
+        Threshold(AlarmRule rule) {
+            super(rule);
+            this.high = rule.getHigh() != null ? rule.getHigh() : Double.NaN;
+            this.low = rule.getLow() != null ? rule.getLow() : Double.NaN;
+        }
+
+        @Override
+        boolean test(int raw, double value, long epochNanos) {
+            // 与 NaN 比较恒为 false，未配置的方向自然不触发
+            return value > high || value < low;
+        }
+    }
+
+    /**
+     * 带回差的越限：越过限值产生，回到限值内 deadband 之后才恢复，避免在限值附近抖动
+     */
+    static final class Hysteresis extends RuleEvaluator {
+        private final double high;
+        private final double low;
+        private final double deadband;
+
+        Hysteresis(AlarmRule rule) {
+            super(rule);
+            this.high = rule.getHigh() != null ? rule.getHigh() : Double.NaN;
+            this.low = rule.getLow() != null ? rule.getLow() : Double.NaN;
+            this.deadband = Math.abs(rule.getDeadband());
+        }
+
+        @Override
+        boolean test(int raw, double value, long epochNanos) {
+            if (!active) {
+                return value >= high || value <= low;
+            }
+            return value > high - deadband || value < low + deadband;
+        }
+    }
+
+    /**
+     * 变化率：相邻两个样本的每秒变化量超过 maxRate
+     */
+    static final class RateOfChange extends RuleEvaluator {
+        private final double maxRate;
+        private boolean hasLast;
+        private double lastValue;
+        private long lastTime;
+
+        RateOfChange(AlarmRule rule) {
+            super(rule);
+            this.maxRate = rule.getMaxRate();
+        }
+
+        @Override
+        boolean test(int raw, double value, long epochNanos) {
+            boolean exceeded = false;
+            if (hasLast && epochNanos > lastTime) {
+                double rate = Math.abs(value - lastValue) * 1e9 / (epochNanos - lastTime);
+                exceeded = rate > maxRate;
+            } else if (hasLast) {
+                // 时间未前进（重复样本），保持原状态
+                exceeded = active;
+            }
+            hasLast = true;
+            lastValue = value;
+            lastTime = epochNanos;
+            return exceeded;
+        }
+    }
+
+    /**
+     * 位模式：状态字的指定位满足期望值（故障位、报警位）
+     */
+    static final class BitPattern extends RuleEvaluator {
+        private final int mask;
+        private final int expected;
+
+        BitPattern(AlarmRule rule) {
+            super(rule);
+            this.mask = rule.getMask();
+            this.expected = rule.getExpected() & rule.getMask();
+        }
+
+        @Override
+        boolean test(int raw, double value, long epochNanos) {
+            return (raw & mask) == expected;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.netty.rule;
+
+import com.netty.core.common.AlarmRule;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusTask;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-28 09:50
+ * {@code @description:}
+ * 单个采集任务的规则集：设备同步时编译一次，挂在 ModbusTask 上；分发时按数组顺序逐个求值。
+ */
+@Slf4j
+public final class RuleSet {
+
+    private final RuleEvaluator[] evaluators;
+
+    private RuleSet(RuleEvaluator[] evaluators) {
+        this.evaluators = evaluators;
+    }
+
+    /**
+     * 编译设备所有任务的规则；非法规则记录日志后跳过，不影响采集
+     */
+    public static void compile(DeviceConfig device) {
+        if (device.getTasks() == null) {
+            return;
+        }
+        for (ModbusTask task : device.getTasks()) {
+            List<AlarmRule> rules = task.getRules();
+            if (rules == null || rules.isEmpty()) {
+                task.setRuleSet(null);
+                continue;
+            }
+            List<RuleEvaluator> compiled = new ArrayList<>(rules.size());
+            for (AlarmRule rule : rules) {
+                try {
+                    compiled.add(RuleEvaluator.compile(rule));
+                } catch (IllegalArgumentException e) {
+                    log.warn("设备 {} 任务 {} 规则无效，已忽略: {}", device.getId(), task.getTaskId(), e.getMessage());
+                }
+            }
+            task.setRuleSet(compiled.isEmpty() ? null : new RuleSet(compiled.toArray(new RuleEvaluator[0])));
+        }
+    }
+
+    /**
+     * 寄存器结果求值（03/04）
+     */
+    public void evaluate(DeviceConfig device, ModbusTask task, int[] registers, long epochNanos, AlarmPublisher publisher) {
+        for (RuleEvaluator evaluator : evaluators) {
+            if (evaluator.offset >= registers.length) {
+                continue;
+            }
+            int raw = registers[evaluator.offset];
+            int transition = evaluator.evaluate(raw, epochNanos);
+            if (transition != RuleEvaluator.NONE) {
+                publisher.publish(device, task, evaluator, transition, evaluator.value(raw), epochNanos);
+            }
+        }
+    }
+
+    /**
+     * 位结果求值（01/02），位值按 0/1 参与比较
+     */
+    public void evaluate(DeviceConfig device, ModbusTask task, Object[] bits, long epochNanos, AlarmPublisher publisher) {
+        for (RuleEvaluator evaluator : evaluators) {
+            if (evaluator.offset >= bits.length) {
+                continue;
+            }
+            int raw = Boolean.TRUE.equals(bits[evaluator.offset]) ? 1 : 0;
+            int transition = evaluator.evaluate(raw, epochNanos);
+            if (transition != RuleEvaluator.NONE) {
+                publisher.publish(device, task, evaluator, transition, raw, epochNanos);
+            }
+        }
+    }
+
+    public int size() {
+        return evaluators.length;
+    }
+}
@@ -0,0 +1,88 @@
+package com.netty.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.LongConsumer;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-23 10:45
+ * {@code @description:}
+ * 对齐采样组：同组同周期的设备在相同的墙钟边界（epoch 毫秒为 interval 的整数倍）上一起触发，
+ * 每次触发都按当前墙钟重新计算下一个边界，不会因固定频率调度而漂移。
+ */
+@Slf4j
+@Getter
+public class AlignedPollGroup {
+
+    private final String name;
+    private final long interval;
+    private final TaskScheduler scheduler;
+    // 成员回调，参数为本次对齐的 tick (epoch ms)
+    private final List<LongConsumer> members = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running;
+    private volatile ScheduledFuture<?> next;
+    private long lastTick;
+
+    public AlignedPollGroup(String name, long interval, TaskScheduler scheduler) {
+        this.name = name;
+        this.interval = Math.max(1, interval);
+        this.scheduler = scheduler;
+    }
+
+    public void add(LongConsumer member) {
+        members.add(member);
+        if (!running) {
+            running = true;
+            scheduleNext();
+        }
+    }
+
+    /**
+     * 移除成员，组内没有成员时停止调度并返回 true
+     */
+    public boolean remove(LongConsumer member) {
+        members.remove(member);
+        if (members.isEmpty()) {
+            running = false;
+            ScheduledFuture<?> f = next;
+            if (f != null) {
+                f.cancel(false);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void scheduleNext() {
+        if (!running) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // 调度线程可能提前零点几毫秒醒来，保证不会重复触发同一个边界
+        long tick = Math.max((now / interval + 1) * interval, lastTick + interval);
+        lastTick = tick;
+        next = scheduler.schedule(() -> fire(tick), new Date(tick));
+    }
+
+    private void fire(long tick) {
+        try {
+            for (LongConsumer member : members) {
+                try {
+                    member.accept(tick);
+                } catch (Exception e) {
+                    log.error("对齐组 {} 触发异常", name, e);
+                }
+            }
+        } finally {
+            scheduleNext();
+        }
+    }
+}
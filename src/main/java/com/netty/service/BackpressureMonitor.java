@@ -0,0 +1,142 @@
+package com.netty.service;
+
+import com.netty.config.ModbusConfig;
+import com.netty.manager.ConnectionManager;
+import com.netty.sink.AsyncRedisSink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-31 09:30
+ * {@code @description:}
+ * 端到端背压：周期性汇总输出端延迟、异步 Redis 在途比例与连接队列积压，得到 0~3 级压力。
+ * 轮询调度按设备优先级拉长周期：拉长倍数 = 2^(压力级别 - priority)，上限 backpressureMaxStretch，
+ * 所以低优先级设备最先降频、最后恢复，priority 不低于 3 的设备不受影响。
+ * 升级立即生效，降级需要连续 backpressureRecoverTicks 次评估都低于当前级别，防止来回抖动。
+ */
+@Slf4j
+@Component
+public class BackpressureMonitor {
+
+    public static final int MAX_LEVEL = 3;
+
+    private final ModbusConfig modbusConfig;
+    private final ConnectionManager connectionManager;
+    private final DataRouteDispatcher dataRouteDispatcher;
+
+    @Autowired(required = false)
+    private AsyncRedisSink asyncRedisSink;
+
+    private final Counter skipped;
+
+    private volatile int level;
+    private volatile double pressure;
+    // 最近一次评估取到的单从站子队列最大深度
+    private volatile int slaveBacklog;
+    private int calmTicks;
+
+    public BackpressureMonitor(ModbusConfig modbusConfig, ConnectionManager connectionManager,
+                               DataRouteDispatcher dataRouteDispatcher, MeterRegistry meterRegistry) {
+        this.modbusConfig = modbusConfig;
+        this.connectionManager = connectionManager;
+        this.dataRouteDispatcher = dataRouteDispatcher;
+        Gauge.builder("modbus.backpressure.level", this, m -> m.level)
+                .description("背压级别 0~3").register(meterRegistry);
+        Gauge.builder("modbus.backpressure.pressure", this, m -> m.pressure)
+                .description("归一化压力值，>=1 开始降频").register(meterRegistry);
+        this.skipped = Counter.builder("modbus.backpressure.skipped")
+                .description("因背压跳过的轮询次数").register(meterRegistry);
+    }
+
+    /**
+     * 周期评估（调度线程）
+     */
+    public synchronized void evaluate() {
+        if (!modbusConfig.isBackpressureEnabled()) {
+            level = 0;
+            return;
+        }
+        double latencyMs = dataRouteDispatcher.sinkLatencyNanos() / 1_000_000.0;
+        double inFlight = 0;
+        if (asyncRedisSink != null) {
+            latencyMs = Math.max(latencyMs, asyncRedisSink.latencyNanos() / 1_000_000.0);
+            inFlight = asyncRedisSink.inFlightRatio();
+        }
+        // 按从站口径归一化：会话总积压含同一网关下所有从站，不能与单从站上限相除
+        slaveBacklog = connectionManager.maxSlaveBacklog();
+        double backlog = (double) slaveBacklog / Math.max(1, modbusConfig.getMaxQueuePerSlave());
+
+        double p = Math.max(latencyMs / Math.max(1, modbusConfig.getBackpressureSinkLatency()),
+                Math.max(inFlight / 0.5, backlog / Math.max(0.01, modbusConfig.getBackpressureQueueRatio())));
+        pressure = p;
+
+        int target = p >= 4 ? 3 : p >= 2 ? 2 : p >= 1 ? 1 : 0;
+        int current = level;
+        if (target > current) {
+            calmTicks = 0;
+            setLevel(target, p);
+        } else if (target < current) {
+            if (++calmTicks >= modbusConfig.getBackpressureRecoverTicks()) {
+                calmTicks = 0;
+                setLevel(current - 1, p);
+            }
+        } else {
+            calmTicks = 0;
+        }
+    }
+
+    private void setLevel(int next, double p) {
+        log.warn("背压级别 {} -> {} (pressure={})", level, next, String.format("%.2f", p));
+        level = next;
+    }
+
+    /**
+     * 设备当前的周期拉长倍数，1 表示正常轮询
+     */
+    public int stretchFactor(int priority) {
+        int l = level;
+        if (l == 0) {
+            return 1;
+        }
+        int shift = l - Math.max(0, priority);
+        if (shift <= 0) {
+            return 1;
+        }
+        return Math.min(1 << shift, Math.max(1, modbusConfig.getBackpressureMaxStretch()));
+    }
+
+    public void recordSkipped() {
+        skipped.increment();
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", modbusConfig.isBackpressureEnabled());
+        status.put("level", level);
+        status.put("pressure", pressure);
+        status.put("sinkLatencyMs", dataRouteDispatcher.sinkLatencyNanos() / 1_000_000.0);
+        status.put("maxQueueLoad", connectionManager.maxLoad());
+        status.put("maxSlaveBacklog", slaveBacklog);
+        if (asyncRedisSink != null) {
+            status.put("redisInFlight", asyncRedisSink.inFlight());
+        }
+        Map<Integer, Integer> stretch = new LinkedHashMap<>();
+        for (int priority = 0; priority <= MAX_LEVEL; priority++) {
+            stretch.put(priority, stretchFactor(priority));
+        }
+        status.put("stretchByPriority", stretch);
+        return status;
+    }
+}
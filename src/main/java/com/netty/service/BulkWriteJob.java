@@ -0,0 +1,168 @@
+package com.netty.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-13 09:40
+ * {@code @description:}
+ * 一个批量写入任务：逐设备的写入结果与整体进度。条目按下标领取，同时在途的条目数不超过 concurrency。
+ */
+public class BulkWriteJob {
+
+    public enum Status {
+        PENDING, RUNNING,
+        // 写入成功（开启读回时读回值与写入值一致）
+        OK,
+        // 写入失败、设备异常应答或熔断打开
+        FAILED,
+        // 写入成功但读回值不一致
+        MISMATCH
+    }
+
+    private final String id;
+    private final boolean verify;
+    private final int concurrency;
+    private final long createdAt = System.currentTimeMillis();
+    private volatile long finishedAt;
+    private final List<Item> items;
+
+    // 下一个待领取的条目、在途数与各结果计数
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger ok = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger mismatched = new AtomicInteger();
+
+    BulkWriteJob(String id, List<Item> items, boolean verify, int concurrency) {
+        this.id = id;
+        this.items = items;
+        this.verify = verify;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * 领取下一个条目（并占用一个在途名额），已领完或在途已满返回 null
+     */
+    Item claim() {
+        while (true) {
+            int n = running.get();
+            if (n >= concurrency || next.get() >= items.size()) {
+                return null;
+            }
+            if (running.compareAndSet(n, n + 1)) {
+                break;
+            }
+        }
+        int index = next.getAndIncrement();
+        if (index >= items.size()) {
+            running.decrementAndGet();
+            return null;
+        }
+        Item item = items.get(index);
+        item.status = Status.RUNNING;
+        item.startedAt = System.currentTimeMillis();
+        return item;
+    }
+
+    /**
+     * 条目结束（任意线程），返回整个任务是否已结束
+     */
+    boolean finish(Item item, Status status, String error, int[] readBack) {
+        item.elapsed = System.currentTimeMillis() - item.startedAt;
+        item.error = error;
+        item.readBack = readBack;
+        item.status = status;
+        if (status == Status.OK) {
+            ok.incrementAndGet();
+        } else if (status == Status.MISMATCH) {
+            mismatched.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+        running.decrementAndGet();
+        if (done.incrementAndGet() == items.size()) {
+            finishedAt = System.currentTimeMillis();
+            return true;
+        }
+        return false;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isFinished() {
+        return done.get() == items.size();
+    }
+
+    /**
+     * 进度概况（不含条目）
+     */
+    public Map<String, Object> summary() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("state", isFinished() ? "DONE" : "RUNNING");
+        map.put("total", items.size());
+        map.put("done", done.get());
+        map.put("ok", ok.get());
+        map.put("failed", failed.get());
+        map.put("mismatched", mismatched.get());
+        map.put("running", running.get());
+        map.put("verify", verify);
+        map.put("concurrency", concurrency);
+        map.put("createdAt", createdAt);
+        if (finishedAt > 0) {
+            map.put("finishedAt", finishedAt);
+            map.put("elapsed", finishedAt - createdAt);
+        }
+        return map;
+    }
+
+    /**
+     * 进度概况加条目结果；onlyUnsuccessful 时只列出未成功（含未完成）的条目
+     */
+    public Map<String, Object> status(boolean onlyUnsuccessful) {
+        Map<String, Object> map = summary();
+        List<Item> list = new ArrayList<>();
+        for (Item item : items) {
+            if (!onlyUnsuccessful || item.status != Status.OK) {
+                list.add(item);
+            }
+        }
+        map.put("items", list);
+        return map;
+    }
+
+    /**
+     * 单个设备的写入及结果
+     */
+    @Getter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item {
+        private final String deviceKey;
+        private final int address;
+        private final int[] values;
+        private volatile Status status = Status.PENDING;
+        private volatile String error;
+        private volatile int[] readBack;
+        private volatile long elapsed;
+        @Getter(AccessLevel.NONE)
+        private long startedAt;
+
+        Item(String deviceKey, int address, int[] values) {
+            this.deviceKey = deviceKey;
+            this.address = address;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.netty.service;
+
+import com.netty.config.ModbusConfig;
+import com.netty.core.common.BulkWriteRequest;
+import com.netty.manager.SitePartitions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-13 09:40
+ * {@code @description:}
+ * 批量写入（设定值下发）：提交后立即返回任务号，写入在后台并行下发到各设备，同时在途数不超过 concurrency。
+ * 各设备的写入进入各自链路的队列，与轮询请求按优先级排队，不同端点之间互不等待。
+ * 开启读回时走先写后读（设备支持时功能码 23 一次往返），读回值与写入值不一致记为 MISMATCH。
+ * 熔断已打开的设备直接记为失败，不占用在途名额等待超时。
+ * 未连上的设备先异步建连、就绪后再发送，下发线程不等待建连，concurrency 个设备的写入真正同时在途。
+ */
+@Slf4j
+@Service
+public class BulkWriteService {
+
+    @Autowired
+    private ModbusMasterService masterService;
+
+    @Autowired
+    private ModbusConfig modbusConfig;
+
+    @Autowired
+    private SitePartitions partitions;
+
+    // 下发线程：回调在 IO 线程上完成，领取下一个条目回到调度线程；下发本身不同步建连，不会占住调度线程
+    private ThreadPoolTaskScheduler scheduler;
+
+    // Key: 任务号，按提交顺序
+    private final Map<String, BulkWriteJob> jobs = new LinkedHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        scheduler = partitions.defaultPartition().getScheduler();
+    }
+
+    /**
+     * 提交批量写入，立即返回任务（进度与结果通过 get 查询）
+     */
+    public BulkWriteJob submit(BulkWriteRequest request) {
+        List<BulkWriteJob.Item> items = new ArrayList<>();
+        if (request.getDeviceKeys() != null) {
+            for (String deviceKey : request.getDeviceKeys()) {
+                items.add(new BulkWriteJob.Item(deviceKey, request.getAddress(), request.getValues()));
+            }
+        }
+        if (request.getWrites() != null) {
+            for (BulkWriteRequest.Item write : request.getWrites()) {
+                items.add(new BulkWriteJob.Item(write.getDeviceKey(), write.getAddress(), write.getValues()));
+            }
+        }
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("No writes in request");
+        }
+        int max = Math.max(1, modbusConfig.getBulkWriteConcurrency());
+        int concurrency = request.getConcurrency() > 0 ? Math.min(request.getConcurrency(), max) : max;
+        BulkWriteJob job = new BulkWriteJob(Long.toString(ids.incrementAndGet()), items, request.isVerify(), concurrency);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+            evictFinished();
+        }
+        log.info("批量写入任务 {}: {} 个设备, 并发 {}, 读回 {}", job.getId(), items.size(), concurrency, job.isVerify());
+        scheduler.execute(() -> pump(job));
+        return job;
+    }
+
+    public BulkWriteJob get(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    /**
+     * 所有保留中的任务概况
+     */
+    public List<Map<String, Object>> list() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        synchronized (jobs) {
+            for (BulkWriteJob job : jobs.values()) {
+                list.add(job.summary());
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 已结束的任务超过保留数时丢弃最早的（调用方持有 jobs 锁）
+     */
+    private void evictFinished() {
+        int finished = 0;
+        for (BulkWriteJob job : jobs.values()) {
+            if (job.isFinished()) {
+                finished++;
+            }
+        }
+        Iterator<BulkWriteJob> it = jobs.values().iterator();
+        while (finished > modbusConfig.getBulkWriteRetainJobs() && it.hasNext()) {
+            if (it.next().isFinished()) {
+                it.remove();
+                finished--;
+            }
+        }
+    }
+
+    /**
+     * 在途名额未满时持续领取条目下发（调度线程）
+     */
+    private void pump(BulkWriteJob job) {
+        BulkWriteJob.Item item;
+        while ((item = job.claim()) != null) {
+            start(job, item);
+        }
+    }
+
+    private void start(BulkWriteJob job, BulkWriteJob.Item item) {
+        if (masterService.isTripped(item.getDeviceKey())) {
+            complete(job, item, BulkWriteJob.Status.FAILED, "Circuit open", null);
+            return;
+        }
+        int[] values = item.getValues();
+        if (job.isVerify()) {
+            int count = values != null ? values.length : 0;
+            masterService.writeThenRead(item.getDeviceKey(), item.getAddress(), values, item.getAddress(), count)
+                    .whenComplete((readBack, e) -> {
+                        if (e != null) {
+                            complete(job, item, BulkWriteJob.Status.FAILED, message(e), null);
+                        } else {
+                            complete(job, item, matches(values, readBack) ? BulkWriteJob.Status.OK
+                                    : BulkWriteJob.Status.MISMATCH, null, readBack);
+                        }
+                    });
+        } else {
+            masterService.write(item.getDeviceKey(), item.getAddress(), values)
+                    .whenComplete((r, e) -> complete(job, item,
+                            e != null ? BulkWriteJob.Status.FAILED : BulkWriteJob.Status.OK, e != null ? message(e) : null, null));
+        }
+    }
+
+    /**
+     * 条目结束（可能在 IO 线程上）：空出的名额回到调度线程继续领取
+     */
+    private void complete(BulkWriteJob job, BulkWriteJob.Item item, BulkWriteJob.Status status, String error,
+                          int[] readBack) {
+        if (job.finish(item, status, error, readBack)) {
+            log.info("批量写入任务 {} 完成: {}", job.getId(), job.summary());
+            return;
+        }
+        scheduler.execute(() -> pump(job));
+    }
+
+    private static boolean matches(int[] written, int[] readBack) {
+        if (readBack == null || readBack.length != written.length) {
+            return false;
+        }
+        for (int i = 0; i < written.length; i++) {
+            if ((written[i] & 0xFFFF) != (readBack[i] & 0xFFFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String message(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage();
+    }
+}
@@ -1,20 +1,39 @@
 package com.netty.service;
 
 import com.alibaba.fastjson.JSON;
+import com.netty.config.ModbusConfig;
 import com.netty.core.ModbusDataParser;
 import com.netty.core.ModbusFrame;
+import com.netty.core.PollCycle;
+import com.netty.core.ReadPlan;
+import com.netty.core.RegisterImage;
+import com.netty.core.WindowAggregator;
+import com.netty.core.common.AggregateResult;
+import com.netty.core.common.CycleSnapshot;
 import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusCallback;
+import com.netty.core.common.ModbusResult;
 import com.netty.core.common.ModbusTask;
+import com.netty.core.common.QueuedTask;
+import com.netty.jfr.ModbusEvents;
+import com.netty.live.LiveValueHub;
+import com.netty.rule.AlarmPublisher;
+import com.netty.rule.RuleSet;
+import com.netty.sink.AsyncRedisSink;
+import com.netty.sink.SinkSpool;
+import com.netty.util.ClockUtils;
+import com.netty.util.Ewma;
 import com.netty.util.RedisUtils;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.util.concurrent.FastThreadLocal;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@code @author:} TaiHuLake
@@ -23,16 +42,44 @@ import java.util.Map;
  */
 @Slf4j
 @Component
-public class DataRouteDispatcher {
+public class DataRouteDispatcher implements ModbusCallback {
 
-    // 静态持有者，供非 Spring 类使用
-    private static DataRouteDispatcher instance;
+    // 变化点下标缓冲，按 EventLoop 线程复用；计划拼装后的任务可超过单帧上限，不够时按需扩容
+    private static final FastThreadLocal<int[]> CHANGED = new FastThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[2048];
+        }
+    };
 
     private final RedisUtils redisUtils;
     private final RabbitTemplate rabbitTemplate;
 
+    // 输出耗时的滑动均值，供背压判定
+    private final Ewma sinkLatency = new Ewma(0.2);
+
+    // 离线回放时为 null，使用默认路由键
+    @Autowired(required = false)
+    private ModbusConfig modbusConfig;
+
+    // 离线回放时为 null，此时任务上也不会有编译好的规则
+    @Autowired(required = false)
+    private AlarmPublisher alarmPublisher;
+
+    // 仅 output-mode=redis-async 时存在
+    @Autowired(required = false)
+    private AsyncRedisSink asyncRedisSink;
+
+    // 离线回放时为 null，输出失败不落盘
+    @Autowired(required = false)
+    private SinkSpool sinkSpool;
+
+    // 离线回放时为 null，不做实时推送
+    @Autowired(required = false)
+    private LiveValueHub liveValueHub;
+
     @Value("${modbus.output-mode:console}")
-    private String outputMode;
+    private String outputMode = "console";
 
     public DataRouteDispatcher(RedisUtils redisUtils, RabbitTemplate rabbitTemplate) {
         this.redisUtils = redisUtils;
@@ -41,70 +88,319 @@ public class DataRouteDispatcher {
 
     @PostConstruct
     public void init() {
-        instance = this;
+        if (sinkSpool != null) {
+            sinkSpool.start(this::resend);
+        }
     }
 
     /**
-     * 供 Coordinator 调用的静态入口
+     * 离线回放等非 Spring 场景下指定输出方式，none 表示只解析不输出
      */
-    public static void staticDispatch(DeviceConfig device, ModbusFrame response, ModbusTask task) {
-        if (instance != null) {
-            instance.dispatch(device, response, task);
-        } else {
-            log.error("Dispatcher 未初始化!");
+    public void setOutputMode(String outputMode) {
+        this.outputMode = outputMode;
+    }
+
+    /**
+     * 请求完成回调（EventLoop 线程）
+     */
+    @Override
+    public void onResponse(QueuedTask request, ModbusFrame response) {
+        dispatch(request, response);
+    }
+
+    @Override
+    public void onFailure(QueuedTask request, Throwable cause) {
+        log.error("IP:{} Slave:{} 请求失败:{}",
+                request.getDevice().getIp(), request.getDevice().getSlaveId(), cause.getMessage());
+        PollCycle cycle = request.getDevice().getCycle();
+        if (cycle != null) {
+            publishCycle(cycle.fail(configured(request.getTask()), request.getScheduledTime()));
         }
     }
 
-    public void dispatch(DeviceConfig device, ModbusFrame response, ModbusTask task) {
+    /**
+     * 计划拆出的分段映射回配置里的原任务
+     */
+    private static ModbusTask configured(ModbusTask task) {
+        return task.getParent() != null ? task.getParent() : task;
+    }
+
+    public void dispatch(QueuedTask request, ModbusFrame response) {
+        DeviceConfig device = request.getDevice();
+        ModbusTask task = request.getTask();
+        ModbusEvents.Dispatched event = null;
+        if (ModbusEvents.DISPATCHED.isEnabled()) {
+            event = new ModbusEvents.Dispatched();
+            event.begin();
+            event.deviceKey = ModbusEvents.deviceKey(device);
+        }
         // 1. 检查是否为异常报文 (功能码 > 0x80)
         int fc = response.getFunctionCode() & 0xFF;
         if (fc > 0x80) {
-            handleModbusException(device, response);
+            handleModbusException(device, task, response);
+            if (device.getCycle() != null) {
+                publishCycle(device.getCycle().fail(configured(task), request.getScheduledTime()));
+            }
+            if (event != null) {
+                event.functionCode = fc;
+                event.exceptionCode = response.getPayload()[0] & 0xFF;
+                event.commit();
+            }
             return;
         }
 
-        // 2. 正常报文解析
-        Map<String, Object> dataMap = new HashMap<>();
-        dataMap.put("deviceId", device.getId());
-        dataMap.put("slaveId", device.getSlaveId());
-        dataMap.put("fc", fc);
-        dataMap.put("timestamp", System.currentTimeMillis());
+        // 计划拆出的分段：拼齐本轮所有分段后按原任务继续处理
+        Object assembled = null;
+        if (task.getParent() != null) {
+            assembled = task.getPlan().collect(task, request.getScheduledTime(), response.getPayload());
+            if (assembled == null) {
+                if (event != null) {
+                    event.functionCode = fc;
+                    event.commit();
+                }
+                return;
+            }
+            task = task.getParent();
+        }
+
+        // 2. 正常报文解析，时间取自发送/解码时刻，而不是分发时刻
+        ModbusResult result = new ModbusResult();
+        result.setDeviceId(device.getId());
+        result.setSlaveId(device.getSlaveId());
+        result.setFc(fc);
+        result.setTaskId(task.getTaskId());
+        result.setScheduledTime(request.getScheduledTime());
+        result.setSendTime(ClockUtils.toEpochNanos(request.getSendTime()));
+        result.setReceiveTime(ClockUtils.toEpochNanos(response.getReceiveTime()));
+        result.setTimestamp(result.getReceiveTime() / 1_000_000L);
         int count = task.getCount();
 
         // 解析 Payload (根据功能码)
         byte[] payload = response.getPayload();
-        if (fc == 3 || fc == 4) {
-            // 寄存器读取解析：[字节计数(1byte), 数据(n bytes)]
-            dataMap.put("values", ModbusDataParser.parseRegisters(payload));
+        RuleSet rules = alarmPublisher != null ? task.getRuleSet() : null;
+        WindowAggregator aggregator = task.getAggregator();
+        AggregateResult aggregate = null;
+        RegisterImage image = device.getImage();
+        int table = RegisterImage.table(fc);
+        int[] changed = CHANGED.get();
+        int changedCount = 0;
+        if (fc == 3 || fc == 4 || fc == 23) {
+            // 寄存器读取解析：[字节计数(1byte), 数据(n bytes)]，23 的响应与 03 同格式
+            int[] registers = assembled != null ? (int[]) assembled : ModbusDataParser.parseRegisters(payload);
+            result.setValues(registers);
+            if (image != null) {
+                changed = changedBuffer(registers.length);
+                changedCount = image.update(table, task.getStartAddr(), registers, changed, result.getTimestamp());
+            }
+            if (rules != null) {
+                // 先于输出求值，告警不必等数据经过队列再由下游判断
+                rules.evaluate(device, task, registers, result.getReceiveTime(), alarmPublisher);
+            }
+            if (aggregator != null) {
+                aggregate = aggregator.add(registers, result.getTimestamp());
+            }
         } else if (fc == 1 || fc == 2) {
             // 线圈解析
-            dataMap.put("values", ModbusDataParser.parseBits(payload, count));
+            Object[] bits = assembled != null ? (Object[]) assembled : ModbusDataParser.parseBits(payload, count);
+            result.setValues(bits);
+            if (image != null) {
+                changed = changedBuffer(bits.length);
+                changedCount = image.update(table, task.getStartAddr(), bits, changed, result.getTimestamp());
+            }
+            if (rules != null) {
+                rules.evaluate(device, task, bits, result.getReceiveTime(), alarmPublisher);
+            }
+            if (aggregator != null) {
+                aggregate = aggregator.add(bits, result.getTimestamp());
+            }
         } else {
             // 写入类响应通常返回起始地址和写入值，原样输出
-            dataMap.put("raw", ByteBufUtil.hexDump(payload));
+            result.setRaw(ByteBufUtil.hexDump(payload));
+            aggregator = null;
+        }
+        if (event != null) {
+            event.functionCode = fc;
+            event.commit();
+        }
+        if (liveValueHub != null && changedCount > 0) {
+            // 变化点位推给实时订阅者（只放入各自的合并缓冲，不阻塞 IO 线程）
+            liveValueHub.publish(image, table, task.getStartAddr(), changed, changedCount, result.getTimestamp());
+        }
+
+        ModbusEvents.Sunk sunk = null;
+        if (ModbusEvents.SUNK.isEnabled()) {
+            sunk = new ModbusEvents.Sunk();
+            sunk.begin();
+        }
+        long sinkStart = System.nanoTime();
+        PollCycle cycle = device.getCycle();
+        if (aggregator == null && cycle != null && cycle.tracks(task)) {
+            // 按轮次合并：到齐（或截止）时整轮输出一条
+            publishCycle(cycle.complete(task, request.getScheduledTime(), result));
+        } else if (aggregator == null) {
+            sendRaw(result, image, table, task, changed, changedCount, "modbus.key");
+        } else {
+            // 聚合任务：窗口边界输出统计，原始数据按需走独立路由键
+            publishAggregate(device, task, fc, aggregate);
+            if (task.isPublishRaw()) {
+                sendRaw(result, image, table, task, changed, changedCount,
+                        modbusConfig != null ? modbusConfig.getRawRoutingKey() : "modbus.raw");
+            }
+        }
+        sinkLatency.update(System.nanoTime() - sinkStart);
+        if (sunk != null) {
+            sunk.deviceKey = ModbusEvents.deviceKey(device);
+            sunk.sink = outputMode;
+            sunk.endToEnd = System.nanoTime() - request.getSendTime();
+            sunk.commit();
+        }
+    }
+
+    /**
+     * 当前线程的变化点下标缓冲，长度不足 size 时扩容（至少翻倍）并留给后续读取复用
+     */
+    private static int[] changedBuffer(int size) {
+        int[] buf = CHANGED.get();
+        if (buf.length < size) {
+            buf = new int[Math.max(size, buf.length * 2)];
+            CHANGED.set(buf);
         }
+        return buf;
+    }
 
-        executeSend(dataMap, device.getId());
+    /**
+     * 输出一轮合并结果，snapshot 为 null 时忽略（本轮尚未结算）
+     */
+    public void publishCycle(CycleSnapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        executeSend(snapshot, "MODBUS:CYCLE:", snapshot.getDeviceId(),
+                modbusConfig != null ? modbusConfig.getCycleRoutingKey() : "modbus.cycle");
     }
 
-    private void executeSend(Map<String, Object> dataMap, String deviceId) {
+    /**
+     * 输出一个窗口的聚合结果，aggregate 为 null 时忽略（窗口未结算）
+     */
+    public void publishAggregate(DeviceConfig device, ModbusTask task, int fc, AggregateResult aggregate) {
+        if (aggregate == null) {
+            return;
+        }
+        aggregate.setDeviceId(device.getId());
+        aggregate.setSlaveId(device.getSlaveId());
+        aggregate.setFc(fc);
+        aggregate.setTaskId(task.getTaskId());
+        executeSend(aggregate, "MODBUS:AGG:", device.getId() + ":" + task.getTaskId(),
+                modbusConfig != null ? modbusConfig.getAggregateRoutingKey() : "modbus.aggregate");
+    }
+
+    /**
+     * 同步输出路径（Redis set / RabbitMQ / 日志）的平均耗时(ns)
+     */
+    public double sinkLatencyNanos() {
+        return sinkLatency.get();
+    }
+
+    /**
+     * 原始数据输出：异步 Redis 模式下读结果只写变化的 Hash 字段，其它情况走 executeSend
+     */
+    private void sendRaw(ModbusResult result, RegisterImage image, int table, ModbusTask task,
+                         int[] changed, int changedCount, String routingKey) {
+        if (asyncRedisSink != null && image != null && table >= 0) {
+            asyncRedisSink.write(image, table, task.getStartAddr(), valueCount(result), changed, changedCount,
+                    result.getTimestamp());
+            return;
+        }
+        executeSend(result, "MODBUS:RT:", result.getDeviceId(), routingKey);
+    }
+
+    private static int valueCount(ModbusResult result) {
+        Object values = result.getValues();
+        return values instanceof int[] ? ((int[]) values).length : ((Object[]) values).length;
+    }
+
+    private void executeSend(Object payload, String redisPrefix, String redisId, String routingKey) {
         switch (outputMode.toLowerCase()) {
             case "redis":
-                    redisUtils.set("MODBUS:RT:" + deviceId, dataMap);
+            case "redis-async":
+                deliver(SinkSpool.REDIS, redisPrefix + redisId, payload);
                 break;
             case "rabbitmq":
                 if (rabbitTemplate != null) {
-                    rabbitTemplate.convertAndSend("modbus.exchange", "modbus.key", dataMap);
+                    deliver(SinkSpool.RABBITMQ, routingKey, payload);
                 }
                 break;
+            case "none":
+                break;
             default:
-                String json = JSON.toJSONString(dataMap);
+                String json = JSON.toJSONString(payload);
                 log.info("收到数据:{}", json);
         }
     }
 
-    private void handleModbusException(DeviceConfig device, ModbusFrame response) {
+    /**
+     * 经落盘暂存保护的输出：暂存有积压时直接排队，保证顺序；发送失败则转入暂存
+     */
+    private void deliver(byte sink, String key, Object payload) {
+        boolean spooling = sinkSpool != null && sinkSpool.isEnabled();
+        if (spooling && sinkSpool.isBacklogged()) {
+            sinkSpool.append(sink, key, payload.getClass().getName(), JSON.toJSONBytes(payload));
+            return;
+        }
+        boolean ok;
+        Throwable cause = null;
+        try {
+            ok = send(sink, key, payload);
+        } catch (RuntimeException e) {
+            if (!spooling) {
+                throw e;
+            }
+            ok = false;
+            cause = e;
+        }
+        if (!ok && spooling) {
+            sinkSpool.onSendFailure(sink, key, payload.getClass().getName(), JSON.toJSONBytes(payload), cause);
+        }
+    }
+
+    /**
+     * @return Redis 写入是否成功（RedisUtils 内部吞掉异常）；RabbitMQ 失败直接抛出
+     */
+    private boolean send(byte sink, String key, Object payload) {
+        if (sink == SinkSpool.REDIS) {
+            return redisUtils.set(key, payload, 0, TimeUnit.SECONDS);
+        }
+        rabbitTemplate.convertAndSend("modbus.exchange", key, payload);
+        return true;
+    }
+
+    /**
+     * 暂存回放（回放线程）：还原为原始类型后重发，失败抛出让回放停在这一条
+     */
+    private void resend(byte sink, String key, String type, byte[] body) throws Exception {
+        if (!type.startsWith("com.netty.")) {
+            throw new IllegalArgumentException("Unexpected spooled type: " + type);
+        }
+        Object payload = JSON.parseObject(body, Class.forName(type));
+        if (!send(sink, key, payload)) {
+            throw new IllegalStateException("Redis set failed: " + key);
+        }
+    }
+
+    private void handleModbusException(DeviceConfig device, ModbusTask task, ModbusFrame response) {
         int errCode = response.getPayload()[0] & 0xFF;
+        ReadPlan plan = task.getPlan();
+        if ((errCode == 2 || errCode == 3) && plan != null) {
+            // 非法地址 / 非法数据值：拆分失败的区段、学习单次上限，下一轮按新计划读取
+            String learned = plan.onException(task, errCode);
+            if (learned != null) {
+                log.info("设备 {} 任务 {} 读取计划调整: {}", device.getId(), plan.getTask().getTaskId(), learned);
+                if (errCode == 3) {
+                    ReadPlan.shareLimit(device, plan);
+                }
+            }
+            return;
+        }
         log.warn("设备 {} 响应异常码: {} (可能地址越界或从站繁忙)", device.getId(), errCode);
     }
 }
@@ -1,7 +1,27 @@
 package com.netty.service;
+import com.netty.config.ModbusConfig;
+import com.netty.core.DeviceRegistry;
+import com.netty.core.LastValueCache;
+import com.netty.core.ModbusFrame;
+import com.netty.core.PollCycle;
+import com.netty.core.ReadPlan;
+import com.netty.core.RegisterImage;
+import com.netty.core.StateSnapshot;
+import com.netty.core.WindowAggregator;
 import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusCallback;
 import com.netty.core.common.ModbusTask;
+import com.netty.core.common.QueuedTask;
+import com.netty.jfr.ModbusEvents;
+import com.netty.manager.ChannelTaskCoordinator;
+import com.netty.manager.CircuitBreakerRegistry;
 import com.netty.manager.ConnectionManager;
+import com.netty.manager.DeviceCircuitBreaker;
+import com.netty.manager.SitePartition;
+import com.netty.manager.SitePartitions;
+import com.netty.proxy.ModbusProxyServer;
+import com.netty.rule.RuleSet;
+import com.netty.util.ClockUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
@@ -9,8 +29,12 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
 
 
 /**
@@ -26,21 +50,55 @@ public class ModbusMasterService {
     @Autowired
     private ConnectionManager connectionManager;
 
-    // 线程池调度器，用于处理 500 个设备的定时轮询请求
-    private final ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+    @Autowired
+    private DataRouteDispatcher dataRouteDispatcher;
+
+    @Autowired
+    private CircuitBreakerRegistry breakerRegistry;
+
+    @Autowired
+    private LastValueCache lastValueCache;
+
+    @Autowired
+    private BackpressureMonitor backpressure;
+
+    @Autowired
+    private RampUpController rampUp;
 
-    // Key: deviceKey (ip:port:slaveId), Value: 正在运行的调度任务引用
-    private final Map<String, ScheduledFuture<?>> runningTasks = new ConcurrentHashMap<>();
+    @Autowired
+    private ModbusProxyServer proxyServer;
+
+    @Autowired
+    private SitePartitions partitions;
+
+    @Autowired
+    private ModbusConfig modbusConfig;
 
-    // 防止同一个设备并发执行
-    private final Set<String> processingDevices = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    // 默认分区的调度器：site 为空的设备轮询，以及定时维护任务
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    // Key: deviceKey (ip:port:slaveId), Value: 正在运行的设备（调度引用、熔断器、回调）
+    private final Map<String, DeviceRuntime> runningTasks = new ConcurrentHashMap<>();
+
+    // 运行中设备的编译快照（设备 / 端点句柄），每次同步重新编译后整体替换
+    private volatile DeviceRegistry registry = DeviceRegistry.EMPTY;
+
+    // 对齐采样组，Key: site/syncGroup:interval
+    private final Map<String, AlignedPollGroup> alignedGroups = new ConcurrentHashMap<>();
 
     @PostConstruct
     public void init() {
-        // 设置线程池大小，500个设备建议 20-50 个调度线程即可（因为是非阻塞发送）
-        taskScheduler.setPoolSize(Runtime.getRuntime().availableProcessors() * 2);
-        taskScheduler.setThreadNamePrefix("ModbusPoll-");
-        taskScheduler.initialize();
+        taskScheduler = partitions.defaultPartition().getScheduler();
+        // 定期校准 nanoTime 与墙钟的锚点，跟随 NTP 调整
+        taskScheduler.scheduleAtFixedRate(ClockUtils::recalibrate, 60_000L);
+        // 每秒评估一次输出端压力
+        taskScheduler.scheduleAtFixedRate(backpressure::evaluate, 1000L);
+        // 上线爬坡：按建连限流逐批放行新设备
+        taskScheduler.scheduleAtFixedRate(rampUp::tick, 100L);
+        // 轮次截止检查
+        taskScheduler.scheduleAtFixedRate(this::expireCycles, 100L);
+        // 聚合窗口到期结算：窗口只在下一样本到达时结算，停采、熔断期间由这里补上
+        taskScheduler.scheduleAtFixedRate(this::expireWindows, 1000L);
     }
 
     /**
@@ -54,8 +112,8 @@ public class ModbusMasterService {
 
         // 记录当前传入的所有设备 Key
         Set<String> newKeys = new HashSet<>();
+        List<DeviceRuntime> added = new ArrayList<>();
 
-        Random random = new Random();
         for (DeviceConfig device : newList) {
             // ip:port:slaveId
             String dKey = device.getIp() + ":" + device.getPort() + ":" + device.getSlaveId();
@@ -63,68 +121,291 @@ public class ModbusMasterService {
 
             // 如果设备不在运行列表中，则启动它
             if (!runningTasks.containsKey(dKey)) {
-
-                // 生成 0 到 3000ms 之间的随机延迟
-                int initialDelay = random.nextInt(3000);
-
-                // 按照设备配置的 interval 启动定时轮询
-                ScheduledFuture<?> future = taskScheduler.scheduleWithFixedDelay(
-                        () -> safePoll(device),
-//                        () -> pollDevice(device),
-                        // 随机延迟启动
-                        new Date(System.currentTimeMillis() + initialDelay),
-                        (long) device.getInterval());
-                runningTasks.put(dKey, future);
+                SitePartition partition = partitions.get(device.getSite());
+                if (!partition.admit()) {
+                    log.warn("站点 {} 设备数已达上限 {}，不启动: {}", partition.getName(), partition.getMaxDevices(), dKey);
+                    continue;
+                }
+                // 编译点位告警规则、挂上聚合器，二者随任务对象一起复用
+                RuleSet.compile(device);
+                WindowAggregator.attach(device);
+                PollCycle.attach(device);
+                ReadPlan.attach(device);
+                lastValueCache.attach(dKey, device);
+                // 每个设备一个熔断器与回调，轮询时直接复用
+                DeviceRuntime runtime = new DeviceRuntime(dKey, device, breakerRegistry.getOrCreate(dKey), partition);
+                runningTasks.put(dKey, runtime);
+                added.add(runtime);
             }
         }
 
         // 停止并清理那些不在新列表中的设备
-        Iterator<Map.Entry<String, ScheduledFuture<?>>> it = runningTasks.entrySet().iterator();
+        Iterator<Map.Entry<String, DeviceRuntime>> it = runningTasks.entrySet().iterator();
         while (it.hasNext()) {
-            Map.Entry<String, ScheduledFuture<?>> entry = it.next();
+            Map.Entry<String, DeviceRuntime> entry = it.next();
             if (!newKeys.contains(entry.getKey())) {
                 log.info("设备已移除，停止采集任务: {}", entry.getKey());
                 // 停止定时器
-                entry.getValue().cancel(true);
+                stop(entry.getValue());
+                // 未结算的聚合窗口立即输出，不随设备丢弃
+                flushWindows(entry.getValue().device, Long.MAX_VALUE);
                 it.remove();
+                breakerRegistry.remove(entry.getKey());
+                lastValueCache.remove(entry.getKey());
                 // 注意：ConnectionManager 中的物理连接会由内部的 channelInactive 自动清理
             }
         }
+
+        // 重新编译注册表并登记端点，之后新设备的轮询只按句柄取连接池
+        registry = DeviceRegistry.compile(registry, devices());
+        connectionManager.register(registry);
+        proxyServer.register(registry);
+        // 设备全部移除的站点分区连同线程一起关闭
+        partitions.retireIdle(connectionManager.partitionsInUse());
+        for (DeviceRuntime runtime : added) {
+            // 先排队预建连，会话就绪后再开始轮询，避免大量设备同时建连
+            rampUp.submit(runtime.key, runtime.device, () -> startPolling(runtime));
+        }
     }
 
-    private void safePoll(DeviceConfig device) {
-        String dKey = device.getIp() + ":" + device.getPort() + ":" + device.getSlaveId();
+    /**
+     * 开始轮询（爬坡放行后调用，可能在 IO 线程上），设备已被移除时不再启动
+     */
+    private void startPolling(DeviceRuntime runtime) {
+        DeviceConfig device = runtime.device;
+        synchronized (runtime) {
+            if (runtime.stopped) {
+                return;
+            }
+            String syncGroup = device.getSyncGroup();
+            if ((syncGroup == null || syncGroup.isEmpty()) && modbusConfig.isBurstSlowPolls()
+                    && device.getInterval() >= modbusConfig.getSlowPollInterval()) {
+                // 慢周期设备按端点自动对齐：同一端点的从站在同一时刻轮询，空闲回收后一次建连集中读完
+                syncGroup = "burst@" + device.getIp() + ":" + device.getPort();
+            }
+            if (syncGroup != null && !syncGroup.isEmpty()) {
+                // 对齐采样：同组同周期的设备在相同的墙钟边界上触发
+                // 分组不跨站点，各站点的对齐触发在自己的调度线程上
+                String groupKey = runtime.partition.getName() + "/" + syncGroup + ":" + device.getInterval();
+                // 加入成员与建组在同一个 compute 内完成，不会加入另一设备 stop 时刚移出映射的空组
+                runtime.group = alignedGroups.compute(groupKey, (k, current) -> {
+                    AlignedPollGroup group = current != null ? current
+                            : new AlignedPollGroup(k, device.getInterval(), runtime.partition.getScheduler());
+                    group.add(runtime.alignedMember);
+                    return group;
+                });
+            } else {
+                // 生成 0 到 3000ms 之间的随机延迟
+                int initialDelay = ThreadLocalRandom.current().nextInt(3000);
 
-        // CAS 锁，防止同一个设备被多个线程同时调度
-        if (!processingDevices.add(dKey)) {
-            // 如果该设备上一次还没跑完，直接跳过本次
-            return;
+                // 按照设备配置的 interval 启动定时轮询
+                runtime.future = runtime.partition.getScheduler().scheduleWithFixedDelay(
+                        () -> runtime.poll(System.currentTimeMillis()),
+                        // 随机延迟启动
+                        new Date(System.currentTimeMillis() + initialDelay),
+                        (long) device.getInterval());
+            }
+        }
+    }
+
+    /**
+     * 结算到期未齐的轮次（只遍历开启了按轮次合并的设备）
+     */
+    private void expireCycles() {
+        long now = System.currentTimeMillis();
+        DeviceRegistry current = registry;
+        for (int i = 0; i < current.deviceCount(); i++) {
+            PollCycle cycle = current.device(i).getCycle();
+            if (cycle != null) {
+                dataRouteDispatcher.publishCycle(cycle.expire(now));
+            }
+        }
+    }
+
+    /**
+     * 从快照恢复：控制面尚未同步过设备时，按快照中的设备清单与镜像直接开始采集
+     *
+     * @return 恢复的设备数，已有设备在运行时返回 0
+     */
+    public synchronized int restore(StateSnapshot snapshot) {
+        if (!runningTasks.isEmpty()) {
+            return 0;
+        }
+        for (Map.Entry<String, RegisterImage> entry : snapshot.getImages().entrySet()) {
+            lastValueCache.restore(entry.getKey(), entry.getValue());
+        }
+        List<DeviceConfig> devices = snapshot.getDevices();
+        syncDevices(devices);
+        return devices.size();
+    }
+
+    /**
+     * 学习过的读取计划，Key: deviceKey
+     */
+    public Map<String, List<Map<String, Object>>> learnedPlans() {
+        Map<String, List<Map<String, Object>>> plans = new TreeMap<>();
+        for (Map.Entry<String, DeviceRuntime> entry : runningTasks.entrySet()) {
+            List<ModbusTask> tasks = entry.getValue().device.getTasks();
+            if (tasks == null) {
+                continue;
+            }
+            for (ModbusTask task : tasks) {
+                ReadPlan plan = task.getPlan();
+                if (plan != null && plan.isLearned()) {
+                    plans.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(plan.describe());
+                }
+            }
+        }
+        return plans;
+    }
+
+    /**
+     * 当前运行中的设备，Key: deviceKey（写快照用）
+     */
+    public Map<String, DeviceConfig> devices() {
+        Map<String, DeviceConfig> devices = new LinkedHashMap<>(runningTasks.size() * 4 / 3 + 1);
+        for (Map.Entry<String, DeviceRuntime> entry : runningTasks.entrySet()) {
+            devices.put(entry.getKey(), entry.getValue().device);
+        }
+        return devices;
+    }
+
+    private void stop(DeviceRuntime runtime) {
+        rampUp.cancel(runtime.key);
+        synchronized (runtime) {
+            if (!runtime.stopped) {
+                runtime.partition.release();
+            }
+            runtime.stopped = true;
+            if (runtime.future != null) {
+                runtime.future.cancel(true);
+            }
+            AlignedPollGroup group = runtime.group;
+            if (group != null) {
+                // 移除成员与空组出映射原子进行，与 startPolling 的加入互斥
+                alignedGroups.compute(group.getName(), (k, current) -> {
+                    boolean empty = group.remove(runtime.alignedMember);
+                    return empty && current == group ? null : current;
+                });
+            }
+        }
+    }
+
+    /**
+     * 结算到期未被下一样本结算的聚合窗口
+     */
+    private void expireWindows() {
+        long now = System.currentTimeMillis();
+        DeviceRegistry current = registry;
+        for (int i = 0; i < current.deviceCount(); i++) {
+            flushWindows(current.device(i), now);
         }
+    }
 
-        try {
-            pollDevice(device);
-        } finally {
-            processingDevices.remove(dKey);
+    private void flushWindows(DeviceConfig device, long now) {
+        if (device.getTasks() == null) {
+            return;
+        }
+        for (ModbusTask task : device.getTasks()) {
+            WindowAggregator aggregator = task.getAggregator();
+            if (aggregator != null) {
+                dataRouteDispatcher.publishAggregate(device, task, task.getType(), aggregator.flush(now));
+            }
         }
     }
 
+    /**
+     * 上线爬坡进度
+     */
+    public Map<String, Object> rampUpStatus() {
+        return rampUp.status();
+    }
+
     /**
      * 轮询单个设备的所有任务
+     * @param scheduledTime 本次采样的计划时间 (epoch ms)，对齐模式下为墙钟边界
      */
-    private void pollDevice(DeviceConfig device) {
+    private void pollDevice(DeviceConfig device, ModbusCallback callback, long scheduledTime) {
         if (device.getTasks() == null || device.getTasks().isEmpty()) {
             return;
         }
 
+        if (ModbusEvents.POLL_SCHEDULED.isEnabled()) {
+            ModbusEvents.PollScheduled event = new ModbusEvents.PollScheduled();
+            event.deviceKey = ModbusEvents.deviceKey(device);
+            event.taskCount = device.getTasks().size();
+            event.scheduledTime = scheduledTime;
+            event.lateness = System.currentTimeMillis() - scheduledTime;
+            event.commit();
+        }
+
+        PollCycle cycle = device.getCycle();
+        if (cycle != null) {
+            // 上一轮还没结算（有任务迟迟未返回）时在这里提前结算
+            dataRouteDispatcher.publishCycle(cycle.begin(scheduledTime));
+        }
+
         for (ModbusTask task : device.getTasks()) {
             try {
+                ReadPlan plan = task.getPlan();
+                ModbusTask[] pieces = plan != null ? plan.pieces() : null;
+                if (pieces != null) {
+                    // 按学到的计划分段读取，响应在分发时拼回原任务
+                    for (ModbusTask piece : pieces) {
+                        connectionManager.send(device, piece, callback, scheduledTime);
+                    }
+                    continue;
+                }
                 // 通过连接管理器发送，内部会自动处理 IP:Port 复用和单链路顺序排队
-                connectionManager.send(device, task);
+                connectionManager.send(device, task, callback, scheduledTime);
             } catch (Exception e) {
-                String deviceKey = device.getIp() + ":" + device.getPort() + ":" + device.getSlaveId();
-                log.error("调度设备任务失败: {} - {}", deviceKey, e.getMessage());
+                log.error("调度设备任务失败: {} - {}", device.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 半开探测：取第一个读任务，只读 1 个点
+     */
+    private void probeDevice(DeviceRuntime runtime) {
+        DeviceConfig device = runtime.device;
+        ModbusTask probe = null;
+        if (device.getTasks() != null) {
+            for (ModbusTask task : device.getTasks()) {
+                if (task.getType() >= 1 && task.getType() <= 4) {
+                    probe = ModbusTask.builder().taskId("probe").type(task.getType())
+                            .startAddr(task.getStartAddr()).count(1).build();
+                    break;
+                }
             }
         }
+        long probeId = runtime.breaker.currentProbe();
+        if (probe == null) {
+            // 没有读任务可探测，直接恢复
+            runtime.breaker.recordProbeSuccess(probeId);
+            return;
+        }
+        log.info("设备 {} 熔断半开，发送探测读", runtime.key);
+        connectionManager.send(device, probe, runtime.probeCallback(probeId));
+    }
+
+    /**
+     * 熔断器快照（REST 展示）
+     */
+    public Collection<DeviceCircuitBreaker> breakers(boolean onlyTripped) {
+        return onlyTripped ? breakerRegistry.tripped() : breakerRegistry.all();
+    }
+
+    /**
+     * 手动复位熔断器
+     */
+    public boolean resetBreaker(String deviceKey) {
+        DeviceCircuitBreaker breaker = breakerRegistry.get(deviceKey);
+        if (breaker == null) {
+            return false;
+        }
+        breaker.reset();
+        return true;
     }
 
     /**
@@ -137,7 +418,193 @@ public class ModbusMasterService {
                 .startAddr(address)
                 .writeValues(new int[]{value})
                 .build();
-        connectionManager.send(device, writeTask);
+        connectionManager.send(device, writeTask, dataRouteDispatcher);
+    }
+
+    /**
+     * 先写后读：写入 values 后读回 [readAddr, readAddr + readCount)，设备支持时走功能码 23 一次往返
+     *
+     * @param deviceKey ip:port:slaveId，须为运行中的设备
+     * @return 读回的寄存器值
+     */
+    public CompletableFuture<int[]> writeThenRead(String deviceKey, int writeAddr, int[] values,
+                                                  int readAddr, int readCount) {
+        DeviceRuntime runtime = runningTasks.get(deviceKey);
+        CompletableFuture<int[]> rejected = new CompletableFuture<>();
+        if (runtime == null) {
+            rejected.completeExceptionally(new IllegalArgumentException("Device not found: " + deviceKey));
+            return rejected;
+        }
+        if (values == null || values.length < 1 || values.length > 121 || readCount < 1 || readCount > 125) {
+            rejected.completeExceptionally(new IllegalArgumentException("Write count must be 1-121 and read count 1-125"));
+            return rejected;
+        }
+        // 经设备回调分发：熔断器照常记录，结果照常进入镜像与输出
+        return new WriteThenRead(connectionManager, runtime.partition.getScheduler(), runtime, runtime.device,
+                writeAddr, values, readAddr, readCount).start();
     }
 
+    /**
+     * 写入保持寄存器（1 个值走 06，多个走 16），经设备回调分发，熔断器照常记录
+     *
+     * @param deviceKey ip:port:slaveId，须为运行中的设备
+     */
+    public CompletableFuture<Void> write(String deviceKey, int address, int[] values) {
+        DeviceRuntime runtime = runningTasks.get(deviceKey);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (runtime == null) {
+            future.completeExceptionally(new IllegalArgumentException("Device not found: " + deviceKey));
+            return future;
+        }
+        if (values == null || values.length < 1 || values.length > 123) {
+            future.completeExceptionally(new IllegalArgumentException("Write count must be 1-123"));
+            return future;
+        }
+        int type = values.length == 1 ? 6 : 16;
+        ModbusTask task = ModbusTask.builder().taskId("write").type(type).startAddr(address).count(values.length)
+                .writeValues(values).build();
+        // 不同步建连：批量写入在调度线程上连续下发，未连上的设备不能拖住其它设备
+        connectionManager.sendAsync(runtime.device, task, new ModbusCallback() {
+            @Override
+            public void onResponse(QueuedTask request, ModbusFrame response) {
+                // 帧在回调返回后回收，先取出异常码
+                int fc = response.getFunctionCode() & 0xFF;
+                int code = response.getPayload().length > 0 ? response.getPayload()[0] & 0xFF : 0;
+                runtime.onResponse(request, response);
+                if (fc > 0x80) {
+                    future.completeExceptionally(new IllegalStateException("Modbus exception code " + code + " on fc " + type));
+                } else {
+                    future.complete(null);
+                }
+            }
+
+            @Override
+            public void onFailure(QueuedTask request, Throwable cause) {
+                runtime.onFailure(request, cause);
+                future.completeExceptionally(cause);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 设备熔断器是否打开（批量写入据此直接跳过不可达的设备）
+     */
+    public boolean isTripped(String deviceKey) {
+        DeviceRuntime runtime = runningTasks.get(deviceKey);
+        return runtime != null && runtime.breaker.getState() == DeviceCircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * 运行中的设备：调度引用、熔断器与设备级回调（先记录熔断结果，再交给 Dispatcher 分发）
+     */
+    private class DeviceRuntime implements ModbusCallback {
+        private final String key;
+        private final DeviceConfig device;
+        private final DeviceCircuitBreaker breaker;
+        private final SitePartition partition;
+        // 防止同一个设备被多个线程同时调度
+        private final AtomicBoolean processing = new AtomicBoolean(false);
+        // 对齐模式下注册到组的成员回调
+        private final LongConsumer alignedMember = this::poll;
+        private volatile ScheduledFuture<?> future;
+        private volatile AlignedPollGroup group;
+        // 已移除：爬坡中尚未启动的设备不再启动
+        private boolean stopped;
+        // 调度触发计数，背压降频时只执行其中每 N 次
+        private int ticks;
+
+        private DeviceRuntime(String key, DeviceConfig device, DeviceCircuitBreaker breaker, SitePartition partition) {
+            this.key = key;
+            this.device = device;
+            this.breaker = breaker;
+            this.partition = partition;
+        }
+
+        private void poll(long scheduledTime) {
+            // CAS 锁，如果该设备上一次还没跑完，直接跳过本次
+            if (!processing.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                // 背压降频：保留原有调度（对齐组仍在边界上触发），只跳过部分触发
+                int stretch = backpressure.stretchFactor(device.getPriority());
+                if (stretch > 1 && (ticks++ % stretch) != 0) {
+                    backpressure.recordSkipped();
+                    return;
+                }
+                // 熔断判定：打开时跳过，到期后只发一次探测读
+                switch (breaker.tryAcquire(System.currentTimeMillis())) {
+                    case POLL:
+                        pollDevice(device, this, scheduledTime);
+                        break;
+                    case PROBE:
+                        probeDevice(this);
+                        break;
+                    default:
+                        break;
+                }
+            } finally {
+                processing.set(false);
+            }
+        }
+
+        /**
+         * 探测读的回调：带着探测编号只更新熔断状态，不向下游分发；半开只由当前探测的结果结束
+         */
+        private ModbusCallback probeCallback(long probeId) {
+            return new ModbusCallback() {
+                @Override
+                public void onResponse(QueuedTask request, ModbusFrame response) {
+                    String failure = failureOf(response);
+                    if (failure != null) {
+                        breakerRegistry.recordProbeFailure(breaker, probeId, failure);
+                    } else {
+                        breaker.recordProbeSuccess(probeId);
+                    }
+                }
+
+                @Override
+                public void onFailure(QueuedTask request, Throwable cause) {
+                    // 建连限流未发送、排队中被舍弃说明探测没到设备，等到期重发
+                    if (cause != ConnectionManager.CONNECT_DEFERRED && cause != ChannelTaskCoordinator.REQUEST_DROPPED) {
+                        breakerRegistry.recordProbeFailure(breaker, probeId, cause.getMessage());
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void onResponse(QueuedTask request, ModbusFrame response) {
+            String failure = failureOf(response);
+            if (failure != null) {
+                breakerRegistry.recordFailure(breaker, failure);
+            } else {
+                breaker.recordSuccess();
+            }
+            dataRouteDispatcher.onResponse(request, response);
+        }
+
+        @Override
+        public void onFailure(QueuedTask request, Throwable cause) {
+            // 建连限流导致的未发送、排队中被舍弃都不是设备故障，不计入熔断
+            if (cause != ConnectionManager.CONNECT_DEFERRED && cause != ChannelTaskCoordinator.REQUEST_DROPPED) {
+                breakerRegistry.recordFailure(breaker, cause.getMessage());
+            }
+            dataRouteDispatcher.onFailure(request, cause);
+        }
+
+        /**
+         * 计入熔断的异常响应返回失败原因，否则返回 null
+         */
+        private String failureOf(ModbusFrame response) {
+            int code = response.getPayload().length > 0 ? response.getPayload()[0] & 0xFF : 0;
+            // 02/03 说明设备在线、只是请求不合适（由读取计划自学习处理），不计入熔断
+            if ((response.getFunctionCode() & 0xFF) > 0x80 && code != 2 && code != 3) {
+                return "exception code " + code;
+            }
+            return null;
+        }
+    }
 }
@@ -0,0 +1,155 @@
+package com.netty.service;
+
+import com.netty.core.common.DeviceConfig;
+import com.netty.manager.ConnectionManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-01 09:40
+ * {@code @description:}
+ * 上线爬坡：新设备先进入等待队列（priority 高的先出，同优先级按提交顺序），
+ * 由定时 tick 在建连限流允许的范围内逐个预建连，会话就绪（或建连失败进入退避）后才启动轮询。
+ * 数千台设备同时上线或节点切换时，建连速率与并发受 ConnectLimiter 约束，不会一次性打出 SYN 风暴。
+ * 每个站点一条队列、各自受本站点分区的限流约束，一个站点排队不会挡住其它站点上线。
+ */
+@Slf4j
+@Component
+public class RampUpController {
+
+    private final ConnectionManager connectionManager;
+
+    private static final Comparator<Entry> ORDER = (a, b) -> a.priority != b.priority
+            ? Integer.compare(b.priority, a.priority) : Long.compare(a.seq, b.seq);
+
+    // Key: site（空串为默认分区）
+    private final Map<String, PriorityQueue<Entry>> queues = new LinkedHashMap<>();
+    // Key: deviceKey，用于撤销仍在排队的设备
+    private final Map<String, Entry> waiting = new HashMap<>();
+
+    private long seq;
+    private int submitted;
+    private final AtomicInteger connecting = new AtomicInteger();
+    private final AtomicInteger started = new AtomicInteger();
+    // 本轮爬坡的开始与完成时间 (epoch ms)，队列清空且没有建连中的设备即视为完成
+    private volatile long beginTime;
+    private volatile long finishTime;
+
+    public RampUpController(ConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * 提交一个待启动的设备，start 在会话就绪后执行（可能在 IO 线程上，应只做调度登记）
+     */
+    public synchronized void submit(String key, DeviceConfig device, Runnable start) {
+        if (waiting.isEmpty() && connecting.get() == 0) {
+            // 上一轮已结束，开始新一轮统计
+            submitted = 0;
+            started.set(0);
+            beginTime = System.currentTimeMillis();
+            finishTime = 0;
+        }
+        String site = device.getSite() == null ? "" : device.getSite();
+        PriorityQueue<Entry> queue = queues.computeIfAbsent(site, k -> new PriorityQueue<>(ORDER));
+        Entry entry = new Entry(key, device, start, device.getPriority(), seq++, queue);
+        Entry old = waiting.put(key, entry);
+        if (old != null) {
+            old.queue.remove(old);
+        } else {
+            submitted++;
+        }
+        queue.add(entry);
+    }
+
+    /**
+     * 撤销仍在排队的设备（已开始建连的由调用方自行停止）
+     */
+    public synchronized void cancel(String key) {
+        Entry entry = waiting.remove(key);
+        if (entry != null) {
+            entry.queue.remove(entry);
+            submitted--;
+        }
+    }
+
+    /**
+     * 定时推进（调度线程）：每个站点按优先级放行，直到该站点的限流拒绝为止
+     */
+    public synchronized void tick() {
+        for (PriorityQueue<Entry> queue : queues.values()) {
+            Entry entry;
+            while ((entry = queue.peek()) != null) {
+                Entry admitted = entry;
+                connecting.incrementAndGet();
+                boolean accepted = connectionManager.preconnect(admitted.device, () -> onReady(admitted));
+                if (!accepted) {
+                    connecting.decrementAndGet();
+                    break;
+                }
+                queue.poll();
+                waiting.remove(admitted.key);
+            }
+        }
+        if (beginTime > 0 && finishTime == 0 && waiting.isEmpty() && connecting.get() == 0) {
+            finishTime = System.currentTimeMillis();
+            log.info("上线爬坡完成: {} 台设备，耗时 {} ms", submitted, finishTime - beginTime);
+        }
+    }
+
+    private void onReady(Entry entry) {
+        try {
+            entry.start.run();
+            started.incrementAndGet();
+        } finally {
+            connecting.decrementAndGet();
+        }
+    }
+
+    /**
+     * 爬坡进度（REST 展示）
+     */
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        int done = started.get();
+        status.put("submitted", submitted);
+        status.put("waiting", waiting.size());
+        status.put("connecting", connecting.get());
+        status.put("started", done);
+        status.put("pendingConnects", connectionManager.pendingConnects());
+        status.put("progress", submitted == 0 ? 1.0 : (double) done / submitted);
+        status.put("beginTime", beginTime);
+        status.put("finishTime", finishTime);
+        if (beginTime > 0) {
+            status.put("elapsedMs", (finishTime > 0 ? finishTime : System.currentTimeMillis()) - beginTime);
+        }
+        return status;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final DeviceConfig device;
+        private final Runnable start;
+        private final int priority;
+        private final long seq;
+        private final PriorityQueue<Entry> queue;
+
+        private Entry(String key, DeviceConfig device, Runnable start, int priority, long seq,
+                      PriorityQueue<Entry> queue) {
+            this.key = key;
+            this.device = device;
+            this.start = start;
+            this.priority = priority;
+            this.seq = seq;
+            this.queue = queue;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.netty.service;
+
+import com.netty.config.ModbusConfig;
+import com.netty.core.LastValueCache;
+import com.netty.core.StateSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-03 10:00
+ * {@code @description:}
+ * 运行状态快照的加载与保存：启动时若控制面还没同步过设备，按快照直接恢复采集与最新值；
+ * 运行期按 snapshotInterval 定期写，停机时再写一次。控制面之后的 sync 照常按差异增删设备。
+ */
+@Slf4j
+@Component
+public class SnapshotService {
+
+    private final ModbusConfig modbusConfig;
+    private final ModbusMasterService masterService;
+    private final LastValueCache lastValueCache;
+
+    private ScheduledExecutorService writer;
+
+    private volatile long lastWriteTime;
+    private volatile long lastWriteBytes;
+    private volatile long lastWriteCost;
+    private volatile int restored;
+
+    public SnapshotService(ModbusConfig modbusConfig, ModbusMasterService masterService,
+                           LastValueCache lastValueCache) {
+        this.modbusConfig = modbusConfig;
+        this.masterService = masterService;
+        this.lastValueCache = lastValueCache;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!modbusConfig.isSnapshotEnabled()) {
+            return;
+        }
+        load();
+        if (modbusConfig.getSnapshotInterval() > 0) {
+            writer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ModbusSnapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            long interval = modbusConfig.getSnapshotInterval();
+            writer.scheduleWithFixedDelay(this::writeQuietly, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private void load() {
+        Path file = Paths.get(modbusConfig.getSnapshotFile());
+        if (!Files.exists(file)) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        try {
+            StateSnapshot snapshot = StateSnapshot.load(file);
+            restored = masterService.restore(snapshot);
+            log.info("已从快照恢复 {} 台设备、{} 份最新值 (快照时间 {}，耗时 {} ms)", restored,
+                    snapshot.getImages().size(), snapshot.getCreatedAt(), System.currentTimeMillis() - begin);
+        } catch (IOException | RuntimeException e) {
+            log.error("快照加载失败，等待控制面同步: {} - {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * 立即写一次快照
+     */
+    public synchronized long write() throws IOException {
+        long begin = System.currentTimeMillis();
+        long bytes = StateSnapshot.write(Paths.get(modbusConfig.getSnapshotFile()), masterService.devices(),
+                lastValueCache.all());
+        lastWriteTime = System.currentTimeMillis();
+        lastWriteCost = lastWriteTime - begin;
+        lastWriteBytes = bytes;
+        return bytes;
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            log.error("快照写入失败: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", modbusConfig.isSnapshotEnabled());
+        status.put("file", modbusConfig.getSnapshotFile());
+        status.put("restoredDevices", restored);
+        status.put("lastWriteTime", lastWriteTime);
+        status.put("lastWriteBytes", lastWriteBytes);
+        status.put("lastWriteMs", lastWriteCost);
+        return status;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (writer != null) {
+            writer.shutdownNow();
+        }
+        if (modbusConfig.isSnapshotEnabled()) {
+            writeQuietly();
+            log.info("停机快照已保存: {} ({} bytes)", modbusConfig.getSnapshotFile(), lastWriteBytes);
+        }
+    }
+}
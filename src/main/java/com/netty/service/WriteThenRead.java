@@ -0,0 +1,109 @@
+package com.netty.service;
+
+import com.netty.core.ModbusDataParser;
+import com.netty.core.ModbusFrame;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusCallback;
+import com.netty.core.common.ModbusTask;
+import com.netty.core.common.QueuedTask;
+import com.netty.manager.ConnectionManager;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-10 09:30
+ * {@code @description:}
+ * 先写后读（控制回路写设定值后立即读回状态）：设备支持时用功能码 23 一次往返完成；
+ * 设备对 23 回 01（非法功能）时记在设备上，本次及以后改为 16 写成功后再 03 读。
+ * 各步响应照常交给 Dispatcher 分发（读回的值同样更新镜像、进入输出）。
+ * 后续一步在响应回调（IO 线程）里触发，发送可能同步建连，因此交给设备所在站点分区的调度线程执行。
+ */
+@Slf4j
+final class WriteThenRead implements ModbusCallback {
+
+    private static final int ILLEGAL_FUNCTION = 0x01;
+
+    private final ConnectionManager connectionManager;
+    // 设备所在站点分区的调度线程
+    private final Executor scheduler;
+    private final ModbusCallback downstream;
+    private final DeviceConfig device;
+    private final int writeAddr;
+    private final int[] values;
+    private final int readAddr;
+    private final int readCount;
+    private final CompletableFuture<int[]> future = new CompletableFuture<>();
+
+    WriteThenRead(ConnectionManager connectionManager, Executor scheduler, ModbusCallback downstream,
+                  DeviceConfig device, int writeAddr, int[] values, int readAddr, int readCount) {
+        this.connectionManager = connectionManager;
+        this.scheduler = scheduler;
+        this.downstream = downstream;
+        this.device = device;
+        this.writeAddr = writeAddr;
+        this.values = values;
+        this.readAddr = readAddr;
+        this.readCount = readCount;
+    }
+
+    /**
+     * 发出第一步（不同步建连，调用线程不被阻塞）
+     */
+    CompletableFuture<int[]> start() {
+        if (device.isReadWriteUnsupported()) {
+            connectionManager.sendAsync(device, writeTask(), this);
+        } else {
+            connectionManager.sendAsync(device, ModbusTask.readWrite(writeAddr, values, readAddr, readCount), this);
+        }
+        return future;
+    }
+
+    private ModbusTask writeTask() {
+        return ModbusTask.builder().type(16).startAddr(writeAddr).count(values.length).writeValues(values).build();
+    }
+
+    private void sendWrite() {
+        connectionManager.send(device, writeTask(), this);
+    }
+
+    private void sendRead() {
+        connectionManager.send(device, ModbusTask.read(readAddr, readCount), this);
+    }
+
+    @Override
+    public void onResponse(QueuedTask request, ModbusFrame response) {
+        int type = request.getTask().getType();
+        int fc = response.getFunctionCode() & 0xFF;
+        if (fc > 0x80) {
+            int code = response.getPayload().length > 0 ? response.getPayload()[0] & 0xFF : 0;
+            if (type == 23 && code == ILLEGAL_FUNCTION) {
+                // 设备不支持 23：记住并退回两次请求，这一次异常不向下游分发
+                log.info("设备 {} 不支持功能码 23，先写后读改为 16 + 03", device.getKey());
+                device.setReadWriteUnsupported(true);
+                scheduler.execute(this::sendWrite);
+                return;
+            }
+            downstream.onResponse(request, response);
+            future.completeExceptionally(new IllegalStateException("Modbus exception code " + code + " on fc " + type));
+            return;
+        }
+        if (type == 16) {
+            downstream.onResponse(request, response);
+            scheduler.execute(this::sendRead);
+            return;
+        }
+        // 23 或 03：载荷同为 [字节计数, 寄存器...]，帧在返回后回收，先解析
+        int[] registers = ModbusDataParser.parseRegisters(response.getPayload());
+        downstream.onResponse(request, response);
+        future.complete(registers);
+    }
+
+    @Override
+    public void onFailure(QueuedTask request, Throwable cause) {
+        downstream.onFailure(request, cause);
+        future.completeExceptionally(cause);
+    }
+}
@@ -0,0 +1,141 @@
+package com.netty.sink;
+
+import com.netty.core.RegisterImage;
+import com.netty.util.Ewma;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-30 10:20
+ * {@code @description:}
+ * 非阻塞 Redis 输出：每个设备一个 Hash（DEVICE:DATA:{deviceId}），只 HSET 本次发生变化的点位，
+ * 外加批次时间 TS_{表}:{起始}_{数量} 与设备活跃时间 _LIVE_TIME。
+ * 发出即返回，在途命令数有上限；超限或写入失败时作废对应地址的镜像，下次采样会整段重写，不会丢变化。
+ * <pre>
+ * Key: DEVICE:DATA:{deviceId}
+ * Field: "4:1" -> "123"              // 保持寄存器 1 的值
+ * Field: "TS_4:1_100" -> "1768189688000"
+ * Field: "_LIVE_TIME" -> "1768189688050"
+ * </pre>
+ */
+@Slf4j
+public class AsyncRedisSink {
+
+    private static final String KEY_PREFIX = "DEVICE:DATA:";
+    // 表 -> 字段前缀，与 HELP.md 中的存储映射一致
+    private static final String[] FIELD_PREFIX = {"0:", "1:", "4:", "3:"};
+    private static final long ERROR_LOG_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    private final RedisHashClient client;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+
+    private final Counter writes;
+    private final Counter errors;
+    private final Counter dropped;
+    private final Timer latency;
+    // 往返耗时的滑动均值，供背压判定
+    private final Ewma latencyEwma = new Ewma(0.2);
+
+    // 错误汇总：按周期打一条日志，避免 Redis 故障时刷屏
+    private final AtomicLong errorsSinceLog = new AtomicLong();
+    private final AtomicLong lastErrorLog = new AtomicLong();
+
+    public AsyncRedisSink(RedisHashClient client, int maxInFlight, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlight = new Semaphore(this.maxInFlight);
+        this.lastErrorLog.set(System.nanoTime() - ERROR_LOG_INTERVAL);
+        this.writes = Counter.builder("modbus.sink.writes").tag("sink", "redis")
+                .description("Redis 写入命令数").register(meterRegistry);
+        this.errors = Counter.builder("modbus.sink.errors").tag("sink", "redis")
+                .description("Redis 写入失败数").register(meterRegistry);
+        this.dropped = Counter.builder("modbus.sink.dropped").tag("sink", "redis")
+                .description("在途命令已满而放弃的写入数").register(meterRegistry);
+        this.latency = Timer.builder("modbus.sink.latency").tag("sink", "redis")
+                .description("Redis 写入往返耗时").register(meterRegistry);
+        Gauge.builder("modbus.sink.inflight", this, AsyncRedisSink::inFlight).tag("sink", "redis")
+                .description("Redis 在途命令数").register(meterRegistry);
+    }
+
+    /**
+     * 写出一段读取结果中变化的点位，值从镜像中取（镜像已在分发时更新）
+     *
+     * @param changed 变化点在本段内的下标，前 n 个有效；方法返回后不再引用
+     */
+    public void write(RegisterImage image, int table, int start, int count, int[] changed, int n, long timestamp) {
+        if (!inFlight.tryAcquire()) {
+            dropped.increment();
+            image.invalidate(table, start, count);
+            return;
+        }
+        String prefix = FIELD_PREFIX[table];
+        String ts = Long.toString(timestamp);
+        Map<String, String> fields = new HashMap<>((n + 2) * 4 / 3 + 1);
+        for (int i = 0; i < n; i++) {
+            int address = start + changed[i];
+            fields.put(prefix + address, Integer.toString(image.value(table, address)));
+        }
+        fields.put("TS_" + prefix + start + "_" + count, ts);
+        fields.put("_LIVE_TIME", ts);
+
+        long begin = System.nanoTime();
+        try {
+            client.hset(KEY_PREFIX + image.getDeviceId(), fields).whenComplete((r, e) -> {
+                inFlight.release();
+                long elapsed = System.nanoTime() - begin;
+                latency.record(elapsed, TimeUnit.NANOSECONDS);
+                latencyEwma.update(elapsed);
+                if (e != null) {
+                    onError(image, table, start, count, e);
+                } else {
+                    writes.increment();
+                }
+            });
+        } catch (RuntimeException e) {
+            // 同步抛出（连接已关闭等）同样按失败处理
+            inFlight.release();
+            onError(image, table, start, count, e);
+        }
+    }
+
+    private void onError(RegisterImage image, int table, int start, int count, Throwable e) {
+        errors.increment();
+        image.invalidate(table, start, count);
+        long n = errorsSinceLog.incrementAndGet();
+        long now = System.nanoTime();
+        long last = lastErrorLog.get();
+        if (now - last >= ERROR_LOG_INTERVAL && lastErrorLog.compareAndSet(last, now)) {
+            errorsSinceLog.addAndGet(-n);
+            log.error("Redis 写入失败 {} 次（最近一次: {}）", n, e.getMessage());
+        }
+    }
+
+    public int inFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public double inFlightRatio() {
+        return (double) inFlight() / maxInFlight;
+    }
+
+    public double latencyNanos() {
+        return latencyEwma.get();
+    }
+
+    @PreDestroy
+    public void close() {
+        client.close();
+    }
+}
@@ -0,0 +1,383 @@
+package com.netty.sink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-02 09:30
+ * {@code @description:}
+ * 只追加的分段落盘日志：目录下按序号命名的定长段文件（{@code 00000000000000000001.seg}），每段整体内存映射。
+ * 写满一段再开新段，读完的旧段直接删除；段总大小超出磁盘预算时丢弃最旧的段。
+ * 读写位置记在各段文件头里，进程重启后从上次确认的位置继续。
+ * <pre>
+ * 段头(32B): magic(4) version(4) writePos(4) readPos(4) count(4) readCount(4) lastTimestamp(8)
+ * 记录:     length(4) timestamp(8) sink(1) keyLen(2) key typeLen(1) type body
+ * </pre>
+ * 方法都加锁；peek 到 commit 之间只应有一个读者（回放线程）。
+ */
+public class DiskSpool implements Closeable {
+
+    private static final int MAGIC = 0x4D53504C; // "MSPL"
+    private static final int VERSION = 1;
+    private static final int HEADER = 32;
+    private static final int RECORD_HEADER = 4 + 8 + 1 + 2 + 1;
+    private static final String SUFFIX = ".seg";
+
+    private static final int OFF_WRITE = 8;
+    private static final int OFF_READ = 12;
+    private static final int OFF_COUNT = 16;
+    private static final int OFF_READ_COUNT = 20;
+    private static final int OFF_LAST_TS = 24;
+
+    private final Path dir;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    // 从最旧到最新，最后一个为写入段
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private long nextId = 1;
+    // 未确认的记录数
+    private long backlog;
+    // 因磁盘预算被丢弃的记录数（累计）
+    private long dropped;
+
+    private DiskSpool(Path dir, int segmentSize, int maxSegments) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * 打开（或恢复）落盘目录；段文件在第一次写入时才创建
+     *
+     * @param maxBytes 磁盘预算，至少保留两段
+     */
+    public static DiskSpool open(Path dir, int segmentSize, long maxBytes) throws IOException {
+        DiskSpool spool = new DiskSpool(dir, segmentSize, (int) Math.max(2, maxBytes / segmentSize));
+        if (!Files.isDirectory(dir)) {
+            return spool;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long id = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            Segment segment = Segment.map(id, file, segmentSize);
+            if (segment == null) {
+                // 格式不符（段大小改过或文件损坏），保留原文件不动
+                continue;
+            }
+            spool.segments.addLast(segment);
+            spool.backlog += segment.count - segment.readCount;
+            spool.nextId = id + 1;
+        }
+        return spool;
+    }
+
+    /**
+     * 追加一条记录；单条记录超过段容量时返回 false
+     */
+    public synchronized boolean append(long timestamp, byte sink, String key, String type, byte[] body)
+            throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        int length = RECORD_HEADER + keyBytes.length + typeBytes.length + body.length;
+        if (keyBytes.length > 0xFFFF || typeBytes.length > 0xFF || length > segmentSize - HEADER) {
+            return false;
+        }
+        Segment segment = segments.peekLast();
+        if (segment == null || segment.writePos + length > segmentSize) {
+            segment = roll();
+        }
+        MappedByteBuffer buf = segment.buffer;
+        int pos = segment.writePos;
+        buf.putInt(pos, length);
+        buf.putLong(pos + 4, timestamp);
+        buf.put(pos + 12, sink);
+        buf.putShort(pos + 13, (short) keyBytes.length);
+        buf.put(pos + 15, (byte) typeBytes.length);
+        pos += RECORD_HEADER;
+        pos = put(buf, pos, keyBytes);
+        pos = put(buf, pos, typeBytes);
+        put(buf, pos, body);
+        // 记录写完后再推进写位置，中途崩溃只会丢掉这一条
+        segment.writePos += length;
+        segment.count++;
+        segment.lastTimestamp = timestamp;
+        segment.writeIndex();
+        backlog++;
+        return true;
+    }
+
+    private static int put(MappedByteBuffer buf, int pos, byte[] bytes) {
+        for (byte b : bytes) {
+            buf.put(pos++, b);
+        }
+        return pos;
+    }
+
+    /**
+     * 开新段；超出预算时先丢弃最旧的段
+     */
+    private Segment roll() throws IOException {
+        Segment last = segments.peekLast();
+        if (last != null && last.readPos == last.writePos) {
+            // 写入段已读完：原地复用，不必开新文件
+            last.rewind();
+            return last;
+        }
+        while (segments.size() >= maxSegments) {
+            Segment oldest = segments.pollFirst();
+            long lost = oldest.count - oldest.readCount;
+            backlog -= lost;
+            dropped += lost;
+            oldest.delete();
+        }
+        Files.createDirectories(dir);
+        long id = nextId++;
+        Segment segment = Segment.create(id, dir.resolve(String.format("%020d%s", id, SUFFIX)), segmentSize);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    /**
+     * 从最旧处读取至多 max 条未确认的记录（不移动读位置），确认用 {@link #commit(Record)}
+     */
+    public synchronized List<Record> peek(int max) {
+        List<Record> records = new ArrayList<>(Math.min(max, 256));
+        for (Segment segment : segments) {
+            int pos = segment.readPos;
+            while (pos < segment.writePos && records.size() < max) {
+                Record record = segment.read(pos);
+                records.add(record);
+                pos = record.end;
+            }
+            if (records.size() >= max) {
+                break;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 确认截至 last（含）的记录已投递，读完的旧段被删除。
+     * 期间被预算或保留期淘汰的段直接跳过，不会误确认后面的记录。
+     */
+    public synchronized void commit(Record last) throws IOException {
+        Segment segment;
+        while ((segment = segments.peekFirst()) != null && segment.id <= last.segmentId) {
+            int end = segment.id == last.segmentId ? last.end : segment.writePos;
+            while (segment.readPos < end) {
+                segment.readPos += segment.buffer.getInt(segment.readPos);
+                segment.readCount++;
+                backlog--;
+            }
+            segment.writeIndex();
+            boolean done = segment.id == last.segmentId;
+            if (segment.readPos == segment.writePos && segments.size() > 1) {
+                segments.pollFirst();
+                segment.delete();
+            }
+            if (done) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 删除最后一条记录早于 before 的整段（写入段除外），返回丢弃的记录数
+     */
+    public synchronized long purgeBefore(long before) throws IOException {
+        long purged = 0;
+        while (segments.size() > 1 && segments.peekFirst().lastTimestamp < before) {
+            Segment oldest = segments.pollFirst();
+            purged += oldest.count - oldest.readCount;
+            oldest.delete();
+        }
+        backlog -= purged;
+        return purged;
+    }
+
+    public synchronized long backlog() {
+        return backlog;
+    }
+
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long diskBytes() {
+        return (long) segments.size() * segmentSize;
+    }
+
+    public synchronized void force() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+        segments.clear();
+    }
+
+    /**
+     * 一条落盘记录（peek 时拷贝出来，与映射区无关）
+     */
+    public static final class Record {
+        // 所在段与记录结束位置，commit 用
+        private final long segmentId;
+        private final int end;
+        private final long timestamp;
+        private final byte sink;
+        private final String key;
+        private final String type;
+        private final byte[] body;
+
+        private Record(long segmentId, int end, long timestamp, byte sink, String key, String type, byte[] body) {
+            this.segmentId = segmentId;
+            this.end = end;
+            this.timestamp = timestamp;
+            this.sink = sink;
+            this.key = key;
+            this.type = type;
+            this.body = body;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public byte getSink() {
+            return sink;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePos;
+        private int readPos;
+        private int count;
+        private int readCount;
+        private long lastTimestamp;
+
+        private Segment(long id, Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private static Segment create(long id, Path file, int size) throws IOException {
+            FileChannel ch = new RandomAccessFile(file.toFile(), "rw").getChannel();
+            Segment segment = new Segment(id, file, ch, ch.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segment.buffer.putInt(0, MAGIC);
+            segment.buffer.putInt(4, VERSION);
+            segment.rewind();
+            return segment;
+        }
+
+        private static Segment map(long id, Path file, int size) throws IOException {
+            if (Files.size(file) != size) {
+                return null;
+            }
+            FileChannel ch = new RandomAccessFile(file.toFile(), "rw").getChannel();
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+                ch.close();
+                return null;
+            }
+            Segment segment = new Segment(id, file, ch, buf);
+            segment.writePos = buf.getInt(OFF_WRITE);
+            segment.readPos = buf.getInt(OFF_READ);
+            segment.count = buf.getInt(OFF_COUNT);
+            segment.readCount = buf.getInt(OFF_READ_COUNT);
+            segment.lastTimestamp = buf.getLong(OFF_LAST_TS);
+            return segment;
+        }
+
+        private Record read(int pos) {
+            int length = buffer.getInt(pos);
+            long timestamp = buffer.getLong(pos + 4);
+            byte sink = buffer.get(pos + 12);
+            int keyLen = buffer.getShort(pos + 13) & 0xFFFF;
+            int typeLen = buffer.get(pos + 15) & 0xFF;
+            int p = pos + RECORD_HEADER;
+            String key = new String(get(p, keyLen), StandardCharsets.UTF_8);
+            p += keyLen;
+            String type = new String(get(p, typeLen), StandardCharsets.US_ASCII);
+            p += typeLen;
+            byte[] body = get(p, pos + length - p);
+            return new Record(id, pos + length, timestamp, sink, key, type, body);
+        }
+
+        private byte[] get(int pos, int len) {
+            byte[] bytes = new byte[len];
+            for (int i = 0; i < len; i++) {
+                bytes[i] = buffer.get(pos + i);
+            }
+            return bytes;
+        }
+
+        private void rewind() {
+            writePos = HEADER;
+            readPos = HEADER;
+            count = 0;
+            readCount = 0;
+            writeIndex();
+        }
+
+        private void writeIndex() {
+            buffer.putInt(OFF_WRITE, writePos);
+            buffer.putInt(OFF_READ, readPos);
+            buffer.putInt(OFF_COUNT, count);
+            buffer.putInt(OFF_READ_COUNT, readCount);
+            buffer.putLong(OFF_LAST_TS, lastTimestamp);
+        }
+
+        private void delete() throws IOException {
+            channel.close();
+            // 映射区随 GC 释放；Linux 下删除已映射的文件不受影响
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.netty.sink;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-30 10:05
+ * {@code @description:}
+ * 基于 Lettuce async API 的实现：单连接多路复用，断线时直接拒绝命令（由上层计入错误），不在客户端内无限缓冲
+ */
+public class LettuceHashClient implements RedisHashClient {
+
+    private final RedisClient client;
+    private final StatefulRedisConnection<String, String> connection;
+    private final RedisAsyncCommands<String, String> commands;
+
+    public LettuceHashClient(RedisURI uri) {
+        this.client = RedisClient.create(uri);
+        this.client.setOptions(ClientOptions.builder()
+                .autoReconnect(true)
+                .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                .build());
+        this.connection = client.connect(uri);
+        this.commands = connection.async();
+    }
+
+    @Override
+    public CompletionStage<?> hset(String key, Map<String, String> fields) {
+        return commands.hset(key, fields);
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+        client.shutdown();
+    }
+}
@@ -0,0 +1,21 @@
+package com.netty.sink;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-30 10:00
+ * {@code @description:}
+ * 异步 Hash 写入的最小抽象：生产环境由 Lettuce 实现，测试可替换为内存实现
+ */
+public interface RedisHashClient extends AutoCloseable {
+
+    /**
+     * HSET key field value [field value ...]，不阻塞调用线程
+     */
+    CompletionStage<?> hset(String key, Map<String, String> fields);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,268 @@
+package com.netty.sink;
+
+import com.netty.config.ModbusConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-02-02 10:10
+ * {@code @description:}
+ * 输出端断连时的落盘暂存（store-and-forward）：发送失败的样本写入 {@link DiskSpool}，
+ * 只要暂存里还有积压，新样本也一律排在后面，保证恢复后按原顺序送达。
+ * 回放线程按 spoolReplayRate 限速逐条重发，遇到失败即停，下个周期再试（兼作恢复探测）；
+ * 早于保留期的样本直接丢弃并计数。
+ */
+@Slf4j
+@Component
+public class SinkSpool {
+
+    public static final byte REDIS = 0;
+    public static final byte RABBITMQ = 1;
+
+    // 回放周期
+    private static final long REPLAY_INTERVAL = 200L;
+
+    private final ModbusConfig modbusConfig;
+    private final long retentionMillis;
+
+    private volatile DiskSpool spool;
+    private ScheduledExecutorService replayThread;
+    private volatile Sender sender;
+    // 最近一次发送失败后置位，回放清空积压后复位
+    private volatile boolean down;
+    // 限速令牌，不足一条的部分留到下个周期
+    private double credit;
+
+    private final Counter appended;
+    private final Counter replayed;
+    private final Counter expired;
+    private final Counter rejected;
+
+    public SinkSpool(ModbusConfig modbusConfig, MeterRegistry meterRegistry) {
+        this.modbusConfig = modbusConfig;
+        this.retentionMillis = TimeUnit.HOURS.toMillis(modbusConfig.getSpoolRetentionHours());
+        this.appended = Counter.builder("modbus.spool.appended")
+                .description("写入暂存的样本数").register(meterRegistry);
+        this.replayed = Counter.builder("modbus.spool.replayed")
+                .description("回放成功的样本数").register(meterRegistry);
+        this.expired = Counter.builder("modbus.spool.expired")
+                .description("超过保留期被丢弃的样本数").register(meterRegistry);
+        this.rejected = Counter.builder("modbus.spool.rejected")
+                .description("暂存不可用或单条过大而丢弃的样本数").register(meterRegistry);
+        Gauge.builder("modbus.spool.backlog", this, SinkSpool::backlog)
+                .description("暂存中待回放的样本数").register(meterRegistry);
+        Gauge.builder("modbus.spool.dropped", this, s -> s.spool != null ? s.spool.dropped() : 0)
+                .description("超出磁盘预算被淘汰的样本数").register(meterRegistry);
+        Gauge.builder("modbus.spool.disk.bytes", this, s -> s.spool != null ? s.spool.diskBytes() : 0)
+                .description("暂存占用的磁盘空间").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return modbusConfig.isSpoolEnabled();
+    }
+
+    /**
+     * 打开暂存目录（恢复上次未回放的积压）并启动回放线程，sender 负责实际发送
+     */
+    public synchronized void start(Sender sender) {
+        if (!isEnabled() || replayThread != null) {
+            return;
+        }
+        this.sender = sender;
+        try {
+            openSpool();
+        } catch (IOException e) {
+            log.error("暂存目录打开失败: {} - {}", modbusConfig.getSpoolDir(), e.getMessage());
+            return;
+        }
+        if (spool.backlog() > 0) {
+            down = true;
+            log.warn("发现上次未回放的暂存样本 {} 条，将按序回放", spool.backlog());
+        }
+        replayThread = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SinkSpool-replay");
+            t.setDaemon(true);
+            return t;
+        });
+        replayThread.scheduleWithFixedDelay(this::replayQuietly, REPLAY_INTERVAL, REPLAY_INTERVAL,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void openSpool() throws IOException {
+        if (spool == null) {
+            spool = DiskSpool.open(Paths.get(modbusConfig.getSpoolDir()),
+                    modbusConfig.getSpoolSegmentMb() * 1024 * 1024,
+                    (long) modbusConfig.getSpoolMaxDiskMb() * 1024 * 1024);
+        }
+    }
+
+    /**
+     * 新样本是否必须进暂存：输出端刚失败过，或暂存里还有没回放完的样本
+     */
+    public boolean isBacklogged() {
+        return down || (spool != null && spool.backlog() > 0);
+    }
+
+    /**
+     * 发送失败：标记输出端不可用并把样本写入暂存
+     */
+    public void onSendFailure(byte sink, String key, String type, byte[] body, Throwable cause) {
+        if (!down) {
+            down = true;
+            log.warn("输出端不可用，样本转入落盘暂存: {}", cause != null ? cause.getMessage() : "send failed");
+        }
+        append(sink, key, type, body);
+    }
+
+    public void append(byte sink, String key, String type, byte[] body) {
+        boolean ok = false;
+        try {
+            DiskSpool s;
+            synchronized (this) {
+                openSpool();
+                s = spool;
+            }
+            ok = s.append(System.currentTimeMillis(), sink, key, type, body);
+        } catch (IOException e) {
+            log.error("写入暂存失败: {}", e.getMessage());
+        }
+        if (ok) {
+            appended.increment();
+        } else {
+            rejected.increment();
+        }
+    }
+
+    private void replayQuietly() {
+        try {
+            replay(sender);
+        } catch (Exception e) {
+            log.error("暂存回放异常: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 一个回放周期：清理过期段，再按限速额度顺序重发，遇到失败即停
+     *
+     * @return 本周期确认的样本数（成功与过期）
+     */
+    public int replay(Sender sender) throws IOException {
+        if (sender == null) {
+            return 0;
+        }
+        synchronized (this) {
+            openSpool();
+        }
+        long now = System.currentTimeMillis();
+        long before = now - retentionMillis;
+        long purged = spool.purgeBefore(before);
+        if (purged > 0) {
+            expired.increment(purged);
+        }
+        if (spool.backlog() == 0) {
+            credit = 0;
+            down = false;
+            return 0;
+        }
+        int rate = modbusConfig.getSpoolReplayRate();
+        int quota;
+        if (rate > 0) {
+            // 额度最多攒一个周期，输出端恢复时不会一次性补发
+            double perTick = rate * REPLAY_INTERVAL / 1000.0;
+            credit = Math.min(Math.max(1, perTick), credit + perTick);
+            quota = (int) credit;
+        } else {
+            quota = 1000;
+        }
+        if (quota == 0) {
+            return 0;
+        }
+        List<DiskSpool.Record> records = spool.peek(quota);
+        DiskSpool.Record last = null;
+        int done = 0;
+        try {
+            for (DiskSpool.Record record : records) {
+                if (record.getTimestamp() < before) {
+                    expired.increment();
+                } else {
+                    sender.send(record.getSink(), record.getKey(), record.getType(), record.getBody());
+                    replayed.increment();
+                }
+                last = record;
+                done++;
+            }
+        } catch (Exception e) {
+            log.debug("暂存回放中断，输出端仍不可用: {}", e.getMessage());
+        }
+        if (last != null) {
+            spool.commit(last);
+        }
+        if (rate > 0) {
+            credit -= done;
+        }
+        if (spool.backlog() == 0) {
+            down = false;
+            log.info("落盘暂存已回放完毕，恢复直接输出");
+        }
+        return done;
+    }
+
+    public long backlog() {
+        DiskSpool s = spool;
+        return s != null ? s.backlog() : 0;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", isEnabled());
+        status.put("down", down);
+        status.put("backlog", backlog());
+        if (spool != null) {
+            status.put("segments", spool.segmentCount());
+            status.put("diskBytes", spool.diskBytes());
+            status.put("dropped", spool.dropped());
+        }
+        status.put("appended", appended.count());
+        status.put("replayed", replayed.count());
+        status.put("expired", expired.count());
+        return status;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (replayThread != null) {
+            replayThread.shutdownNow();
+            replayThread = null;
+        }
+        if (spool != null) {
+            try {
+                spool.close();
+            } catch (IOException e) {
+                log.error("暂存关闭失败: {}", e.getMessage());
+            }
+            spool = null;
+        }
+    }
+
+    /**
+     * 实际发送，失败时抛出异常
+     */
+    @FunctionalInterface
+    public interface Sender {
+        void send(byte sink, String key, String type, byte[] body) throws Exception;
+    }
+}
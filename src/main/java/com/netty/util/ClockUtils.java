@@ -0,0 +1,56 @@
+package com.netty.util;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-23 10:20
+ * {@code @description:}
+ * 把 System.nanoTime() 换算成纳秒级墙钟时间戳：启动时记录一组 (墙钟, nanoTime) 锚点，
+ * 之后只做加减，保证同一节点上各设备的收发时间单调且可比。锚点可定期重新校准以跟随 NTP 调整。
+ */
+public final class ClockUtils {
+
+    private static volatile Anchor anchor = new Anchor();
+
+    private ClockUtils() {
+    }
+
+    /**
+     * nanoTime -> 墙钟纳秒 (epoch)
+     */
+    public static long toEpochNanos(long nanoTime) {
+        Anchor a = anchor;
+        return a.epochNanos + (nanoTime - a.nanoTime);
+    }
+
+    /**
+     * nanoTime -> 墙钟毫秒 (epoch)
+     */
+    public static long toEpochMillis(long nanoTime) {
+        return toEpochNanos(nanoTime) / 1_000_000L;
+    }
+
+    /**
+     * 重新校准锚点
+     */
+    public static void recalibrate() {
+        anchor = new Anchor();
+    }
+
+    private static final class Anchor {
+        private final long epochNanos;
+        private final long nanoTime;
+
+        private Anchor() {
+            // 在毫秒跳变处取锚点，减少墙钟毫秒截断带来的误差
+            long ms = System.currentTimeMillis();
+            long now;
+            long nano;
+            do {
+                nano = System.nanoTime();
+                now = System.currentTimeMillis();
+            } while (now == ms);
+            this.epochNanos = now * 1_000_000L;
+            this.nanoTime = nano;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.netty.util;
+
+/**
+ * {@code @author:} TaiHuLake
+ * {@code @date:} 2026-01-31 09:10
+ * {@code @description:}
+ * 指数加权移动平均。多线程并发更新时允许丢失个别样本（只用于压力判定，不要求精确）。
+ */
+public final class Ewma {
+
+    private final double alpha;
+    private volatile double value;
+
+    public Ewma(double alpha) {
+        this.alpha = alpha;
+    }
+
+    public void update(double sample) {
+        double v = value;
+        value = v == 0 ? sample : v + alpha * (sample - v);
+    }
+
+    public double get() {
+        return value;
+    }
+}
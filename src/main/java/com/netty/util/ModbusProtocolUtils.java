@@ -1,5 +1,7 @@
 package com.netty.util;
 
+import io.netty.buffer.ByteBuf;
+
 /**
  * {@code @author:} TaiHuLake
  * {@code @date:} 2026-01-11 21:04
@@ -54,4 +56,53 @@ public class ModbusProtocolUtils {
         }
         return payload;
     }
+
+    // ==================== 直接写入 ByteBuf（发送热路径，不产生中间 byte[]） ====================
+
+    /**
+     * 通用读取 PDU (01, 02, 03, 04)
+     */
+    public static void writeReadPDU(ByteBuf out, int startAddr, int count) {
+        out.writeShort(startAddr);
+        out.writeShort(count);
+    }
+
+    // 0x05: 写单个线圈
+    public static void writeWriteSingleCoil(ByteBuf out, int address, boolean status) {
+        out.writeShort(address);
+        out.writeByte(status ? 0xFF : 0x00);
+        out.writeByte(0x00);
+    }
+
+    // 0x06: 写单个寄存器
+    public static void writeWriteSingleRegister(ByteBuf out, int address, int value) {
+        out.writeShort(address);
+        out.writeShort(value);
+    }
+
+    // 0x10: 预置多个寄存器
+    public static void writeWriteMultipleRegisters(ByteBuf out, int startAddr, int[] values) {
+        int quantity = values.length;
+        out.writeShort(startAddr);
+        out.writeShort(quantity);
+        out.writeByte(quantity * 2);
+        for (int value : values) {
+            out.writeShort(value);
+        }
+    }
+
+    /**
+     * 0x17: 读写多个寄存器，设备先写后读，一次往返完成
+     */
+    public static void writeReadWriteMultipleRegisters(ByteBuf out, int readAddr, int readCount,
+                                                       int writeAddr, int[] values) {
+        out.writeShort(readAddr);
+        out.writeShort(readCount);
+        out.writeShort(writeAddr);
+        out.writeShort(values.length);
+        out.writeByte(values.length * 2);
+        for (int value : values) {
+            out.writeShort(value);
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package com.netty.capture;
+
+import com.netty.config.ModbusConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 抓包导出只能落在抓包目录内；过滤条目格式不合法时拒绝且不改动原过滤条件；环形文件大小超出 int 范围时拒绝启动
+ */
+class WireCaptureServiceTest {
+
+    private WireCaptureService service() {
+        ModbusConfig config = new ModbusConfig();
+        config.setCaptureFile("capture/modbus-wire.ring");
+        WireCaptureService service = new WireCaptureService();
+        ReflectionTestUtils.setField(service, "modbusConfig", config);
+        return service;
+    }
+
+    @Test
+    void exportIsConfinedToCaptureDirectory() {
+        WireCaptureService service = service();
+        Path dir = Paths.get("capture").toAbsolutePath().normalize();
+        assertEquals(dir.resolve("out.pcap"), service.resolveExport("out.pcap"));
+
+        for (String name : new String[]{"", "..", "../out.pcap", "/tmp/out.pcap", "a/b.pcap", "..\\out.pcap", "C:out.pcap"}) {
+            assertThrows(IllegalArgumentException.class, () -> service.resolveExport(name), name);
+        }
+    }
+
+    @Test
+    void rejectsMalformedFilter() {
+        WireCaptureService service = service();
+        service.setFilter(Arrays.asList("10.0.0.1:502", "10.0.0.2:502:3"));
+        assertEquals(2, service.getFilter().size());
+
+        for (String key : new String[]{"10.0.0.1", "10.0.0.1:", "10.0.0.1:abc", "10.0.0.1:70000", ":502",
+                "10.0.0.1:502:256", "10.0.0.1:502:x", "10.0.0.1:502:1:2"}) {
+            assertThrows(IllegalArgumentException.class, () -> service.setFilter(Collections.singletonList(key)), key);
+        }
+        assertEquals(2, service.getFilter().size());
+    }
+
+    @Test
+    void rejectsCaptureSizeBeyondIntRange() {
+        for (int sizeMb : new int[]{0, -1, 2048, 4096}) {
+            WireCaptureService service = service();
+            ((ModbusConfig) ReflectionTestUtils.getField(service, "modbusConfig")).setCaptureSizeMb(sizeMb);
+            assertThrows(IllegalStateException.class, service::start, String.valueOf(sizeMb));
+            assertFalse(service.isRecording());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.netty.core;
+
+import com.netty.core.common.DeviceConfig;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 5 万设备规模下的注册表开销：编译时每设备的分配字节数，以及每次轮询解析连接池与设备 Key 的 CPU 时间与分配，
+ * 句柄下标访问对比原先的拼接 Key + 哈希表查找
+ */
+class DeviceRegistryCostTest {
+
+    private static final int DEVICES = 50_000;
+    private static final int SLAVES_PER_ENDPOINT = 10;
+    private static final int ROUNDS = 20;
+
+    private final com.sun.management.ThreadMXBean bean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void handleLookupIsCheaperThanStringKeys() {
+        Map<String, DeviceConfig> devices = new LinkedHashMap<>();
+        for (int i = 0; i < DEVICES; i++) {
+            DeviceConfig device = new DeviceConfig();
+            int endpoint = i / SLAVES_PER_ENDPOINT;
+            device.setIp("10." + (endpoint >> 16 & 0xFF) + "." + (endpoint >> 8 & 0xFF) + "." + (endpoint & 0xFF));
+            device.setPort(502);
+            device.setSlaveId((byte) (1 + i % SLAVES_PER_ENDPOINT));
+            devices.put(device.getIp() + ":" + device.getPort() + ":" + device.getSlaveId(), device);
+        }
+        DeviceConfig[] array = devices.values().toArray(new DeviceConfig[0]);
+
+        DeviceRegistry.compile(DeviceRegistry.EMPTY, devices);
+        long before = allocated();
+        DeviceRegistry registry = DeviceRegistry.compile(DeviceRegistry.EMPTY, devices);
+        double compileBytes = (double) (allocated() - before) / DEVICES;
+        assertEquals(DEVICES / SLAVES_PER_ENDPOINT, registry.endpointCount());
+        assertTrue(compileBytes < 512, String.format("registry compile allocated %.1f bytes/device (limit 512)", compileBytes));
+
+        // 原先的热路径：按 ip:port 找连接池、按 ip:port:slaveId 找运行时
+        Map<String, Object> poolsByKey = new ConcurrentHashMap<>();
+        Map<String, Object> runtimesByKey = new ConcurrentHashMap<>();
+        Object[] pools = new Object[registry.endpointCount()];
+        for (int e = 0; e < pools.length; e++) {
+            pools[e] = new Object();
+            poolsByKey.put(registry.endpointKey(e), pools[e]);
+        }
+        for (int d = 0; d < registry.deviceCount(); d++) {
+            runtimesByKey.put(registry.deviceKey(d), registry.device(d));
+        }
+
+        // 预热
+        int sink = stringLookup(array, poolsByKey, runtimesByKey) + handleLookup(array, pools, registry);
+
+        long cpu = bean.getCurrentThreadCpuTime();
+        before = allocated();
+        for (int r = 0; r < ROUNDS; r++) {
+            sink += stringLookup(array, poolsByKey, runtimesByKey);
+        }
+        double stringBytes = (double) (allocated() - before) / ((long) ROUNDS * DEVICES);
+        double stringNanos = (double) (bean.getCurrentThreadCpuTime() - cpu) / ((long) ROUNDS * DEVICES);
+
+        cpu = bean.getCurrentThreadCpuTime();
+        before = allocated();
+        for (int r = 0; r < ROUNDS; r++) {
+            sink += handleLookup(array, pools, registry);
+        }
+        double handleBytes = (double) (allocated() - before) / ((long) ROUNDS * DEVICES);
+        double handleNanos = (double) (bean.getCurrentThreadCpuTime() - cpu) / ((long) ROUNDS * DEVICES);
+
+        String measured = String.format("handle %.1f ns / %.1f bytes per poll, string keys %.1f ns / %.1f bytes per poll",
+                handleNanos, handleBytes, stringNanos, stringBytes);
+        assertEquals(2L * (ROUNDS + 1) * DEVICES * 2, sink, measured);
+        assertTrue(handleBytes < 1, measured);
+        assertTrue(handleBytes < stringBytes, measured);
+        assertTrue(handleNanos < stringNanos, measured);
+    }
+
+    private static int stringLookup(DeviceConfig[] devices, Map<String, Object> pools, Map<String, Object> runtimes) {
+        int found = 0;
+        for (DeviceConfig device : devices) {
+            if (pools.get(device.getIp() + ":" + device.getPort()) != null) {
+                found++;
+            }
+            if (runtimes.get(device.getIp() + ":" + device.getPort() + ":" + device.getSlaveId()) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static int handleLookup(DeviceConfig[] devices, Object[] pools, DeviceRegistry registry) {
+        int found = 0;
+        for (DeviceConfig device : devices) {
+            if (pools[device.getEndpoint()] != null) {
+                found++;
+            }
+            if (registry.device(device.getHandle()) == device) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private long allocated() {
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
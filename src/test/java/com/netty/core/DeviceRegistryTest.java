@@ -0,0 +1,80 @@
+package com.netty.core;
+
+import com.netty.core.common.DeviceConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 重新编译时设备句柄连续重排，在用端点句柄保持不变；无设备的端点句柄回收，新端点优先复用
+ */
+class DeviceRegistryTest {
+
+    @Test
+    void keepsEndpointHandlesAcrossCompiles() {
+        Map<String, DeviceConfig> devices = new LinkedHashMap<>();
+        DeviceConfig a1 = device("10.0.0.1", 1);
+        DeviceConfig a2 = device(new String("10.0.0.1"), 2);
+        DeviceConfig b = device("10.0.0.2", 1);
+        devices.put("10.0.0.1:502:1", a1);
+        devices.put("10.0.0.1:502:2", a2);
+        devices.put("10.0.0.2:502:1", b);
+
+        DeviceRegistry first = DeviceRegistry.compile(DeviceRegistry.EMPTY, devices);
+        assertEquals(3, first.deviceCount());
+        assertEquals(2, first.endpointCount());
+        assertEquals(0, a1.getEndpoint());
+        assertEquals(0, a2.getEndpoint());
+        assertEquals(1, b.getEndpoint());
+        // 配置字段保持调用方传入的值
+        assertNotSame(a1.getIp(), a2.getIp());
+        assertEquals("10.0.0.1:502:2", a2.getKey());
+
+        devices.remove("10.0.0.1:502:1");
+        devices.remove("10.0.0.1:502:2");
+        DeviceConfig c = device("10.0.0.3", 1);
+        devices.put("10.0.0.3:502:1", c);
+        DeviceRegistry second = DeviceRegistry.compile(first, devices);
+
+        assertEquals(2, second.deviceCount());
+        assertEquals(2, second.endpointCount());
+        assertEquals(0, b.getHandle());
+        assertEquals(1, b.getEndpoint());
+        // 10.0.0.1 已无设备，句柄 0 由新端点复用；移出的设备不再指向它
+        assertEquals(0, c.getEndpoint());
+        assertEquals("10.0.0.3:502", second.endpointKey(0));
+        assertEquals(-1, a1.getEndpoint());
+        assertEquals(-1, a2.getHandle());
+        assertSame(c, second.device(c.getHandle()));
+
+        // 末尾的句柄回收后上界收缩
+        devices.remove("10.0.0.2:502:1");
+        DeviceRegistry third = DeviceRegistry.compile(second, devices);
+        assertEquals(1, third.endpointCount());
+
+        // 中间的句柄回收后留空，其余端点句柄不变
+        DeviceConfig d = device("10.0.0.4", 1);
+        devices.put("10.0.0.4:502:1", d);
+        DeviceRegistry fourth = DeviceRegistry.compile(third, devices);
+        assertEquals(1, d.getEndpoint());
+        devices.remove("10.0.0.3:502:1");
+        DeviceRegistry fifth = DeviceRegistry.compile(fourth, devices);
+        assertEquals(2, fifth.endpointCount());
+        assertNull(fifth.endpointKey(0));
+        assertEquals(1, d.getEndpoint());
+    }
+
+    private static DeviceConfig device(String ip, int slaveId) {
+        DeviceConfig device = new DeviceConfig();
+        device.setIp(ip);
+        device.setPort(502);
+        device.setSlaveId((byte) slaveId);
+        return device;
+    }
+}
@@ -0,0 +1,117 @@
+package com.netty.core;
+
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusTask;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 模拟一个有地址空洞、单次最多读 40 个寄存器的从站，校验计划收敛到最少且无异常的请求
+ */
+class ReadPlanTest {
+
+    private static final int LIMIT = 40;
+    private static final int HOLE_FROM = 50;
+    private static final int HOLE_TO = 53;
+
+    @Test
+    void learnsHolesAndBlockLimit() {
+        ModbusTask task = ModbusTask.read(0, 120);
+        task.setTaskId("hr");
+        DeviceConfig device = new DeviceConfig();
+        device.setTasks(Collections.singletonList(task));
+        ReadPlan.attach(device);
+        ReadPlan plan = task.getPlan();
+        assertNull(plan.pieces());
+
+        // 每轮按当前计划发送：出错的请求交给计划学习，成功的分段交给计划拼装（读满一轮会向上试探上限），
+        // 直到一轮全部成功且计划不再变化
+        int rounds = 0;
+        while (true) {
+            ModbusTask[] before = plan.pieces();
+            boolean clean = true;
+            for (ModbusTask request : requests(task)) {
+                int code = respond(request);
+                if (code != 0) {
+                    clean = false;
+                    if (plan.onException(request, code) != null && code == 3) {
+                        ReadPlan.shareLimit(device, plan);
+                    }
+                } else if (request.getParent() != null) {
+                    plan.collect(request, rounds, registers(new int[request.getCount()]));
+                }
+            }
+            if (clean && before == plan.pieces()) {
+                break;
+            }
+            rounds++;
+            assertTrue(rounds < 50, "plan did not converge");
+        }
+
+        assertEquals(LIMIT, plan.getMaxBlock());
+        List<String> ranges = new ArrayList<>();
+        for (ModbusTask piece : plan.pieces()) {
+            ranges.add(piece.getStartAddr() + "+" + piece.getCount());
+        }
+        assertEquals(java.util.Arrays.asList("0+40", "40+10", "53+40", "93+27"), ranges);
+        assertEquals(true, plan.describe().get("limitConfirmed"));
+    }
+
+    @Test
+    void assemblesPiecesIntoOriginalTask() {
+        ModbusTask task = ModbusTask.read(10, 4);
+        DeviceConfig device = new DeviceConfig();
+        device.setTasks(Collections.singletonList(task));
+        ReadPlan.attach(device);
+        ReadPlan plan = task.getPlan();
+        plan.onException(task, 2);
+        ModbusTask[] pieces = plan.pieces();
+        assertEquals(2, pieces.length);
+
+        assertNull(plan.collect(pieces[1], 1000L, registers(3, 4)));
+        Object assembled = plan.collect(pieces[0], 1000L, registers(1, 2));
+        assertNotNull(assembled);
+        assertArrayEquals(new int[]{1, 2, 3, 4}, (int[]) assembled);
+        // 上一轮的迟到分段不会混入新一轮
+        assertNull(plan.collect(pieces[0], 2000L, registers(5, 6)));
+        assertNull(plan.collect(pieces[1], 1000L, registers(7, 8)));
+    }
+
+    private static List<ModbusTask> requests(ModbusTask task) {
+        ModbusTask[] pieces = task.getPlan().pieces();
+        return pieces == null ? Collections.singletonList(task) : java.util.Arrays.asList(pieces);
+    }
+
+    /**
+     * 从站行为：数量超限回 03，覆盖空洞回 02，否则成功
+     */
+    private static int respond(ModbusTask request) {
+        if (request.getCount() > LIMIT) {
+            return 3;
+        }
+        int end = request.getStartAddr() + request.getCount();
+        if (request.getStartAddr() < HOLE_TO && end > HOLE_FROM) {
+            return 2;
+        }
+        return 0;
+    }
+
+    private static byte[] registers(int... values) {
+        byte[] payload = new byte[1 + values.length * 2];
+        payload[0] = (byte) (values.length * 2);
+        for (int i = 0; i < values.length; i++) {
+            payload[1 + i * 2] = (byte) (values[i] >> 8);
+            payload[2 + i * 2] = (byte) values[i];
+        }
+        return payload;
+    }
+}
@@ -0,0 +1,92 @@
+package com.netty.core;
+
+import com.netty.core.common.AlarmRule;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusTask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 快照写入后重新加载，设备清单、任务与最新值镜像应与原状态一致
+ */
+class StateSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsDevicesAndImages() throws IOException {
+        DeviceConfig device = new DeviceConfig();
+        device.setId("dev-1");
+        device.setIp("192.168.1.10");
+        device.setPort(502);
+        device.setSlaveId((byte) 3);
+        device.setInterval(1000);
+        device.setSyncGroup("line-a");
+        device.setPriority(2);
+        AlarmRule rule = new AlarmRule();
+        rule.setName("temp-high");
+        rule.setType("threshold");
+        rule.setHigh(80.0);
+        ModbusTask task = ModbusTask.read(100, 4);
+        task.setTaskId("t1");
+        task.setRules(Collections.singletonList(rule));
+        task.setAggregateWindow(5000);
+        device.setTasks(Collections.singletonList(task));
+
+        RegisterImage image = new RegisterImage("dev-1");
+        image.update(RegisterImage.HOLDING_REGISTERS, 100, new int[]{1, -2, 3, 65535}, null, 1234L);
+        image.update(RegisterImage.COILS, 300, new Object[]{true, false}, null, 1235L);
+
+        Map<String, DeviceConfig> devices = new LinkedHashMap<>();
+        devices.put("192.168.1.10:502:3", device);
+        DeviceConfig bare = new DeviceConfig();
+        bare.setId("dev-2");
+        bare.setIp("192.168.1.11");
+        bare.setPort(502);
+        devices.put("192.168.1.11:502:0", bare);
+
+        Path file = dir.resolve("state.bin");
+        StateSnapshot.write(file, devices, Collections.singletonMap("192.168.1.10:502:3", image));
+        StateSnapshot snapshot = StateSnapshot.load(file);
+
+        assertEquals(2, snapshot.getDevices().size());
+        DeviceConfig loaded = snapshot.getDevices().get(0);
+        assertEquals(device, loaded);
+        assertEquals(80.0, loaded.getTasks().get(0).getRules().get(0).getHigh());
+        assertNull(snapshot.getDevices().get(1).getTasks());
+
+        RegisterImage restored = snapshot.getImages().get("192.168.1.10:502:3");
+        int[] out = new int[4];
+        assertTrue(restored.read(RegisterImage.HOLDING_REGISTERS, 100, 4, out));
+        assertArrayEquals(new int[]{1, -2, 3, 65535}, out);
+        assertEquals(1, restored.value(RegisterImage.COILS, 300));
+        assertFalse(restored.read(RegisterImage.HOLDING_REGISTERS, 99, 1, out));
+        assertEquals(1235L, restored.getUpdateTime());
+        assertFalse(snapshot.getImages().containsKey("192.168.1.11:502:0"));
+    }
+
+    @Test
+    void rejectsCorruptedFile() throws IOException {
+        Path file = dir.resolve("state.bin");
+        StateSnapshot.write(file, Collections.<String, DeviceConfig>emptyMap(), Collections.<String, RegisterImage>emptyMap());
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[9] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> StateSnapshot.load(file));
+    }
+}
@@ -0,0 +1,65 @@
+package com.netty.live;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 同一点位未发出的旧帧被最新帧替换且保持原位置，取走后缓冲清空；发送超时只判定一次并中断在跑的发送线程
+ */
+class LiveSubscriberTest {
+
+    @Test
+    void conflatesPerPoint() {
+        LiveSubscriber subscriber = new LiveSubscriber(1, new SseEmitter(0L), null, null);
+        LiveFrame a1 = new LiveFrame("d1/4:1", "{\"value\":1}");
+        LiveFrame b = new LiveFrame("d1/4:2", "{\"value\":5}");
+        LiveFrame a2 = new LiveFrame("d1/4:1", "{\"value\":2}");
+
+        assertEquals(1, subscriber.offer(a1));
+        assertEquals(2, subscriber.offer(b));
+        assertEquals(2, subscriber.offer(a2));
+        assertEquals(1, subscriber.conflated());
+
+        List<LiveFrame> batch = subscriber.take();
+        assertEquals(2, batch.size());
+        assertSame(a2, batch.get(0));
+        assertSame(b, batch.get(1));
+        assertEquals(2, subscriber.sent());
+        assertNull(subscriber.take());
+        assertFalse(subscriber.hasWork());
+
+        subscriber.requestPing();
+        assertTrue(subscriber.hasWork());
+        assertTrue(subscriber.takePing());
+        assertFalse(subscriber.takePing());
+    }
+
+    @Test
+    void interruptsStalledSendOnce() {
+        LiveSubscriber subscriber = new LiveSubscriber(1, new SseEmitter(0L), null, null);
+        AtomicInteger stalls = new AtomicInteger();
+        Runnable onStall = stalls::incrementAndGet;
+        assertFalse(subscriber.interruptIfStalled(Long.MAX_VALUE, onStall));
+
+        subscriber.beginSend();
+        // 发送开始于截止时间之后，未超时
+        assertFalse(subscriber.interruptIfStalled(System.currentTimeMillis() - 60_000, onStall));
+        assertTrue(subscriber.interruptIfStalled(Long.MAX_VALUE, onStall));
+        assertFalse(subscriber.interruptIfStalled(Long.MAX_VALUE, onStall));
+        assertEquals(1, stalls.get());
+        assertTrue(Thread.interrupted());
+
+        assertTrue(subscriber.endSend());
+        subscriber.beginSend();
+        assertFalse(subscriber.endSend());
+    }
+}
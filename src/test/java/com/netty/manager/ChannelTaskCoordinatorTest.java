@@ -0,0 +1,177 @@
+package com.netty.manager;
+
+import com.netty.config.ModbusConfig;
+import com.netty.core.ModbusFrame;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusCallback;
+import com.netty.core.common.ModbusTask;
+import com.netty.core.common.QueuedTask;
+import com.netty.core.handler.ModbusDecoder;
+import com.netty.core.handler.ModbusEncoder;
+import com.netty.core.handler.ModbusResponseHandler;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 单连接协调器：排队中被舍弃的请求同样以失败回调结束，调用方不会一直等待；
+ * 链路失效只由探测读判定，同一网关下一个从站离线不会关闭整条链路
+ */
+class ChannelTaskCoordinatorTest {
+
+    @Test
+    void droppedTasksFailTheirCallbacks() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ModbusDecoder(), new ModbusEncoder(), new ModbusResponseHandler());
+        ModbusConfig config = new ModbusConfig();
+        config.setRequestGap(0);
+        config.setMaxQueuePerSlave(2);
+        ChannelTaskCoordinator coordinator = new ChannelTaskCoordinator(channel, "test", config, 1000, null);
+        channel.runPendingTasks();
+
+        DeviceConfig device = device(1);
+        List<Throwable> failures = new ArrayList<>();
+        ModbusCallback callback = new ModbusCallback() {
+            @Override
+            public void onResponse(QueuedTask request, ModbusFrame response) {
+            }
+
+            @Override
+            public void onFailure(QueuedTask request, Throwable cause) {
+                failures.add(cause);
+            }
+        };
+
+        // 第 1 个发出在途，2、3 排队，第 4 个使积压超限，舍弃最旧的 2
+        for (int i = 0; i < 4; i++) {
+            coordinator.enqueue(QueuedTask.newInstance(device, ModbusTask.read(i, 1), callback));
+        }
+        assertEquals(1, failures.size());
+        assertSame(ChannelTaskCoordinator.REQUEST_DROPPED, failures.get(0));
+
+        // 断开：在途的 1 与排队的 3、4 全部回调失败
+        coordinator.clear();
+        assertEquals(4, failures.size());
+        assertSame(ChannelTaskCoordinator.REQUEST_DROPPED, failures.get(2));
+        assertSame(ChannelTaskCoordinator.REQUEST_DROPPED, failures.get(3));
+        assertEquals(0, coordinator.load());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void deadUnitNextToLiveUnitKeepsLinkOpen() throws InterruptedException {
+        EmbeddedChannel channel = new EmbeddedChannel(new ModbusDecoder(), new ModbusEncoder(), new ModbusResponseHandler());
+        ChannelTaskCoordinator coordinator = new ChannelTaskCoordinator(channel, "test", livenessConfig(), 5, null);
+        channel.runPendingTasks();
+        DeviceConfig live = device(1);
+        DeviceConfig offline = device(2);
+
+        for (int round = 0; round < 5; round++) {
+            coordinator.enqueue(QueuedTask.newInstance(live, ModbusTask.read(0, 1), NOOP));
+            coordinator.enqueue(QueuedTask.newInstance(offline, ModbusTask.read(0, 1), NOOP));
+            assertEquals(1, answer(channel));
+            // 离线从站的请求超时
+            assertEquals(2, drop(channel));
+            timeOut(channel);
+
+            // 读静默触发的探测打到最近应答过的从站
+            assertTrue(coordinator.probe());
+            assertEquals(1, answer(channel));
+        }
+        assertFalse(coordinator.isDead());
+        assertTrue(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void silentLinkIsDeclaredDeadAfterProbeTimeouts() throws InterruptedException {
+        EmbeddedChannel channel = new EmbeddedChannel(new ModbusDecoder(), new ModbusEncoder(), new ModbusResponseHandler());
+        ChannelTaskCoordinator coordinator = new ChannelTaskCoordinator(channel, "test", livenessConfig(), 5, null);
+        channel.runPendingTasks();
+        DeviceConfig device = device(1);
+
+        // 普通请求超时不计入
+        for (int i = 0; i < 3; i++) {
+            coordinator.enqueue(QueuedTask.newInstance(device, ModbusTask.read(0, 1), NOOP));
+            drop(channel);
+            timeOut(channel);
+        }
+        assertFalse(coordinator.isDead());
+
+        assertTrue(coordinator.probe());
+        drop(channel);
+        timeOut(channel);
+        assertFalse(coordinator.isDead());
+        assertTrue(coordinator.probe());
+        drop(channel);
+        timeOut(channel);
+
+        assertTrue(coordinator.isDead());
+        assertFalse(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    private static final ModbusCallback NOOP = new ModbusCallback() {
+        @Override
+        public void onResponse(QueuedTask request, ModbusFrame response) {
+        }
+
+        @Override
+        public void onFailure(QueuedTask request, Throwable cause) {
+        }
+    };
+
+    private static ModbusConfig livenessConfig() {
+        ModbusConfig config = new ModbusConfig();
+        config.setRequestGap(0);
+        config.setReadTimeout(20);
+        config.setLivenessMaxTimeouts(2);
+        return config;
+    }
+
+    /**
+     * 取出已发出的请求并回一个寄存器，返回请求的从站号
+     */
+    private static int answer(EmbeddedChannel channel) {
+        ByteBuf request = channel.readOutbound();
+        short tid = request.getShort(0);
+        byte unit = request.getByte(6);
+        request.release();
+        ByteBuf response = Unpooled.buffer(11);
+        response.writeShort(tid).writeShort(0).writeShort(5).writeByte(unit).writeByte(3).writeByte(2).writeShort(0);
+        channel.writeInbound(response);
+        return unit;
+    }
+
+    /**
+     * 取出已发出的请求但不应答，返回请求的从站号
+     */
+    private static int drop(EmbeddedChannel channel) {
+        ByteBuf request = channel.readOutbound();
+        byte unit = request.getByte(6);
+        request.release();
+        return unit;
+    }
+
+    private static void timeOut(EmbeddedChannel channel) throws InterruptedException {
+        Thread.sleep(40);
+        channel.runPendingTasks();
+    }
+
+    static DeviceConfig device(int slaveId) {
+        DeviceConfig device = new DeviceConfig();
+        device.setId("unit" + slaveId);
+        device.setIp("127.0.0.1");
+        device.setPort(502);
+        device.setSlaveId((byte) slaveId);
+        return device;
+    }
+}
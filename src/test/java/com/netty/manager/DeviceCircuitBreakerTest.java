@@ -0,0 +1,47 @@
+package com.netty.manager;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 半开只由当前探测的结果结束：熔断前在途的普通请求、被重发替代的旧探测迟到的结果都不改变状态
+ */
+class DeviceCircuitBreakerTest {
+
+    @Test
+    void halfOpenIsDecidedByCurrentProbeOnly() {
+        DeviceCircuitBreaker breaker = new DeviceCircuitBreaker("d1", 2, 1000, 8000);
+        breaker.recordFailure("timeout", 0);
+        breaker.recordFailure("timeout", 0);
+        assertEquals(DeviceCircuitBreaker.State.OPEN, breaker.getState());
+
+        // 打开期间在途请求的迟到结果
+        breaker.recordSuccess();
+        breaker.recordFailure("timeout", 10);
+        assertEquals(DeviceCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getTripCount());
+
+        assertEquals(DeviceCircuitBreaker.Decision.PROBE, breaker.tryAcquire(1000));
+        long first = breaker.currentProbe();
+        breaker.recordSuccess();
+        breaker.recordFailure("timeout", 1001);
+        assertEquals(DeviceCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // 探测丢失后重发，旧探测迟到的结果不算数
+        assertEquals(DeviceCircuitBreaker.Decision.PROBE, breaker.tryAcquire(2000));
+        long second = breaker.currentProbe();
+        breaker.recordProbeSuccess(first);
+        breaker.recordProbeFailure(first, "timeout", 2001);
+        assertEquals(DeviceCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.recordProbeFailure(second, "timeout", 2002);
+        assertEquals(DeviceCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2000, breaker.getCurrentOpenTime());
+
+        assertEquals(DeviceCircuitBreaker.Decision.PROBE, breaker.tryAcquire(4002));
+        breaker.recordProbeSuccess(breaker.currentProbe());
+        assertEquals(DeviceCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1000, breaker.getCurrentOpenTime());
+    }
+}
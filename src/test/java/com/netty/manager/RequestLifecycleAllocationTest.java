@@ -0,0 +1,133 @@
+package com.netty.manager;
+
+import com.netty.config.ModbusConfig;
+import com.netty.core.ModbusFrame;
+import com.netty.core.RegisterImage;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusCallback;
+import com.netty.core.common.ModbusTask;
+import com.netty.core.common.QueuedTask;
+import com.netty.core.handler.ModbusDecoder;
+import com.netty.core.handler.ModbusEncoder;
+import com.netty.core.handler.ModbusResponseHandler;
+import com.netty.service.DataRouteDispatcher;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分配基准：稳态下每次请求的堆分配字节数。
+ * <ul>
+ *   <li>传输路径：入队 -> 编码 -> 解码 -> 匹配 -> 回调，回调本身不做事</li>
+ *   <li>分发路径：同上，回调换成真实的 DataRouteDispatcher（output-mode=none，挂最新值镜像），
+ *   额外计入 ModbusResult 与解析出的 int[]</li>
+ * </ul>
+ * 调度侧（pollDevice 之前的定时触发、熔断判定）与输出侧（Redis / RabbitMQ 序列化）不在测量范围内。
+ */
+class RequestLifecycleAllocationTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int ROUNDS = 100_000;
+
+    private long responses;
+
+    @Test
+    void steadyStatePollingAllocatesAlmostNothing() {
+        ModbusCallback callback = new ModbusCallback() {
+            @Override
+            public void onResponse(QueuedTask request, ModbusFrame response) {
+                responses++;
+            }
+
+            @Override
+            public void onFailure(QueuedTask request, Throwable cause) {
+            }
+        };
+        double perRequest = measure(device(), callback);
+
+        assertEquals(WARMUP + ROUNDS, responses);
+        assertTrue(perRequest < 256, String.format("transport path allocation %.1f bytes/request (limit 256)", perRequest));
+    }
+
+    @Test
+    void steadyStateDispatchAllocation() {
+        DeviceConfig device = device();
+        device.setImage(new RegisterImage(device.getId()));
+        DataRouteDispatcher dispatcher = new DataRouteDispatcher(null, null);
+        dispatcher.setOutputMode("none");
+        ModbusCallback callback = new ModbusCallback() {
+            @Override
+            public void onResponse(QueuedTask request, ModbusFrame response) {
+                responses++;
+                dispatcher.onResponse(request, response);
+            }
+
+            @Override
+            public void onFailure(QueuedTask request, Throwable cause) {
+            }
+        };
+        double perRequest = measure(device, callback);
+
+        assertEquals(WARMUP + ROUNDS, responses);
+        // 传输路径之外：ModbusResult 一个、10 个寄存器的 int[] 一个
+        assertTrue(perRequest < 512, String.format("dispatch path allocation %.1f bytes/request (limit 512)", perRequest));
+    }
+
+    private double measure(DeviceConfig device, ModbusCallback callback) {
+        EmbeddedChannel channel = new EmbeddedChannel(new ModbusDecoder(), new ModbusEncoder(), new ModbusResponseHandler());
+        ModbusConfig config = new ModbusConfig();
+        config.setRequestGap(0);
+        ChannelTaskCoordinator coordinator = new ChannelTaskCoordinator(channel, "bench", config, 1000, null);
+        channel.runPendingTasks();
+        ModbusTask task = ModbusTask.read(0, 10);
+        task.setTaskId("bench");
+
+        // 预先构建的 10 个寄存器响应：MBAP(7) + FC(1) + ByteCount(1) + 20 字节数据
+        ByteBuf response = Unpooled.buffer(29);
+        response.writeShort(0).writeShort(0).writeShort(23).writeByte(1).writeByte(3).writeByte(20);
+        response.writeZero(20);
+
+        runRounds(channel, coordinator, device, task, callback, response, WARMUP);
+
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        runRounds(channel, coordinator, device, task, callback, response, ROUNDS);
+        long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+
+        response.release();
+        channel.finishAndReleaseAll();
+        return (double) allocated / ROUNDS;
+    }
+
+    private static DeviceConfig device() {
+        DeviceConfig device = new DeviceConfig();
+        device.setId("bench");
+        device.setIp("127.0.0.1");
+        device.setPort(502);
+        device.setSlaveId((byte) 1);
+        return device;
+    }
+
+    private void runRounds(EmbeddedChannel channel, ChannelTaskCoordinator coordinator, DeviceConfig device,
+                           ModbusTask task, ModbusCallback callback, ByteBuf response, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            coordinator.enqueue(QueuedTask.newInstance(device, task, callback));
+
+            ByteBuf request = channel.readOutbound();
+            short tid = request.getShort(0);
+            request.release();
+
+            response.setShort(0, tid);
+            response.readerIndex(0);
+            response.retain();
+            channel.pipeline().fireChannelRead(response);
+        }
+    }
+}
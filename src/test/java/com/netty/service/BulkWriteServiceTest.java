@@ -0,0 +1,114 @@
+package com.netty.service;
+
+import com.netty.config.ModbusConfig;
+import com.netty.core.common.BulkWriteRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量写入任务生命周期：同时在途数不超过 concurrency，结束一个补一个，熔断设备直接失败，读回不一致记为 MISMATCH
+ */
+class BulkWriteServiceTest {
+
+    private final ModbusMasterService masterService = mock(ModbusMasterService.class);
+    private final BlockingQueue<CompletableFuture<Void>> inFlight = new LinkedBlockingQueue<>();
+    private ThreadPoolTaskScheduler scheduler;
+    private BulkWriteService service;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        service = new BulkWriteService();
+        ReflectionTestUtils.setField(service, "masterService", masterService);
+        ReflectionTestUtils.setField(service, "modbusConfig", new ModbusConfig());
+        ReflectionTestUtils.setField(service, "scheduler", scheduler);
+        when(masterService.write(anyString(), anyInt(), any())).thenAnswer(inv -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            inFlight.add(future);
+            return future;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void runsAtMostConcurrencyWritesAndRefillsAsTheyFinish() throws InterruptedException {
+        when(masterService.isTripped("d5")).thenReturn(true);
+        BulkWriteRequest request = new BulkWriteRequest();
+        request.setDeviceKeys(Arrays.asList("d1", "d2", "d3", "d4", "d5", "d6"));
+        request.setAddress(100);
+        request.setValues(new int[]{1});
+        request.setConcurrency(2);
+        BulkWriteJob job = service.submit(request);
+
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<Void> future = inFlight.poll(5, TimeUnit.SECONDS);
+            assertNotNull(future, "write " + i + " was not started");
+            assertTrue((Integer) job.summary().get("running") <= 2, "more than 2 writes in flight");
+            if (i == 1) {
+                future.completeExceptionally(new IllegalStateException("Modbus request timed out!"));
+            } else {
+                future.complete(null);
+            }
+        }
+        waitFinished(job);
+
+        Map<String, Object> summary = job.summary();
+        assertEquals(6, summary.get("done"));
+        assertEquals(4, summary.get("ok"));
+        // 1 个超时 + 1 个熔断打开
+        assertEquals(2, summary.get("failed"));
+        assertEquals(0, summary.get("running"));
+        assertEquals("DONE", summary.get("state"));
+        assertTrue(inFlight.isEmpty());
+    }
+
+    @Test
+    void verifyComparesReadBack() throws InterruptedException {
+        when(masterService.writeThenRead(eq("d1"), anyInt(), any(), anyInt(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(new int[]{7, 8}));
+        when(masterService.writeThenRead(eq("d2"), anyInt(), any(), anyInt(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(new int[]{7, 9}));
+        BulkWriteRequest request = new BulkWriteRequest();
+        request.setDeviceKeys(Arrays.asList("d1", "d2"));
+        request.setValues(new int[]{7, 8});
+        request.setVerify(true);
+        BulkWriteJob job = service.submit(request);
+        waitFinished(job);
+
+        assertEquals(1, job.summary().get("ok"));
+        assertEquals(1, job.summary().get("mismatched"));
+    }
+
+    private static void waitFinished(BulkWriteJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(job.isFinished(), "job did not finish: " + job.summary());
+    }
+}
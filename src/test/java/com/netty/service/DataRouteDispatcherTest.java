@@ -0,0 +1,96 @@
+package com.netty.service;
+
+import com.netty.core.ModbusFrame;
+import com.netty.core.ReadPlan;
+import com.netty.core.RegisterImage;
+import com.netty.core.common.DeviceConfig;
+import com.netty.core.common.ModbusTask;
+import com.netty.core.common.QueuedTask;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * 计划拼装后的任务点数可超过单帧上限（以及变化点缓冲的初始长度），分发时缓冲按需扩容，整段写入镜像
+ */
+class DataRouteDispatcherTest {
+
+    @Test
+    void dispatchesAssembledRegisterTaskLargerThanChangedBuffer() {
+        DeviceConfig device = device(ModbusTask.read(0, 3000));
+        DataRouteDispatcher dispatcher = dispatcher();
+
+        for (ModbusTask piece : pieces(device)) {
+            byte[] payload = new byte[1 + piece.getCount() * 2];
+            payload[0] = (byte) (piece.getCount() * 2);
+            for (int i = 0; i < piece.getCount(); i++) {
+                int value = piece.getStartAddr() + i + 1;
+                payload[1 + i * 2] = (byte) (value >> 8);
+                payload[2 + i * 2] = (byte) value;
+            }
+            dispatcher.dispatch(QueuedTask.newInstance(device, piece, dispatcher), frame(3, payload));
+        }
+
+        RegisterImage image = device.getImage();
+        for (int address = 0; address < 3000; address++) {
+            assertEquals(address + 1, image.value(RegisterImage.HOLDING_REGISTERS, address));
+        }
+    }
+
+    @Test
+    void dispatchesAssembledCoilTaskLargerThanChangedBuffer() {
+        ModbusTask task = ModbusTask.builder().type(1).startAddr(0).count(5000).build();
+        DeviceConfig device = device(task);
+        DataRouteDispatcher dispatcher = dispatcher();
+
+        for (ModbusTask piece : pieces(device)) {
+            byte[] payload = new byte[1 + (piece.getCount() + 7) / 8];
+            payload[0] = (byte) (payload.length - 1);
+            for (int i = 1; i < payload.length; i++) {
+                payload[i] = (byte) 0xFF;
+            }
+            dispatcher.dispatch(QueuedTask.newInstance(device, piece, dispatcher), frame(1, payload));
+        }
+
+        RegisterImage image = device.getImage();
+        for (int address = 0; address < 5000; address++) {
+            assertEquals(1, image.value(RegisterImage.COILS, address));
+        }
+    }
+
+    private static DataRouteDispatcher dispatcher() {
+        DataRouteDispatcher dispatcher = new DataRouteDispatcher(null, null);
+        dispatcher.setOutputMode("none");
+        return dispatcher;
+    }
+
+    private static DeviceConfig device(ModbusTask task) {
+        task.setTaskId("t");
+        DeviceConfig device = new DeviceConfig();
+        device.setId("d1");
+        device.setIp("127.0.0.1");
+        device.setPort(502);
+        device.setSlaveId((byte) 1);
+        device.setTasks(Collections.singletonList(task));
+        device.setImage(new RegisterImage(device.getId()));
+        ReadPlan.attach(device);
+        return device;
+    }
+
+    private static ModbusTask[] pieces(DeviceConfig device) {
+        ModbusTask[] pieces = device.getTasks().get(0).getPlan().pieces();
+        assertNotNull(pieces);
+        return pieces;
+    }
+
+    private static ModbusFrame frame(int fc, byte[] payload) {
+        ModbusFrame frame = new ModbusFrame();
+        frame.setUnitId((byte) 1);
+        frame.setFunctionCode((byte) fc);
+        frame.setPayload(payload);
+        return frame;
+    }
+}
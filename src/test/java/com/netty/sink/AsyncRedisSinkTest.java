@@ -0,0 +1,136 @@
+package com.netty.sink;
+
+import com.netty.core.RegisterImage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用内存实现替代 Redis：校验只写变化字段、在途上限与失败后的整段重写
+ */
+class AsyncRedisSinkTest {
+
+    private static final int HR = RegisterImage.HOLDING_REGISTERS;
+
+    private final StandIn redis = new StandIn();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void writesOnlyChangedFields() {
+        AsyncRedisSink sink = new AsyncRedisSink(redis, 10, registry);
+        RegisterImage image = new RegisterImage("dev-1");
+        int[] changed = new int[16];
+
+        int n = image.update(HR, 100, new int[]{1, 2, 3}, changed, 1000L);
+        sink.write(image, HR, 100, 3, changed, n, 1000L);
+        redis.completeAll();
+        assertEquals("1", redis.hash("DEVICE:DATA:dev-1").get("4:100"));
+        assertEquals("3", redis.hash("DEVICE:DATA:dev-1").get("4:102"));
+
+        n = image.update(HR, 100, new int[]{1, 5, 3}, changed, 2000L);
+        sink.write(image, HR, 100, 3, changed, n, 2000L);
+        Map<String, String> second = redis.pending.get(0).fields;
+        redis.completeAll();
+        assertEquals(1, n);
+        assertEquals("5", second.get("4:101"));
+        assertFalse(second.containsKey("4:100"));
+        assertEquals("2000", second.get("TS_4:100_3"));
+        assertEquals("2000", second.get("_LIVE_TIME"));
+    }
+
+    @Test
+    void dropsBeyondInFlightLimitAndRewritesLater() {
+        AsyncRedisSink sink = new AsyncRedisSink(redis, 1, registry);
+        RegisterImage image = new RegisterImage("dev-2");
+        int[] changed = new int[16];
+
+        int n = image.update(HR, 0, new int[]{7}, changed, 1L);
+        sink.write(image, HR, 0, 1, changed, n, 1L);
+        n = image.update(HR, 1, new int[]{8}, changed, 2L);
+        sink.write(image, HR, 1, 1, changed, n, 2L);
+        assertEquals(1, sink.inFlight());
+        assertEquals(1.0, registry.get("modbus.sink.dropped").counter().count());
+
+        // 被丢弃的地址已作废，同值再次采样仍视为变化
+        redis.completeAll();
+        n = image.update(HR, 1, new int[]{8}, changed, 3L);
+        assertEquals(1, n);
+    }
+
+    @Test
+    void failedWriteInvalidatesImage() {
+        AsyncRedisSink sink = new AsyncRedisSink(redis, 10, registry);
+        RegisterImage image = new RegisterImage("dev-3");
+        int[] changed = new int[16];
+
+        int n = image.update(HR, 0, new int[]{1, 2}, changed, 1L);
+        sink.write(image, HR, 0, 2, changed, n, 1L);
+        redis.failAll(new IllegalStateException("connection lost"));
+
+        assertEquals(0, sink.inFlight());
+        assertEquals(1.0, registry.get("modbus.sink.errors").counter().count());
+        assertEquals(2, image.update(HR, 0, new int[]{1, 2}, changed, 2L));
+        assertTrue(redis.data.isEmpty());
+    }
+
+    /**
+     * 手动完成的 Redis 替身
+     */
+    private static final class StandIn implements RedisHashClient {
+        private final Map<String, Map<String, String>> data = new HashMap<>();
+        private final List<Command> pending = new ArrayList<>();
+
+        @Override
+        public CompletionStage<?> hset(String key, Map<String, String> fields) {
+            Command command = new Command(key, new HashMap<>(fields));
+            pending.add(command);
+            return command.future;
+        }
+
+        private Map<String, String> hash(String key) {
+            return data.get(key);
+        }
+
+        private void completeAll() {
+            List<Command> done = new ArrayList<>(pending);
+            pending.clear();
+            for (Command c : done) {
+                data.computeIfAbsent(c.key, k -> new HashMap<>()).putAll(c.fields);
+                c.future.complete((long) c.fields.size());
+            }
+        }
+
+        private void failAll(Throwable cause) {
+            List<Command> done = new ArrayList<>(pending);
+            pending.clear();
+            for (Command c : done) {
+                c.future.completeExceptionally(cause);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class Command {
+        private final String key;
+        private final Map<String, String> fields;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private Command(String key, Map<String, String> fields) {
+            this.key = key;
+            this.fields = fields;
+        }
+    }
+}
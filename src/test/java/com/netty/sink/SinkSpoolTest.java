@@ -0,0 +1,150 @@
+package com.netty.sink;
+
+import com.netty.config.ModbusConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用可启停的内存 broker 替代 Redis / RabbitMQ：校验断连落盘、按序限速回放、重启恢复与磁盘预算
+ */
+class SinkSpoolTest {
+
+    @TempDir
+    Path dir;
+
+    private final Broker broker = new Broker();
+    private SinkSpool spool;
+
+    @AfterEach
+    void close() {
+        if (spool != null) {
+            spool.close();
+        }
+    }
+
+    private SinkSpool newSpool(int replayRate) {
+        ModbusConfig config = new ModbusConfig();
+        config.setSpoolDir(dir.toString());
+        config.setSpoolSegmentMb(1);
+        config.setSpoolMaxDiskMb(4);
+        config.setSpoolReplayRate(replayRate);
+        return new SinkSpool(config, new SimpleMeterRegistry());
+    }
+
+    /**
+     * 与 DataRouteDispatcher 的输出顺序一致：有积压先排队，否则直发，失败转入暂存
+     */
+    private void deliver(SinkSpool spool, int seq) {
+        byte[] body = Integer.toString(seq).getBytes(StandardCharsets.UTF_8);
+        if (spool.isBacklogged()) {
+            spool.append(SinkSpool.RABBITMQ, "modbus.key", "com.netty.Sample", body);
+            return;
+        }
+        try {
+            broker.send(SinkSpool.RABBITMQ, "modbus.key", "com.netty.Sample", body);
+        } catch (Exception e) {
+            spool.onSendFailure(SinkSpool.RABBITMQ, "modbus.key", "com.netty.Sample", body, e);
+        }
+    }
+
+    @Test
+    void spoolsDuringOutageAndReplaysInOrder() throws Exception {
+        spool = newSpool(50);
+        deliver(spool, 0);
+        broker.up = false;
+        for (int i = 1; i <= 20; i++) {
+            deliver(spool, i);
+        }
+        assertEquals(20, spool.backlog());
+
+        // broker 仍未恢复：回放停在第一条，不丢不跳
+        assertEquals(0, spool.replay(broker::send));
+        assertEquals(20, spool.backlog());
+
+        broker.up = true;
+        // 恢复后新样本仍排在积压之后
+        deliver(spool, 21);
+        assertEquals(21, spool.backlog());
+
+        // 50 条/秒、200ms 一个周期：每周期最多 10 条
+        assertEquals(10, spool.replay(broker::send));
+        assertEquals(11, spool.backlog());
+        while (spool.backlog() > 0) {
+            assertTrue(spool.replay(broker::send) <= 10);
+        }
+        assertFalse(spool.isBacklogged());
+
+        deliver(spool, 22);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i <= 22; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, broker.received);
+    }
+
+    @Test
+    void resumesBacklogAfterRestart() throws Exception {
+        spool = newSpool(0);
+        broker.up = false;
+        for (int i = 0; i < 5; i++) {
+            deliver(spool, i);
+        }
+        broker.up = true;
+        spool.close();
+
+        // 新实例从段文件头恢复读写位置
+        spool = newSpool(0);
+        assertEquals(5, spool.replay(broker::send));
+        assertEquals(0, spool.backlog());
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, broker.received);
+    }
+
+    @Test
+    void dropsOldestSegmentsBeyondDiskBudget() throws Exception {
+        DiskSpool disk = DiskSpool.open(dir.resolve("budget"), 4096, 2 * 4096);
+        byte[] body = new byte[900];
+        for (int i = 0; i < 12; i++) {
+            body[0] = (byte) i;
+            assertTrue(disk.append(i, SinkSpool.REDIS, "k", "t", body));
+        }
+        // 每段容纳 4 条，预算只够 2 段：最早的一段被淘汰
+        assertEquals(2, disk.segmentCount());
+        assertEquals(4, disk.dropped());
+        assertEquals(8, disk.backlog());
+        List<DiskSpool.Record> records = disk.peek(100);
+        assertEquals(4, records.get(0).getBody()[0]);
+        disk.commit(records.get(records.size() - 1));
+        assertEquals(0, disk.backlog());
+        disk.close();
+    }
+
+    /**
+     * 可启停的 broker 替身，按收到顺序记录样本序号
+     */
+    private static final class Broker {
+        private volatile boolean up = true;
+        private final List<Integer> received = new ArrayList<>();
+
+        private void send(byte sink, String key, String type, byte[] body) {
+            if (!up) {
+                throw new IllegalStateException("broker stopped");
+            }
+            received.add(Integer.parseInt(new String(body, StandardCharsets.UTF_8)));
+        }
+    }
+}